@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.benchmarks;
+
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricClient;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricEndpoint;
+import com.microsoft.jenkins.servicefabric.upload.ChunkedUploader;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the chunked upload of a large file to a local image store that discards what it receives, so that
+ * the chunking, the memory mapping and the HTTP client are measured rather than the network.
+ * <p>
+ * The upload of {@code fileMegabytes} takes the reported time; divide to get the throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ChunkedUploadBenchmark {
+    private static final long MEGABYTE = 1024L * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int HTTP_OK = 200;
+
+    @Param("512")
+    private int fileMegabytes;
+
+    @Param({"1", "8", "32"})
+    private int chunkMegabytes;
+
+    @Param({"1", "4"})
+    private int parallelChunks;
+
+    private File root;
+    private File file;
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ChunkedUploader uploader;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = Fixtures.createTempDirectory("sf-upload");
+        file = new File(root, "image.tar");
+        Fixtures.writeSparse(file, fileMegabytes * MEGABYTE);
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", new ImageStoreHandler());
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        ServiceFabricClient client = ServiceFabricClient.forEndpoint(
+                new ServiceFabricEndpoint("localhost", server.getAddress().getPort(), null, null));
+        PrintStream logger = new PrintStream(new NullOutputStream(), false, StandardCharsets.UTF_8.name());
+        uploader = new ChunkedUploader(client, logger, (int) (chunkMegabytes * MEGABYTE), parallelChunks);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        Fixtures.deleteRecursively(root);
+    }
+
+    @Benchmark
+    public void upload() throws Exception {
+        uploader.upload(file, "BenchmarkApp/pkg/image.tar");
+    }
+
+    /**
+     * Answers the upload session requests of the image store API: no session to resume, chunks are read and
+     * discarded, commits succeed.
+     */
+    private static final class ImageStoreHandler implements HttpHandler {
+        private static final byte[] NO_SESSION = "{\"UploadSessions\":[]}".getBytes(StandardCharsets.UTF_8);
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                InputStream in = exchange.getRequestBody();
+                while (in.read(buffer) >= 0) {
+                    // discard
+                }
+                String path = exchange.getRequestURI().getPath();
+                if (path.endsWith("/GetUploadSession")) {
+                    exchange.getResponseHeaders().set("Content-Type", "application/json");
+                    exchange.sendResponseHeaders(HTTP_OK, NO_SESSION.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(NO_SESSION);
+                    }
+                } else {
+                    exchange.sendResponseHeaders(HTTP_OK, -1);
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    private static final class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
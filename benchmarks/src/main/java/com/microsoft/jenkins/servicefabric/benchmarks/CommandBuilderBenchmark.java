@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.benchmarks;
+
+import com.microsoft.jenkins.servicefabric.command.DeployOptions;
+import com.microsoft.jenkins.servicefabric.command.DeployPlan;
+import com.microsoft.jenkins.servicefabric.command.SFCommand;
+import com.microsoft.jenkins.servicefabric.command.SFCommandBuilder;
+import com.microsoft.jenkins.servicefabric.rest.ApplicationInfo;
+import hudson.FilePath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Planning of a deployment from a workspace: reading the manifests of the package and building the commands.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandBuilderBenchmark {
+    @Param({Fixtures.SMALL, Fixtures.SERVICES_30})
+    private String shape;
+
+    private File root;
+    private SFCommandBuilder builder;
+    private ApplicationInfo current;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = Fixtures.createTempDirectory("sf-plan");
+        Fixtures.createPackage(root, shape, 0);
+        DeployOptions options = new DeployOptions();
+        options.setSkipUnchanged(true);
+        options.setDiffPackage(true);
+        builder = new SFCommandBuilder(new FilePath(root), "fabric:/BenchmarkApp", Fixtures.APPLICATION_TYPE,
+                "pkg/" + Fixtures.APPLICATION_MANIFEST, options);
+        current = new ApplicationInfo("BenchmarkApp", "fabric:/BenchmarkApp", Fixtures.APPLICATION_TYPE, "0.9.0",
+                "Ready", "Ok");
+    }
+
+    @TearDown
+    public void tearDown() {
+        Fixtures.deleteRecursively(root);
+    }
+
+    /**
+     * The manifests are read from the workspace, their parsed model is cached by content.
+     */
+    @Benchmark
+    public List<SFCommand> buildCommands() throws Exception {
+        return builder.buildCommands();
+    }
+
+    @Benchmark
+    public DeployPlan plan() {
+        return DeployPlan.create(current, Fixtures.APPLICATION_VERSION);
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates the application packages and cluster properties the benchmarks run against, so that nothing needs to be
+ * downloaded or checked in.
+ */
+final class Fixtures {
+    static final String APPLICATION_TYPE = "BenchmarkAppType";
+    static final String APPLICATION_VERSION = "1.0.0";
+    static final String APPLICATION_MANIFEST = "ApplicationManifest.xml";
+
+    /**
+     * A single service with a handful of small files.
+     */
+    static final String SMALL = "small";
+    /**
+     * 30 services, each with a code package of binaries and a config package.
+     */
+    static final String SERVICES_30 = "services30";
+    /**
+     * A single service with a multi-GB sparse file, e.g., a container image or a data package.
+     */
+    static final String SPARSE = "sparse";
+
+    private static final int SMALL_FILE_SIZE = 4 * 1024;
+    private static final int BINARY_SIZE = 256 * 1024;
+    private static final int BINARIES_PER_SERVICE = 8;
+    private static final long GIGABYTE = 1024L * 1024 * 1024;
+    private static final long SEED = 42;
+
+    /**
+     * Creates an application package of the given shape.
+     *
+     * @param sparseGigabytes the size of the sparse file of the {@link #SPARSE} package.
+     * @return the application package directory.
+     */
+    static File createPackage(File root, String shape, int sparseGigabytes) throws IOException {
+        File pkg = new File(root, "pkg");
+        Random random = new Random(SEED);
+        int services = SERVICES_30.equals(shape) ? 30 : 1;
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < services; i++) {
+            String name = "Service" + i + "Pkg";
+            names.add(name);
+            File serviceDir = new File(pkg, name);
+            write(new File(serviceDir, "ServiceManifest.xml"), serviceManifest(name));
+            write(new File(serviceDir, "Config/Settings.xml"), "<Settings/>");
+            if (SMALL.equals(shape)) {
+                writeRandom(new File(serviceDir, "Code/run.sh"), SMALL_FILE_SIZE, random);
+                writeRandom(new File(serviceDir, "Code/service.jar"), SMALL_FILE_SIZE, random);
+            } else if (SERVICES_30.equals(shape)) {
+                for (int j = 0; j < BINARIES_PER_SERVICE; j++) {
+                    writeRandom(new File(serviceDir, "Code/lib/lib" + j + ".jar"), BINARY_SIZE, random);
+                }
+            } else if (SPARSE.equals(shape)) {
+                writeRandom(new File(serviceDir, "Code/run.sh"), SMALL_FILE_SIZE, random);
+                writeSparse(new File(serviceDir, "Code/image.tar"), sparseGigabytes * GIGABYTE);
+            } else {
+                throw new IllegalArgumentException("Unknown package shape " + shape);
+            }
+        }
+        write(new File(pkg, APPLICATION_MANIFEST), applicationManifest(names));
+        return pkg;
+    }
+
+    static String applicationManifest(int services) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < services; i++) {
+            names.add("Service" + i + "Pkg");
+        }
+        return applicationManifest(names);
+    }
+
+    private static String applicationManifest(List<String> serviceNames) {
+        StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n")
+                .append("<ApplicationManifest xmlns=\"http://schemas.microsoft.com/2011/01/fabric\" ")
+                .append("ApplicationTypeName=\"").append(APPLICATION_TYPE).append("\" ")
+                .append("ApplicationTypeVersion=\"").append(APPLICATION_VERSION).append("\">\n")
+                .append("  <Parameters>\n");
+        for (String name : serviceNames) {
+            xml.append("    <Parameter Name=\"").append(name).append("_InstanceCount\" DefaultValue=\"-1\" />\n");
+        }
+        xml.append("  </Parameters>\n");
+        for (String name : serviceNames) {
+            xml.append("  <ServiceManifestImport>\n")
+                    .append("    <ServiceManifestRef ServiceManifestName=\"").append(name)
+                    .append("\" ServiceManifestVersion=\"1.0.0\" />\n")
+                    .append("    <ConfigOverrides />\n")
+                    .append("  </ServiceManifestImport>\n");
+        }
+        xml.append("  <DefaultServices>\n");
+        for (String name : serviceNames) {
+            xml.append("    <Service Name=\"").append(name).append("\">\n")
+                    .append("      <StatelessService ServiceTypeName=\"").append(name)
+                    .append("Type\" InstanceCount=\"[").append(name).append("_InstanceCount]\">\n")
+                    .append("        <SingletonPartition />\n")
+                    .append("      </StatelessService>\n")
+                    .append("    </Service>\n");
+        }
+        xml.append("  </DefaultServices>\n")
+                .append("</ApplicationManifest>\n");
+        return xml.toString();
+    }
+
+    static String serviceManifest(String name) {
+        return "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+                + "<ServiceManifest xmlns=\"http://schemas.microsoft.com/2011/01/fabric\" Name=\"" + name
+                + "\" Version=\"1.0.0\">\n"
+                + "  <ServiceTypes>\n"
+                + "    <StatelessServiceType ServiceTypeName=\"" + name + "Type\" UseImplicitHost=\"true\" />\n"
+                + "  </ServiceTypes>\n"
+                + "  <CodePackage Name=\"Code\" Version=\"1.0.0\">\n"
+                + "    <EntryPoint>\n"
+                + "      <ExeHost>\n"
+                + "        <Program>run.sh</Program>\n"
+                + "      </ExeHost>\n"
+                + "    </EntryPoint>\n"
+                + "  </CodePackage>\n"
+                + "  <ConfigPackage Name=\"Config\" Version=\"1.0.0\" />\n"
+                + "  <Resources>\n"
+                + "    <Endpoints>\n"
+                + "      <Endpoint Name=\"ServiceEndpoint\" Protocol=\"http\" Port=\"8080\" />\n"
+                + "    </Endpoints>\n"
+                + "  </Resources>\n"
+                + "</ServiceManifest>\n";
+    }
+
+    /**
+     * The properties of a cluster resource as returned by ARM, deserialized to maps and lists.
+     */
+    static Map<String, Object> clusterProperties() {
+        Map<String, Object> certificate = new LinkedHashMap<>();
+        certificate.put("thumbprint", "0123456789ABCDEF0123456789ABCDEF01234567");
+        certificate.put("x509StoreName", "My");
+
+        Map<String, Object> client = new LinkedHashMap<>();
+        client.put("isAdmin", true);
+        client.put("certificateThumbprint", "76543210FEDCBA9876543210FEDCBA9876543210");
+
+        Map<String, Object> nodeType = new LinkedHashMap<>();
+        nodeType.put("name", "nt1vm");
+        nodeType.put("isPrimary", true);
+        nodeType.put("vmInstanceCount", 5);
+        nodeType.put("clientConnectionEndpointPort", 19000);
+        nodeType.put("httpGatewayEndpointPort", 19080);
+        nodeType.put("durabilityLevel", "Bronze");
+
+        Map<String, Object> upgradeDescription = new LinkedHashMap<>();
+        upgradeDescription.put("forceRestart", false);
+        upgradeDescription.put("upgradeTimeout", "12:00:00");
+
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("provisioningState", "Succeeded");
+        properties.put("clusterId", "9f1c3c4a-0000-0000-0000-000000000000");
+        properties.put("clusterCodeVersion", "6.0.232.9494");
+        properties.put("clusterState", "Ready");
+        properties.put("managementEndpoint", "https://mycluster.westus.cloudapp.azure.com:19080");
+        properties.put("clusterEndpoint", "https://westus.servicefabric.azure.com/runtime/clusters/9f1c3c4a");
+        properties.put("certificate", certificate);
+        properties.put("clientCertificateThumbprints", Arrays.asList(client));
+        properties.put("reliabilityLevel", "Silver");
+        properties.put("upgradeMode", "Automatic");
+        properties.put("upgradeDescription", upgradeDescription);
+        properties.put("nodeTypes", Arrays.asList(nodeType));
+        return properties;
+    }
+
+    static File createTempDirectory(String prefix) throws IOException {
+        return Files.createTempDirectory(prefix).toFile();
+    }
+
+    static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (!file.delete() && file.exists()) {
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * Creates a sparse file: the disk blocks are only allocated for the few bytes written at both ends.
+     */
+    static void writeSparse(File file, long size) throws IOException {
+        mkdirs(file.getParentFile());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(size);
+            raf.write(1);
+            raf.seek(size - 1);
+            raf.write(1);
+        }
+    }
+
+    private static void write(File file, String content) throws IOException {
+        mkdirs(file.getParentFile());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeRandom(File file, int size, Random random) throws IOException {
+        mkdirs(file.getParentFile());
+        byte[] content = new byte[size];
+        random.nextBytes(content);
+        Files.write(file.toPath(), content);
+    }
+
+    private static void mkdirs(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create directory " + dir);
+        }
+    }
+
+    private Fixtures() {
+        // hide constructor
+    }
+}
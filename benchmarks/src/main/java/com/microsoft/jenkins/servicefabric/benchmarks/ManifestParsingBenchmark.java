@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.benchmarks;
+
+import com.microsoft.jenkins.servicefabric.manifest.ApplicationManifest;
+import com.microsoft.jenkins.servicefabric.manifest.ManifestParser;
+import com.microsoft.jenkins.servicefabric.manifest.ServiceManifest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the application and service manifests, with the streaming parser of the plugin and with a DOM parser
+ * extracting the same elements.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManifestParsingBenchmark {
+    private static final String FABRIC_NAMESPACE = "http://schemas.microsoft.com/2011/01/fabric";
+
+    @Param({"1", "30", "200"})
+    private int services;
+
+    private byte[] applicationManifest;
+    private byte[] serviceManifest;
+    private DocumentBuilderFactory domFactory;
+
+    @Setup
+    public void setUp() throws Exception {
+        applicationManifest = Fixtures.applicationManifest(services).getBytes(StandardCharsets.UTF_8);
+        serviceManifest = Fixtures.serviceManifest("Service0Pkg").getBytes(StandardCharsets.UTF_8);
+        domFactory = DocumentBuilderFactory.newInstance();
+        domFactory.setNamespaceAware(true);
+    }
+
+    @Benchmark
+    public ApplicationManifest applicationManifestStreaming() throws Exception {
+        return ManifestParser.parseApplicationManifest(new ByteArrayInputStream(applicationManifest));
+    }
+
+    @Benchmark
+    public Object applicationManifestDom() throws Exception {
+        Document document = domFactory.newDocumentBuilder().parse(new ByteArrayInputStream(applicationManifest));
+        Element root = document.getDocumentElement();
+        Map<String, String> parameters = new LinkedHashMap<>();
+        NodeList parameterNodes = root.getElementsByTagNameNS(FABRIC_NAMESPACE, "Parameter");
+        for (int i = 0; i < parameterNodes.getLength(); i++) {
+            Element parameter = (Element) parameterNodes.item(i);
+            parameters.put(parameter.getAttribute("Name"), parameter.getAttribute("DefaultValue"));
+        }
+        List<String> imports = new ArrayList<>();
+        NodeList refs = root.getElementsByTagNameNS(FABRIC_NAMESPACE, "ServiceManifestRef");
+        for (int i = 0; i < refs.getLength(); i++) {
+            Element ref = (Element) refs.item(i);
+            imports.add(ref.getAttribute("ServiceManifestName") + " " + ref.getAttribute("ServiceManifestVersion"));
+        }
+        return new Object[]{
+                root.getAttribute("ApplicationTypeName"), root.getAttribute("ApplicationTypeVersion"),
+                parameters, imports,
+        };
+    }
+
+    @Benchmark
+    public ServiceManifest serviceManifestStreaming() throws Exception {
+        return ManifestParser.parseServiceManifest(new ByteArrayInputStream(serviceManifest));
+    }
+
+    @Benchmark
+    public Object serviceManifestDom() throws Exception {
+        Document document = domFactory.newDocumentBuilder().parse(new ByteArrayInputStream(serviceManifest));
+        Element root = document.getDocumentElement();
+        List<String> packages = new ArrayList<>();
+        for (String element : new String[]{"CodePackage", "ConfigPackage", "DataPackage"}) {
+            NodeList nodes = root.getElementsByTagNameNS(FABRIC_NAMESPACE, element);
+            for (int i = 0; i < nodes.getLength(); i++) {
+                Element node = (Element) nodes.item(i);
+                packages.add(node.getAttribute("Name") + " " + node.getAttribute("Version"));
+            }
+        }
+        return new Object[]{root.getAttribute("Name"), root.getAttribute("Version"), packages};
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.benchmarks;
+
+import com.microsoft.jenkins.servicefabric.upload.PackageDigest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashing of the application packages, done before each upload and to fingerprint the deployed packages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class PackageDigestBenchmark {
+    @Param({Fixtures.SMALL, Fixtures.SERVICES_30, Fixtures.SPARSE})
+    private String shape;
+
+    @Param("2")
+    private int sparseGigabytes;
+
+    private File root;
+    private File pkg;
+    private PackageDigest digest;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = Fixtures.createTempDirectory("sf-digest");
+        pkg = Fixtures.createPackage(root, shape, sparseGigabytes);
+        digest = PackageDigest.compute(pkg);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Fixtures.deleteRecursively(root);
+    }
+
+    @Benchmark
+    public PackageDigest compute() throws IOException {
+        return PackageDigest.compute(pkg);
+    }
+
+    @Benchmark
+    public String fingerprint() {
+        return digest.getFingerprint();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.benchmarks;
+
+import com.microsoft.jenkins.servicefabric.ClusterProperties;
+import com.microsoft.jenkins.servicefabric.util.DeployHelper;
+import com.microsoft.jenkins.servicefabric.util.PropertyPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the ARM properties of a cluster: the dotted path parsed on each read, compiled once, and the typed model
+ * read once per cluster load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertyResolutionBenchmark {
+    private static final String PATH = "certificate.thumbprint";
+    private static final PropertyPath COMPILED = PropertyPath.compile(PATH);
+
+    private Map<String, Object> properties;
+
+    @Setup
+    public void setUp() {
+        properties = Fixtures.clusterProperties();
+    }
+
+    /**
+     * The path is split on each read.
+     */
+    @Benchmark
+    public String getProperty() {
+        return DeployHelper.getProperty(properties, PATH, String.class);
+    }
+
+    @Benchmark
+    public String compiledPath() {
+        return COMPILED.get(properties, String.class);
+    }
+
+    @Benchmark
+    public String compiledPathOptional() {
+        return COMPILED.find(properties, String.class);
+    }
+
+    /**
+     * Done once per {@code ServiceFabricCluster.load}.
+     */
+    @Benchmark
+    public ClusterProperties typedModel() {
+        return ClusterProperties.of(properties);
+    }
+}
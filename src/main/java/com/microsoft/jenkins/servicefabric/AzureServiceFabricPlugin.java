@@ -9,15 +9,20 @@ package com.microsoft.jenkins.servicefabric;
 import com.microsoft.jenkins.azurecommons.telemetry.AppInsightsClientFactory;
 import com.microsoft.jenkins.azurecommons.telemetry.AzureHttpRecorder;
 import com.microsoft.jenkins.servicefabric.util.Constants;
+import com.microsoft.jenkins.servicefabric.util.TelemetryQueue;
 import hudson.Plugin;
 import okhttp3.Interceptor;
 import okhttp3.Request;
 import okhttp3.Response;
 
 import java.io.IOException;
+import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * The telemetry is sent in the background through the {@link TelemetryQueue}.
+ */
 public class AzureServiceFabricPlugin extends Plugin {
     public static void sendEvent(String action, String... properties) {
         final Map<String, String> props = new HashMap<>();
@@ -27,9 +32,14 @@ public class AzureServiceFabricPlugin extends Plugin {
         sendEvent(Constants.AI_SERVICE_FABRIC, action, props);
     }
 
-    public static void sendEvent(String item, String action, Map<String, String> properties) {
-        AppInsightsClientFactory.getInstance(AzureServiceFabricPlugin.class)
-                .sendEvent(item, action, properties, false);
+    public static void sendEvent(final String item, final String action, final Map<String, String> properties) {
+        TelemetryQueue.getInstance().offer(new Runnable() {
+            @Override
+            public void run() {
+                AppInsightsClientFactory.getInstance(AzureServiceFabricPlugin.class)
+                        .sendEvent(item, action, properties, false);
+            }
+        });
     }
 
     public static class AzureTelemetryInterceptor implements Interceptor {
@@ -37,15 +47,37 @@ public class AzureServiceFabricPlugin extends Plugin {
         public Response intercept(Chain chain) throws IOException {
             final Request request = chain.request();
             final Response response = chain.proceed(request);
-            new AzureHttpRecorder(AppInsightsClientFactory.getInstance(AzureServiceFabricPlugin.class))
-                    .record(new AzureHttpRecorder.HttpRecordable()
-                            .withHttpCode(response.code())
-                            .withHttpMessage(response.message())
-                            .withHttpMethod(request.method())
-                            .withRequestUri(request.url().uri())
-                            .withRequestId(response.header("x-ms-request-id"))
+            // only capture the values, the response is consumed by the caller
+            final int code = response.code();
+            final String message = response.message();
+            final String method = request.method();
+            final URI uri = request.url().uri();
+            final String requestId = response.header("x-ms-request-id");
+            TelemetryQueue.getInstance().offer(new Runnable() {
+                @Override
+                public void run() {
+                    HttpRecorderHolder.RECORDER.record(new AzureHttpRecorder.HttpRecordable()
+                            .withHttpCode(code)
+                            .withHttpMessage(message)
+                            .withHttpMethod(method)
+                            .withRequestUri(uri)
+                            .withRequestId(requestId)
                     );
+                }
+            });
             return response;
         }
     }
+
+    /**
+     * The recorder is only used from the telemetry sender thread, and created on first use.
+     */
+    private static final class HttpRecorderHolder {
+        private static final AzureHttpRecorder RECORDER =
+                new AzureHttpRecorder(AppInsightsClientFactory.getInstance(AzureServiceFabricPlugin.class));
+
+        private HttpRecorderHolder() {
+            // hide constructor
+        }
+    }
 }
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric;
+
+import com.microsoft.jenkins.servicefabric.util.PropertyPath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The properties of an Azure Service Fabric cluster resource used by the plugin, read once from the untyped ARM
+ * resource properties.
+ */
+public final class ClusterProperties {
+    private static final PropertyPath MANAGEMENT_ENDPOINT = PropertyPath.compile("managementEndpoint");
+    private static final PropertyPath CLUSTER_STATE = PropertyPath.compile("clusterState");
+    private static final PropertyPath RELIABILITY_LEVEL = PropertyPath.compile("reliabilityLevel");
+    private static final PropertyPath CERTIFICATE_THUMBPRINT = PropertyPath.compile("certificate.thumbprint");
+    private static final PropertyPath CERTIFICATE_THUMBPRINT_SECONDARY =
+            PropertyPath.compile("certificate.thumbprintSecondary");
+    private static final PropertyPath CLIENT_CERTIFICATE_THUMBPRINTS =
+            PropertyPath.compile("clientCertificateThumbprints");
+    private static final PropertyPath CLIENT_CERTIFICATE_THUMBPRINT = PropertyPath.compile("certificateThumbprint");
+    private static final PropertyPath UPGRADE_MODE = PropertyPath.compile("upgradeMode");
+    private static final PropertyPath CLUSTER_CODE_VERSION = PropertyPath.compile("clusterCodeVersion");
+    private static final PropertyPath NODE_TYPES = PropertyPath.compile("nodeTypes");
+    private static final PropertyPath NODE_TYPE_NAME = PropertyPath.compile("name");
+    private static final PropertyPath NODE_TYPE_PRIMARY = PropertyPath.compile("isPrimary");
+    private static final PropertyPath NODE_TYPE_INSTANCE_COUNT = PropertyPath.compile("vmInstanceCount");
+    private static final PropertyPath NODE_TYPE_CLIENT_PORT = PropertyPath.compile("clientConnectionEndpointPort");
+    private static final PropertyPath NODE_TYPE_HTTP_PORT = PropertyPath.compile("httpGatewayEndpointPort");
+
+    private final String managementEndpoint;
+    private final String clusterState;
+    private final String reliabilityLevel;
+    private final String certificateThumbprint;
+    private final String certificateThumbprintSecondary;
+    private final List<String> clientCertificateThumbprints;
+    private final String upgradeMode;
+    private final String clusterCodeVersion;
+    private final List<NodeType> nodeTypes;
+
+    private ClusterProperties(Object properties) {
+        this.managementEndpoint = MANAGEMENT_ENDPOINT.get(properties, String.class);
+        this.clusterState = CLUSTER_STATE.find(properties, String.class);
+        this.reliabilityLevel = RELIABILITY_LEVEL.find(properties, String.class);
+        this.certificateThumbprint = CERTIFICATE_THUMBPRINT.find(properties, String.class);
+        this.certificateThumbprintSecondary = CERTIFICATE_THUMBPRINT_SECONDARY.find(properties, String.class);
+        this.upgradeMode = UPGRADE_MODE.find(properties, String.class);
+        this.clusterCodeVersion = CLUSTER_CODE_VERSION.find(properties, String.class);
+
+        List<String> thumbprints = new ArrayList<>();
+        for (Object client : listOf(CLIENT_CERTIFICATE_THUMBPRINTS.find(properties, List.class))) {
+            String thumbprint = CLIENT_CERTIFICATE_THUMBPRINT.find(client, String.class);
+            if (thumbprint != null) {
+                thumbprints.add(thumbprint);
+            }
+        }
+        this.clientCertificateThumbprints = Collections.unmodifiableList(thumbprints);
+
+        List<NodeType> types = new ArrayList<>();
+        for (Object nodeType : listOf(NODE_TYPES.find(properties, List.class))) {
+            if (nodeType instanceof Map<?, ?>) {
+                types.add(new NodeType(nodeType));
+            }
+        }
+        this.nodeTypes = Collections.unmodifiableList(types);
+    }
+
+    /**
+     * Reads the properties of a cluster resource.
+     *
+     * @throws IllegalArgumentException if the resource properties are not a map.
+     */
+    public static ClusterProperties of(Object properties) {
+        return new ClusterProperties(properties);
+    }
+
+    private static List<?> listOf(List<?> list) {
+        return list == null ? Collections.emptyList() : list;
+    }
+
+    private static int intOf(Number number) {
+        return number == null ? 0 : number.intValue();
+    }
+
+    public String getManagementEndpoint() {
+        return managementEndpoint;
+    }
+
+    /**
+     * @return the state of the cluster, e.g., {@code Ready} or {@code UpgradeServiceUnreachable}.
+     */
+    public String getClusterState() {
+        return clusterState;
+    }
+
+    /**
+     * @return the reliability level of the system services, e.g., {@code Silver}.
+     */
+    public String getReliabilityLevel() {
+        return reliabilityLevel;
+    }
+
+    /**
+     * @return the thumbprint of the cluster certificate, or {@code null} if the cluster is not secured.
+     */
+    public String getCertificateThumbprint() {
+        return certificateThumbprint;
+    }
+
+    public String getCertificateThumbprintSecondary() {
+        return certificateThumbprintSecondary;
+    }
+
+    /**
+     * @return the thumbprints of the client certificates allowed to manage the cluster.
+     */
+    public List<String> getClientCertificateThumbprints() {
+        return clientCertificateThumbprints;
+    }
+
+    /**
+     * @return how the Service Fabric runtime of the cluster is upgraded, {@code Automatic} or {@code Manual}.
+     */
+    public String getUpgradeMode() {
+        return upgradeMode;
+    }
+
+    public String getClusterCodeVersion() {
+        return clusterCodeVersion;
+    }
+
+    public List<NodeType> getNodeTypes() {
+        return nodeTypes;
+    }
+
+    /**
+     * @return the primary node type, or {@code null} if there is none.
+     */
+    public NodeType getPrimaryNodeType() {
+        for (NodeType nodeType : nodeTypes) {
+            if (nodeType.isPrimary()) {
+                return nodeType;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A node type of the cluster.
+     */
+    public static final class NodeType {
+        private final String name;
+        private final boolean primary;
+        private final int instanceCount;
+        private final int clientConnectionEndpointPort;
+        private final int httpGatewayEndpointPort;
+
+        private NodeType(Object properties) {
+            this.name = NODE_TYPE_NAME.find(properties, String.class);
+            this.primary = Boolean.TRUE.equals(NODE_TYPE_PRIMARY.find(properties, Boolean.class));
+            this.instanceCount = intOf(NODE_TYPE_INSTANCE_COUNT.find(properties, Number.class));
+            this.clientConnectionEndpointPort = intOf(NODE_TYPE_CLIENT_PORT.find(properties, Number.class));
+            this.httpGatewayEndpointPort = intOf(NODE_TYPE_HTTP_PORT.find(properties, Number.class));
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isPrimary() {
+            return primary;
+        }
+
+        public int getInstanceCount() {
+            return instanceCount;
+        }
+
+        public int getClientConnectionEndpointPort() {
+            return clientConnectionEndpointPort;
+        }
+
+        /**
+         * @return the port of the management endpoint on the nodes of this type.
+         */
+        public int getHttpGatewayEndpointPort() {
+            return httpGatewayEndpointPort;
+        }
+    }
+}
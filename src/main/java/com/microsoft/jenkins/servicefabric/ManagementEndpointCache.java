@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Master wide cache of the management endpoints of the Azure Service Fabric clusters, keyed by subscription,
+ * resource group and cluster name.
+ * <p>
+ * The management endpoint of a cluster hardly ever changes, so the ARM lookup is only done when the cached endpoint
+ * expired, or when the caller asks for a refresh because the cached endpoint could not be reached, or the
+ * configuration of the cluster is verified. Concurrent lookups of the same cluster are collapsed into one ARM call.
+ * The expired endpoints are removed as other endpoints are looked up.
+ */
+public final class ManagementEndpointCache {
+    static final long DEFAULT_TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private static final ManagementEndpointCache INSTANCE = new ManagementEndpointCache(DEFAULT_TTL_MILLIS);
+
+    /**
+     * Looks up the management endpoint of a cluster from ARM.
+     */
+    public interface Loader {
+        String load() throws IOException;
+    }
+
+    private final long ttlMillis;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    ManagementEndpointCache(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    public static ManagementEndpointCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Azure resource names are case insensitive.
+     */
+    public static String key(String subscriptionId, String resourceGroup, String name) {
+        return (subscriptionId + "/" + resourceGroup + "/" + name).toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * @return the cached management endpoint, or {@code null} if it is not cached or expired.
+     */
+    public String getIfPresent(String key) {
+        Entry entry = entries.get(key);
+        return entry == null ? null : entry.getIfValid(System.currentTimeMillis());
+    }
+
+    /**
+     * Gets the cached management endpoint, loading it if it is not cached or expired.
+     */
+    public String get(String key, Loader loader) throws IOException {
+        Entry entry = entryOf(key);
+        String endpoint = entry.getIfValid(System.currentTimeMillis());
+        if (endpoint != null) {
+            return endpoint;
+        }
+        synchronized (entry) {
+            // another build may have loaded it while this one was waiting
+            endpoint = entry.getIfValid(System.currentTimeMillis());
+            if (endpoint != null) {
+                return endpoint;
+            }
+            return load(entry, loader);
+        }
+    }
+
+    /**
+     * Loads the management endpoint again, regardless of the cached one.
+     */
+    public String refresh(String key, Loader loader) throws IOException {
+        Entry entry = entryOf(key);
+        synchronized (entry) {
+            return load(entry, loader);
+        }
+    }
+
+    private Entry entryOf(String key) {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().isExpired(now)) {
+                it.remove();
+            }
+        }
+
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry();
+            Entry existing = entries.putIfAbsent(key, entry);
+            if (existing != null) {
+                entry = existing;
+            }
+        }
+        return entry;
+    }
+
+    private String load(Entry entry, Loader loader) throws IOException {
+        String endpoint = loader.load();
+        entry.set(endpoint, System.currentTimeMillis() + ttlMillis);
+        return endpoint;
+    }
+
+    /**
+     * Holds the endpoint of one cluster, and serves as the lock that collapses the concurrent lookups.
+     */
+    private static final class Entry {
+        private volatile Value value;
+
+        String getIfValid(long now) {
+            Value current = value;
+            return current != null && now < current.expiresAt ? current.endpoint : null;
+        }
+
+        /**
+         * @return whether the endpoint was loaded and expired since; an entry still loading is kept.
+         */
+        boolean isExpired(long now) {
+            Value current = value;
+            return current != null && now >= current.expiresAt;
+        }
+
+        void set(String endpoint, long expiresAt) {
+            this.value = new Value(endpoint, expiresAt);
+        }
+    }
+
+    private static final class Value {
+        private final String endpoint;
+        private final long expiresAt;
+
+        Value(String endpoint, long expiresAt) {
+            this.endpoint = endpoint;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric;
+
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+import javax.annotation.Nonnull;
+import java.io.Serializable;
+
+/**
+ * An application to be deployed by the {@link ServiceFabricPublishStep}.
+ */
+public class ServiceFabricApplication extends AbstractDescribableImpl<ServiceFabricApplication>
+        implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String applicationName;
+    private final String applicationType;
+    private final String manifestPath;
+
+    @DataBoundConstructor
+    public ServiceFabricApplication(String applicationName, String applicationType, String manifestPath) {
+        this.applicationName = applicationName;
+        this.applicationType = applicationType;
+        this.manifestPath = manifestPath;
+    }
+
+    public String getApplicationName() {
+        return applicationName;
+    }
+
+    public String getApplicationType() {
+        return applicationType;
+    }
+
+    public String getManifestPath() {
+        return manifestPath;
+    }
+
+    /**
+     * @return the error message if the configuration is incomplete, {@code null} otherwise.
+     */
+    public String verify() {
+        if (StringUtils.isBlank(applicationName)) {
+            return "Application name is not specified.";
+        }
+        String result = ServiceFabricPublishStep.DescriptorImpl.checkApplicationName(applicationName);
+        if (StringUtils.isNotBlank(result)) {
+            return result;
+        }
+        if (StringUtils.isBlank(applicationType)) {
+            return "Application type is not specified for " + applicationName + ".";
+        }
+        if (StringUtils.isBlank(manifestPath)) {
+            return "Application manifest is not specified for " + applicationName + ".";
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return applicationName;
+    }
+
+    @Extension
+    public static final class DescriptorImpl extends Descriptor<ServiceFabricApplication> {
+        @Nonnull
+        @Override
+        public String getDisplayName() {
+            return "Service Fabric Application";
+        }
+
+        public FormValidation doCheckApplicationName(@QueryParameter String value) {
+            String error = ServiceFabricPublishStep.DescriptorImpl.checkApplicationName(value);
+            if (StringUtils.isBlank(error)) {
+                return FormValidation.ok();
+            }
+            return FormValidation.error(error);
+        }
+
+        public FormValidation doVerify(@QueryParameter String applicationName,
+                                       @QueryParameter String applicationType,
+                                       @QueryParameter String manifestPath) {
+            String error = new ServiceFabricApplication(applicationName, applicationType, manifestPath).verify();
+            if (error != null) {
+                return FormValidation.error(error);
+            }
+            return FormValidation.ok("Successfully verified the configuration.");
+        }
+    }
+}
@@ -10,7 +10,6 @@ import com.microsoft.azure.management.Azure;
 import com.microsoft.azure.management.resources.GenericResource;
 import com.microsoft.azure.management.resources.fluentcore.arm.ResourceUtils;
 import com.microsoft.jenkins.servicefabric.util.Constants;
-import com.microsoft.jenkins.servicefabric.util.DeployHelper;
 
 /**
  * Manages Service Fabric cluster with Azure generic resource API.
@@ -22,7 +21,7 @@ public class ServiceFabricCluster {
     private final String resourceGroup;
     private final String name;
 
-    private Object properties;
+    private ClusterProperties properties;
     private boolean loaded;
 
     public ServiceFabricCluster(Azure azure, String resourceGroup, String name) {
@@ -45,7 +44,7 @@ public class ServiceFabricCluster {
                 "");
         GenericResource resource = azure.genericResources().getById(id);
         if (resource != null) {
-            this.properties = resource.properties();
+            this.properties = ClusterProperties.of(resource.properties());
         } else {
             throw new IllegalArgumentException(
                     String.format("Cannot find Service Fabric cluster %s in resource group %s",
@@ -62,9 +61,13 @@ public class ServiceFabricCluster {
         return name;
     }
 
-    public String getManagementEndpoint() {
+    public ClusterProperties getProperties() {
         load(false);
 
-        return DeployHelper.getProperty(properties, "managementEndpoint", String.class);
+        return properties;
+    }
+
+    public String getManagementEndpoint() {
+        return getProperties().getManagementEndpoint();
     }
 }
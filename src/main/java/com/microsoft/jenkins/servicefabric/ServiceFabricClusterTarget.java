@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric;
+
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+
+import javax.annotation.Nonnull;
+import java.io.Serializable;
+
+/**
+ * A cluster the {@link ServiceFabricPublishStep} deploys to, either by the management host directly, or by the
+ * resource group and name of the Azure Service Fabric cluster, resolved with the Azure credentials of the step.
+ */
+public class ServiceFabricClusterTarget extends AbstractDescribableImpl<ServiceFabricClusterTarget>
+        implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String managementHost;
+    private String resourceGroup;
+    private String serviceFabric;
+    private String clientKey;
+    private String clientCert;
+    private boolean canary;
+
+    @DataBoundConstructor
+    public ServiceFabricClusterTarget() {
+    }
+
+    public String getManagementHost() {
+        return managementHost;
+    }
+
+    @DataBoundSetter
+    public void setManagementHost(String managementHost) {
+        this.managementHost = managementHost;
+    }
+
+    public String getResourceGroup() {
+        return resourceGroup;
+    }
+
+    @DataBoundSetter
+    public void setResourceGroup(String resourceGroup) {
+        this.resourceGroup = resourceGroup;
+    }
+
+    public String getServiceFabric() {
+        return serviceFabric;
+    }
+
+    @DataBoundSetter
+    public void setServiceFabric(String serviceFabric) {
+        this.serviceFabric = serviceFabric;
+    }
+
+    /**
+     * @return the client key of this cluster, or {@code null} to use the one of the step.
+     */
+    public String getClientKey() {
+        return clientKey;
+    }
+
+    @DataBoundSetter
+    public void setClientKey(String clientKey) {
+        this.clientKey = clientKey;
+    }
+
+    /**
+     * @return the client certificate of this cluster, or {@code null} to use the one of the step.
+     */
+    public String getClientCert() {
+        return clientCert;
+    }
+
+    @DataBoundSetter
+    public void setClientCert(String clientCert) {
+        this.clientCert = clientCert;
+    }
+
+    /**
+     * @return whether the cluster is in the canary wave, which is deployed and must succeed before the rest.
+     */
+    public boolean isCanary() {
+        return canary;
+    }
+
+    @DataBoundSetter
+    public void setCanary(boolean canary) {
+        this.canary = canary;
+    }
+
+    /**
+     * @return whether the management endpoint has to be resolved from the Azure Service Fabric cluster resource.
+     */
+    public boolean isAzureCluster() {
+        return StringUtils.isBlank(managementHost);
+    }
+
+    /**
+     * @return the error message if the configuration is incomplete, {@code null} otherwise.
+     */
+    public String verify() {
+        if (isAzureCluster() && (StringUtils.isBlank(resourceGroup) || StringUtils.isBlank(serviceFabric))) {
+            return "Either the management host, or the resource group and the name of the Service Fabric cluster "
+                    + "must be specified for a target cluster.";
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return isAzureCluster() ? resourceGroup + "/" + serviceFabric : managementHost;
+    }
+
+    @Extension
+    public static final class DescriptorImpl extends Descriptor<ServiceFabricClusterTarget> {
+        @Nonnull
+        @Override
+        public String getDisplayName() {
+            return "Service Fabric Cluster";
+        }
+
+        public FormValidation doVerify(@QueryParameter String managementHost,
+                                       @QueryParameter String resourceGroup,
+                                       @QueryParameter String serviceFabric) {
+            ServiceFabricClusterTarget target = new ServiceFabricClusterTarget();
+            target.setManagementHost(managementHost);
+            target.setResourceGroup(resourceGroup);
+            target.setServiceFabric(serviceFabric);
+            String error = target.verify();
+            if (error != null) {
+                return FormValidation.error(error);
+            }
+            return FormValidation.ok("Successfully verified the configuration.");
+        }
+    }
+}
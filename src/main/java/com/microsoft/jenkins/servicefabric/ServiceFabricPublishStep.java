@@ -8,36 +8,36 @@ package com.microsoft.jenkins.servicefabric;
 
 import com.cloudbees.plugins.credentials.common.StandardListBoxModel;
 import com.google.common.collect.ImmutableSet;
-import com.microsoft.azure.PagedList;
 import com.microsoft.azure.management.Azure;
-import com.microsoft.azure.management.resources.GenericResource;
-import com.microsoft.azure.management.resources.ResourceGroup;
 import com.microsoft.azure.util.AzureBaseCredentials;
+import com.microsoft.jenkins.azurecommons.core.credentials.TokenCredentialData;
 import com.microsoft.jenkins.azurecommons.telemetry.AppInsightsUtils;
-import com.microsoft.jenkins.servicefabric.command.SFCommandBuilder;
+import com.microsoft.jenkins.servicefabric.command.ApplicationDeployment;
+import com.microsoft.jenkins.servicefabric.command.DeployOptions;
+import com.microsoft.jenkins.servicefabric.command.DeployResult;
+import com.microsoft.jenkins.servicefabric.command.SFDeployer;
+import com.microsoft.jenkins.servicefabric.metrics.DeployMetricsAction;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricClient;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricEndpoint;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricException;
 import com.microsoft.jenkins.servicefabric.util.AzureHelper;
+import com.microsoft.jenkins.servicefabric.util.AzureResourceCache;
 import com.microsoft.jenkins.servicefabric.util.Constants;
 import hudson.AbortException;
-import hudson.EnvVars;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
-import hudson.model.AbstractBuild;
 import hudson.model.Item;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.security.ACL;
-import hudson.tasks.Shell;
 import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
 import org.apache.commons.lang.StringUtils;
-import org.jenkinsci.plugins.durabletask.BourneShellScript;
-import org.jenkinsci.plugins.durabletask.Controller;
 import org.jenkinsci.plugins.workflow.steps.Step;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
 import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
 import org.jenkinsci.plugins.workflow.steps.StepExecution;
-import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
@@ -49,7 +49,11 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
+import java.util.zip.Deflater;
 
 /**
  * The Step for the Service Fabric publish.
@@ -57,6 +61,8 @@ import java.util.Set;
 public class ServiceFabricPublishStep extends Step implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    public static final int DEFAULT_MAX_PARALLEL_DEPLOYMENTS = 4;
+
     private String configureType;
     private String azureCredentialsId;
     private String resourceGroup;
@@ -67,6 +73,17 @@ public class ServiceFabricPublishStep extends Step implements Serializable {
     private String manifestPath;
     private String clientKey;
     private String clientCert;
+    private List<ServiceFabricApplication> applications;
+    private List<ServiceFabricClusterTarget> clusters;
+    private int maxParallelDeployments = DEFAULT_MAX_PARALLEL_DEPLOYMENTS;
+    private boolean incrementalUpload;
+    private boolean skipUnchanged;
+    private boolean diffPackage;
+    private boolean skipSuperseded;
+    private int retainedVersions;
+    private int compressionLevel;
+    private int upgradeTimeoutMinutes;
+    private int upgradeDomainTimeoutMinutes;
 
     @DataBoundConstructor
     public ServiceFabricPublishStep() {
@@ -81,22 +98,7 @@ public class ServiceFabricPublishStep extends Step implements Serializable {
      */
     @Override
     public StepExecution start(StepContext context) {
-        return new SynchronousNonBlockingStepExecution<Void>(context) {
-            @SuppressWarnings("ConstantConditions")
-            @Override
-            protected Void run() throws Exception {
-                StepContext context = getContext();
-                FilePath workspace = context.get(FilePath.class);
-                workspace.mkdirs();
-
-                runStep(context,
-                        context.get(Run.class),
-                        workspace,
-                        context.get(Launcher.class),
-                        context.get(TaskListener.class));
-                return null;
-            }
-        };
+        return new ServiceFabricPublishStepExecution(this, context);
     }
 
     @Override
@@ -115,7 +117,12 @@ public class ServiceFabricPublishStep extends Step implements Serializable {
                 Constants.AI_RUN, buildId);
 
         try {
-            doRunStep(context, run, workspace, launcher, listener);
+            List<DeployResult> results = new SFDeployer(getMaxParallelDeployments(), run, listener)
+                    .deployInWaves(prepareDeployments(run, workspace, listener));
+            for (DeployResult result : results) {
+                recordResult(run, result);
+            }
+            checkResults(results);
             AzureServiceFabricPlugin.sendEvent("Deployed", Constants.AI_RUN, buildId);
         } catch (InterruptedException | IOException | RuntimeException e) {
             AzureServiceFabricPlugin.sendEvent("DeployFailed",
@@ -125,111 +132,259 @@ public class ServiceFabricPublishStep extends Step implements Serializable {
         }
     }
 
-    private void doRunStep(@Nullable StepContext context,
-                           @Nonnull Run<?, ?> run,
-                           @Nonnull FilePath workspace,
-                           @Nonnull Launcher launcher,
-                           @Nonnull TaskListener listener) throws InterruptedException, IOException {
+    /**
+     * Resolves the clusters and builds the deployments of all the applications to all the clusters.
+     *
+     * @return the deployments to the canary clusters, followed by the deployments to the other clusters.
+     */
+    List<List<ApplicationDeployment>> prepareDeployments(@Nonnull Run<?, ?> run,
+                                                         @Nonnull FilePath workspace,
+                                                         @Nonnull TaskListener listener)
+            throws InterruptedException, IOException {
         String buildId = AppInsightsUtils.hash(run.getUrl());
 
-        String cfgType = getConfigureType();
-        if (Constants.CONFIGURE_TYPE_SELECT.equals(cfgType)) {
-            Azure azure = AzureHelper.buildClient(run.getParent(), azureCredentialsId);
-            AzureServiceFabricPlugin.sendEvent("DeployAzure",
-                    Constants.AI_RUN, buildId,
-                    "Subscription", AppInsightsUtils.hash(azure.subscriptionId()),
-                    "ResourceGroup", AppInsightsUtils.hash(resourceGroup),
-                    "Cluster", AppInsightsUtils.hash(serviceFabric));
+        List<ServiceFabricApplication> applicationTargets = getApplicationTargets();
+        if (applicationTargets.isEmpty()) {
+            throw new AbortException("No application is configured to deploy.");
+        }
+        for (ServiceFabricApplication application : applicationTargets) {
+            String error = application.verify();
+            if (error != null) {
+                throw new AbortException(error);
+            }
+        }
+        List<ServiceFabricClusterTarget> clusterTargets = getClusterTargets();
+        if (clusterTargets.isEmpty()) {
+            throw new AbortException("No Service Fabric cluster is configured to deploy to.");
+        }
 
-            ServiceFabricCluster cluster = new ServiceFabricCluster(azure, resourceGroup, serviceFabric);
-            String managementEndpoint = cluster.getManagementEndpoint();
-            try {
-                URL url = new URL(managementEndpoint);
-                if ("https".equalsIgnoreCase(url.getProtocol())) {
-                    if (StringUtils.isBlank(clientKey) || StringUtils.isBlank(clientCert)) {
-                        throw new IllegalStateException("Certificate or Key is not specified for "
-                                + "secured Service Fabric management endpoint.");
-                    }
+        DeployOptions options = new DeployOptions();
+        options.setIncrementalUpload(incrementalUpload);
+        options.setSkipUnchanged(skipUnchanged);
+        options.setDiffPackage(diffPackage);
+        options.setSkipSuperseded(skipSuperseded);
+        options.setRetainedVersions(Math.max(0, retainedVersions));
+        options.setCompressionLevel(Math.max(0, Math.min(Deflater.BEST_COMPRESSION, compressionLevel)));
+        options.setUpgradeTimeoutMinutes(Math.max(0, upgradeTimeoutMinutes));
+        options.setUpgradeDomainTimeoutMinutes(Math.max(0, upgradeDomainTimeoutMinutes));
+
+        AzureClusterResolver azureResolver = null;
+        List<ApplicationDeployment> canaryWave = new ArrayList<>();
+        List<ApplicationDeployment> mainWave = new ArrayList<>();
+        for (ServiceFabricClusterTarget target : clusterTargets) {
+            String error = target.verify();
+            if (error != null) {
+                throw new AbortException(error);
+            }
+            String key = StringUtils.defaultIfBlank(target.getClientKey(), clientKey);
+            String cert = StringUtils.defaultIfBlank(target.getClientCert(), clientCert);
+            String keyPem = readPem(workspace, key);
+            String certPem = readPem(workspace, cert);
+
+            ServiceFabricEndpoint endpoint;
+            if (target.isAzureCluster()) {
+                if (azureResolver == null) {
+                    azureResolver = new AzureClusterResolver(run.getParent(), azureCredentialsId);
+                }
+                AzureServiceFabricPlugin.sendEvent("DeployAzure",
+                        Constants.AI_RUN, buildId,
+                        "Subscription", AppInsightsUtils.hash(azureResolver.getSubscriptionId()),
+                        "ResourceGroup", AppInsightsUtils.hash(target.getResourceGroup()),
+                        "Cluster", AppInsightsUtils.hash(target.getServiceFabric()));
+                String group = target.getResourceGroup();
+                String name = target.getServiceFabric();
+                long resolveStart = System.currentTimeMillis();
+                boolean cached = azureResolver.isCached(group, name);
+                endpoint = new ServiceFabricEndpoint(
+                        toManagementHost(azureResolver.getManagementEndpoint(group, name, false), key, cert),
+                        keyPem,
+                        certPem);
+                if (cached && !isReachable(endpoint)) {
+                    listener.getLogger().println(String.format(
+                            "Cached management endpoint %s is not reachable, looking it up again", endpoint));
+                    endpoint = new ServiceFabricEndpoint(
+                            toManagementHost(azureResolver.getManagementEndpoint(group, name, true), key, cert),
+                            keyPem,
+                            certPem);
                 }
-                managementHost = url.getHost();
-            } catch (MalformedURLException e) {
-                throw new AbortException("Cannot determine Service Fabric management endpoint. " + e.getMessage());
+                DeployMetricsAction.of(run).recordResolution(endpoint.getHost(),
+                        System.currentTimeMillis() - resolveStart);
+            } else {
+                AzureServiceFabricPlugin.sendEvent("DeployServiceFabric",
+                        Constants.AI_RUN, buildId,
+                        "Endpoint", target.getManagementHost());
+                endpoint = new ServiceFabricEndpoint(target.getManagementHost(), keyPem, certPem);
             }
-        } else {
-            AzureServiceFabricPlugin.sendEvent("DeployServiceFabric",
-                    Constants.AI_RUN, buildId,
-                    "Endpoint", managementHost);
-        }
-
-        SFCommandBuilder commandBuilder = new SFCommandBuilder(
-                workspace,
-                applicationName,
-                applicationType,
-                managementHost,
-                manifestPath,
-                clientKey,
-                clientCert);
-        String commandString = commandBuilder.buildCommands();
-
-        if (run instanceof AbstractBuild) {
-            // build configured with GUI goes here
-            Shell command = new Shell(commandString);
-
-            boolean result = command.perform((AbstractBuild) run, launcher, listener);
-            if (!result) {
-                throw new AbortException("Shell script execution failed");
+
+            List<ApplicationDeployment> wave = target.isCanary() ? canaryWave : mainWave;
+            for (ServiceFabricApplication application : applicationTargets) {
+                wave.add(new ApplicationDeployment(
+                        endpoint,
+                        workspace,
+                        application.getApplicationName(),
+                        application.getApplicationType(),
+                        application.getManifestPath(),
+                        options,
+                        listener));
             }
-        } else if (context != null) {
-            // pipeline build goes here
-            BourneShellScript shellScript = new BourneShellScript(commandString);
-            Controller controller = shellScript.launch(context.get(EnvVars.class), workspace, launcher, listener);
-
-            long startTime = System.currentTimeMillis();
-            // logic borrowed from org.jenkins-ci.plugins.workflow/workflow-durable-task-step
-            // org.jenkinsci.plugins.workflow.steps.durable_task.DurableTaskStep.Execution#check()
-            AbortException exp = null;
-            try {
-                final long minInterval = 250;
-                final long maxInterval = 5000;
-                final long timeoutMinutes = 5;
-                final long timeout = timeoutMinutes * 60 * 1000;
-                while (true) {
-                    long waitInterval;
-                    if (controller.writeLog(workspace, listener.getLogger())) {
-                        // got output, maybe we will get more
-                        waitInterval = minInterval;
-                    } else {
-                        waitInterval = maxInterval;
-                    }
+        }
 
-                    Integer exitCode = controller.exitStatus(workspace, launcher);
-                    if (exitCode == null) {
-                        if (System.currentTimeMillis() - startTime > timeout) {
-                            controller.stop(workspace, launcher);
-                            exp = new AbortException("Script execution timeout after " + timeoutMinutes + " minutes");
-                            break;
-                        }
-                        Thread.sleep(waitInterval);
-                    } else {
-                        controller.writeLog(workspace, listener.getLogger());
-                        if (exitCode != 0) {
-                            exp = new AbortException("script returned exit code " + exitCode);
-                        }
-                        break;
-                    }
+        return Arrays.asList(canaryWave, mainWave);
+    }
+
+    /**
+     * Records the timings of a deployment on the build, and in the master wide metrics.
+     */
+    static void recordResult(Run<?, ?> run, DeployResult result) {
+        DeployMetricsAction.of(run).add(result.getCluster(), result.getApplicationName(), result.getStatus().name(),
+                result.getTimings());
+    }
+
+    /**
+     * @throws AbortException if any of the deployments did not succeed, unless superseded by a newer build.
+     */
+    static void checkResults(List<DeployResult> results) throws AbortException {
+        int failed = 0;
+        for (DeployResult result : results) {
+            if (!result.isSuccess() && !result.isSuperseded()) {
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            if (results.size() == 1) {
+                throw new AbortException(results.get(0).getMessage());
+            }
+            throw new AbortException(String.format("%d of %d deployments did not succeed",
+                    failed, results.size()));
+        }
+    }
+
+    private static String toManagementHost(String managementEndpoint, String key, String cert)
+            throws AbortException {
+        try {
+            URL url = new URL(managementEndpoint);
+            if ("https".equalsIgnoreCase(url.getProtocol())) {
+                if (StringUtils.isBlank(key) || StringUtils.isBlank(cert)) {
+                    throw new IllegalStateException("Certificate or Key is not specified for "
+                            + "secured Service Fabric management endpoint.");
                 }
-            } finally {
-                controller.cleanup(workspace);
             }
-            if (exp != null) {
-                throw exp;
+            return url.getHost();
+        } catch (MalformedURLException e) {
+            throw new AbortException("Cannot determine Service Fabric management endpoint. " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return whether the management endpoint answers, even with an error.
+     */
+    private static boolean isReachable(ServiceFabricEndpoint endpoint) {
+        try {
+            ServiceFabricClient.forEndpoint(endpoint).getClusterVersion();
+            return true;
+        } catch (ServiceFabricException e) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Resolves the management endpoints of the Azure clusters through the {@link ManagementEndpointCache}, and
+     * only builds the Azure client if one of them has to be looked up from ARM.
+     */
+    private static final class AzureClusterResolver {
+        private final Item owner;
+        private final String credentialsId;
+        private final TokenCredentialData token;
+        private Azure azure;
+
+        AzureClusterResolver(Item owner, String credentialsId) {
+            this.owner = owner;
+            this.credentialsId = credentialsId;
+            this.token = AzureHelper.getToken(owner, credentialsId);
+        }
+
+        String getSubscriptionId() {
+            return token.getSubscriptionId();
+        }
+
+        boolean isCached(String group, String name) {
+            return ManagementEndpointCache.getInstance().getIfPresent(cacheKey(group, name)) != null;
+        }
+
+        String getManagementEndpoint(final String group, final String name, boolean refresh) throws IOException {
+            ManagementEndpointCache.Loader loader = new ManagementEndpointCache.Loader() {
+                @Override
+                public String load() {
+                    return new ServiceFabricCluster(getAzure(), group, name).getManagementEndpoint();
+                }
+            };
+            ManagementEndpointCache cache = ManagementEndpointCache.getInstance();
+            return refresh ? cache.refresh(cacheKey(group, name), loader) : cache.get(cacheKey(group, name), loader);
+        }
+
+        private String cacheKey(String group, String name) {
+            return ManagementEndpointCache.key(token.getSubscriptionId(), group, name);
+        }
+
+        private synchronized Azure getAzure() {
+            if (azure == null) {
+                azure = AzureHelper.buildClient(owner, credentialsId);
             }
-        } else {
-            // should not reach here, throw in case upstream logic changed in future.
-            throw new IllegalStateException("Unsupported run type " + run.getClass().getName());
+            return azure;
         }
     }
 
+    /**
+     * @return the clusters to deploy to: the cluster configured directly on the step, if any, followed by the
+     * ones in {@link #getClusters()}.
+     */
+    public List<ServiceFabricClusterTarget> getClusterTargets() {
+        List<ServiceFabricClusterTarget> targets = new ArrayList<>();
+        if (Constants.CONFIGURE_TYPE_FILL.equals(getConfigureType())) {
+            if (StringUtils.isNotBlank(managementHost)) {
+                ServiceFabricClusterTarget target = new ServiceFabricClusterTarget();
+                target.setManagementHost(managementHost);
+                targets.add(target);
+            }
+        } else if (StringUtils.isNotBlank(serviceFabric)) {
+            ServiceFabricClusterTarget target = new ServiceFabricClusterTarget();
+            target.setResourceGroup(resourceGroup);
+            target.setServiceFabric(serviceFabric);
+            targets.add(target);
+        }
+        if (clusters != null) {
+            targets.addAll(clusters);
+        }
+        return targets;
+    }
+
+    /**
+     * @return the applications to deploy: the application configured directly on the step, if any, followed by
+     * the ones in {@link #getApplications()}.
+     */
+    public List<ServiceFabricApplication> getApplicationTargets() {
+        List<ServiceFabricApplication> targets = new ArrayList<>();
+        if (StringUtils.isNotBlank(applicationName)) {
+            targets.add(new ServiceFabricApplication(applicationName, applicationType, manifestPath));
+        }
+        if (applications != null) {
+            targets.addAll(applications);
+        }
+        return targets;
+    }
+
+    /**
+     * Reads the PEM file of the client certificate or key from the node that holds the workspace.
+     */
+    private static String readPem(FilePath workspace, String path) throws IOException {
+        if (StringUtils.isBlank(path)) {
+            return null;
+        }
+        return workspace.child(path).readToString();
+    }
+
     public String getConfigureType() {
         if (StringUtils.isBlank(configureType)) {
             if (StringUtils.isBlank(managementHost)) {
@@ -327,6 +482,106 @@ public class ServiceFabricPublishStep extends Step implements Serializable {
         this.clientCert = clientCert;
     }
 
+    public List<ServiceFabricApplication> getApplications() {
+        return applications;
+    }
+
+    @DataBoundSetter
+    public void setApplications(List<ServiceFabricApplication> applications) {
+        this.applications = applications;
+    }
+
+    public List<ServiceFabricClusterTarget> getClusters() {
+        return clusters;
+    }
+
+    @DataBoundSetter
+    public void setClusters(List<ServiceFabricClusterTarget> clusters) {
+        this.clusters = clusters;
+    }
+
+    public int getMaxParallelDeployments() {
+        // configurations saved before the option was added are loaded with 0
+        return maxParallelDeployments > 0 ? maxParallelDeployments : DEFAULT_MAX_PARALLEL_DEPLOYMENTS;
+    }
+
+    @DataBoundSetter
+    public void setMaxParallelDeployments(int maxParallelDeployments) {
+        this.maxParallelDeployments = maxParallelDeployments;
+    }
+
+    public boolean isIncrementalUpload() {
+        return incrementalUpload;
+    }
+
+    @DataBoundSetter
+    public void setIncrementalUpload(boolean incrementalUpload) {
+        this.incrementalUpload = incrementalUpload;
+    }
+
+    public boolean isSkipUnchanged() {
+        return skipUnchanged;
+    }
+
+    @DataBoundSetter
+    public void setSkipUnchanged(boolean skipUnchanged) {
+        this.skipUnchanged = skipUnchanged;
+    }
+
+    public boolean isDiffPackage() {
+        return diffPackage;
+    }
+
+    @DataBoundSetter
+    public void setDiffPackage(boolean diffPackage) {
+        this.diffPackage = diffPackage;
+    }
+
+    public boolean isSkipSuperseded() {
+        return skipSuperseded;
+    }
+
+    @DataBoundSetter
+    public void setSkipSuperseded(boolean skipSuperseded) {
+        this.skipSuperseded = skipSuperseded;
+    }
+
+    public int getRetainedVersions() {
+        return retainedVersions;
+    }
+
+    @DataBoundSetter
+    public void setRetainedVersions(int retainedVersions) {
+        this.retainedVersions = retainedVersions;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    @DataBoundSetter
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    public int getUpgradeTimeoutMinutes() {
+        return upgradeTimeoutMinutes;
+    }
+
+    @DataBoundSetter
+    public void setUpgradeTimeoutMinutes(int upgradeTimeoutMinutes) {
+        this.upgradeTimeoutMinutes = upgradeTimeoutMinutes;
+    }
+
+    public int getUpgradeDomainTimeoutMinutes() {
+        return upgradeDomainTimeoutMinutes;
+    }
+
+    @DataBoundSetter
+    public void setUpgradeDomainTimeoutMinutes(int upgradeDomainTimeoutMinutes) {
+        this.upgradeDomainTimeoutMinutes = upgradeDomainTimeoutMinutes;
+    }
+
     @Extension // This indicates to Jenkins that this is an implementation of an extension point.
     public static final class DescriptorImpl extends StepDescriptor {
         public DescriptorImpl() {
@@ -367,9 +622,9 @@ public class ServiceFabricPublishStep extends Step implements Serializable {
             }
 
             try {
-                Azure azure = AzureHelper.buildClient(owner, azureCredentialsId);
-                for (ResourceGroup resourceGroup : azure.resourceGroups().list()) {
-                    model.add(resourceGroup.name());
+                for (String resourceGroup
+                        : AzureResourceCache.getInstance().getResourceGroups(owner, azureCredentialsId)) {
+                    model.add(resourceGroup);
                 }
             } catch (Exception ex) {
                 model.add("Failed to load resource groups: " + ex.getMessage(), "");
@@ -389,15 +644,9 @@ public class ServiceFabricPublishStep extends Step implements Serializable {
             }
 
             try {
-                Azure azure = AzureHelper.buildClient(owner, azureCredentialsId);
-                // TODO: Use ServiceFabric related API when the ServiceFabric Java SDK is GA
-                PagedList<GenericResource> resources =
-                        azure.genericResources().listByResourceGroup(resourceGroup);
-                for (GenericResource resource : resources) {
-                    if (Constants.SF_PROVIDER.equals(resource.resourceProviderNamespace())
-                            && Constants.SF_CLUSTER_TYPE.equals(resource.resourceType())) {
-                        model.add(resource.name());
-                    }
+                for (String cluster
+                        : AzureResourceCache.getInstance().getClusters(owner, azureCredentialsId, resourceGroup)) {
+                    model.add(cluster);
                 }
             } catch (Exception ex) {
                 model.add("** Failed to load Service Fabric clusters: " + ex.getMessage(), "");
@@ -417,7 +666,7 @@ public class ServiceFabricPublishStep extends Step implements Serializable {
             return FormValidation.error(error);
         }
 
-        private String checkApplicationName(String name) {
+        static String checkApplicationName(String name) {
             if (name.startsWith("fabric:/")) {
                 return null;
             } else {
@@ -452,6 +701,11 @@ public class ServiceFabricPublishStep extends Step implements Serializable {
             }
         }
 
+        /**
+         * Verifies the cluster and the application configured directly on the step. Either can be left blank when
+         * the additional clusters or applications are used, which are verified on their own, see
+         * {@link ServiceFabricClusterTarget#verify()} and {@link ServiceFabricApplication#verify()}.
+         */
         private String verifyConfiguration(Item owner,
                                            String configureType,
                                            String azureCredentialsId,
@@ -464,52 +718,44 @@ public class ServiceFabricPublishStep extends Step implements Serializable {
                                            String applicationType,
                                            String manifestPath) {
             if (Constants.CONFIGURE_TYPE_SELECT.equals(configureType)) {
-                if (StringUtils.isBlank(azureCredentialsId)) {
-                    return "Azure credential is not selected.";
-                }
-                if (StringUtils.isBlank(resourceGroup)) {
-                    return "Azure resource group is not selected.";
-                }
-                if (StringUtils.isBlank(serviceFabric)) {
-                    return "Service Fabric cluster is not selected.";
-                }
-                Azure azure = AzureHelper.buildClient(owner, azureCredentialsId);
-
-                ServiceFabricCluster cluster = new ServiceFabricCluster(azure, resourceGroup, serviceFabric);
-                String managementEndpoint = cluster.getManagementEndpoint();
-                try {
-                    URL url = new URL(managementEndpoint);
-                    if ("https".equalsIgnoreCase(url.getProtocol())) {
-                        if (StringUtils.isBlank(clientKey) || StringUtils.isBlank(clientCert)) {
-                            return "Certificate or Key is not specified for "
-                                    + "secured Service Fabric management endpoint.";
+                if (StringUtils.isNotBlank(resourceGroup) || StringUtils.isNotBlank(serviceFabric)) {
+                    if (StringUtils.isBlank(azureCredentialsId)) {
+                        return "Azure credential is not selected.";
+                    }
+                    ServiceFabricClusterTarget target = new ServiceFabricClusterTarget();
+                    target.setResourceGroup(resourceGroup);
+                    target.setServiceFabric(serviceFabric);
+                    String error = target.verify();
+                    if (error != null) {
+                        return error;
+                    }
+                    String managementEndpoint;
+                    try {
+                        // looked up again, so that the builds use the current endpoint from now on
+                        managementEndpoint = new AzureClusterResolver(owner, azureCredentialsId)
+                                .getManagementEndpoint(resourceGroup, serviceFabric, true);
+                    } catch (IOException e) {
+                        return "Cannot determine Service Fabric management endpoint: " + e.getMessage();
+                    }
+                    try {
+                        URL url = new URL(managementEndpoint);
+                        if ("https".equalsIgnoreCase(url.getProtocol())) {
+                            if (StringUtils.isBlank(clientKey) || StringUtils.isBlank(clientCert)) {
+                                return "Certificate or Key is not specified for "
+                                        + "secured Service Fabric management endpoint.";
+                            }
                         }
+                    } catch (MalformedURLException e) {
+                        return "Cannot determine Service Fabric management endpoint: " + e.getMessage();
                     }
-                } catch (MalformedURLException e) {
-                    return "Cannot determine Service Fabric management endpoint: " + e.getMessage();
-                }
-            } else {
-                if (StringUtils.isBlank(managementHost)) {
-                    return "Service Fabric management host is not specified.";
                 }
             }
 
-            if (StringUtils.isBlank(applicationName)) {
-                return "Application name is not specified.";
+            if (StringUtils.isNotBlank(applicationName)
+                    || StringUtils.isNotBlank(applicationType)
+                    || StringUtils.isNotBlank(manifestPath)) {
+                return new ServiceFabricApplication(applicationName, applicationType, manifestPath).verify();
             }
-            String result = checkApplicationName(applicationName);
-            if (StringUtils.isNotBlank(result)) {
-                return result;
-            }
-
-            if (StringUtils.isBlank(applicationType)) {
-                return "Application type is not specified.";
-            }
-
-            if (StringUtils.isBlank(manifestPath)) {
-                return "Application manifest is not specified.";
-            }
-
             return null;
         }
     }
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric;
+
+import com.microsoft.jenkins.azurecommons.telemetry.AppInsightsUtils;
+import com.microsoft.jenkins.servicefabric.command.ApplicationDeployment;
+import com.microsoft.jenkins.servicefabric.command.DeployResult;
+import com.microsoft.jenkins.servicefabric.command.SFDeployer;
+import com.microsoft.jenkins.servicefabric.util.Constants;
+import hudson.FilePath;
+import hudson.model.Computer;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Asynchronous execution of the {@link ServiceFabricPublishStep}.
+ * <p>
+ * No thread is held for the step while the deployments run: the deployments are started on the shared pool of
+ * {@link SFDeployer}, and the step completes from the callback of the last one. After a Jenkins restart all the
+ * deployments are started again; with {@code skipUnchanged}, the ones that completed before are skipped as unchanged.
+ */
+final class ServiceFabricPublishStepExecution extends StepExecution {
+    private static final long serialVersionUID = 1L;
+
+    private final ServiceFabricPublishStep step;
+
+    private transient volatile SFDeployer.Handle handle;
+    private transient boolean stopped;
+    private transient boolean completed;
+
+    ServiceFabricPublishStepExecution(ServiceFabricPublishStep step, StepContext context) {
+        super(context);
+        this.step = step;
+    }
+
+    @Override
+    public boolean start() {
+        launch(false);
+        return false;
+    }
+
+    @Override
+    public void onResume() {
+        launch(true);
+    }
+
+    @Override
+    public void stop(@Nonnull Throwable cause) {
+        SFDeployer.Handle current;
+        synchronized (this) {
+            stopped = true;
+            current = handle;
+        }
+        if (current != null) {
+            current.cancel();
+        }
+        complete(cause);
+    }
+
+    private void launch(final boolean resumed) {
+        // resolving the clusters and reading the certificates block, do it off the CPS thread
+        Computer.threadPoolForRemoting.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    deploy(resumed);
+                } catch (Exception e) {
+                    complete(e);
+                }
+            }
+        });
+    }
+
+    @SuppressWarnings("ConstantConditions")
+    private void deploy(boolean resumed) throws IOException, InterruptedException {
+        StepContext context = getContext();
+        final Run<?, ?> run = context.get(Run.class);
+        FilePath workspace = context.get(FilePath.class);
+        TaskListener listener = context.get(TaskListener.class);
+        final String buildId = AppInsightsUtils.hash(run.getUrl());
+
+        List<List<ApplicationDeployment>> waves;
+        try {
+            if (resumed) {
+                listener.getLogger().println("Jenkins was restarted during the deployment, resuming it");
+            } else {
+                AzureServiceFabricPlugin.sendEvent("StartDeploy", Constants.AI_RUN, buildId);
+                workspace.mkdirs();
+            }
+            waves = step.prepareDeployments(run, workspace, listener);
+        } catch (InterruptedException | IOException | RuntimeException e) {
+            deployFailed(buildId, e);
+            throw e;
+        }
+
+        SFDeployer.Handle newHandle = new SFDeployer(step.getMaxParallelDeployments(), run, listener)
+                .deployInWaves(waves, new SFDeployer.Callback() {
+                    @Override
+                    public void onResult(DeployResult result) {
+                        ServiceFabricPublishStep.recordResult(run, result);
+                    }
+
+                    @Override
+                    public void onCompleted(List<DeployResult> results) {
+                        try {
+                            ServiceFabricPublishStep.checkResults(results);
+                        } catch (IOException e) {
+                            deployFailed(buildId, e);
+                            complete(e);
+                            return;
+                        }
+                        AzureServiceFabricPlugin.sendEvent("Deployed", Constants.AI_RUN, buildId);
+                        complete(null);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        deployFailed(buildId, t);
+                        complete(t);
+                    }
+                });
+        boolean cancel;
+        synchronized (this) {
+            handle = newHandle;
+            cancel = stopped;
+        }
+        if (cancel) {
+            newHandle.cancel();
+        }
+    }
+
+    private static void deployFailed(String buildId, Throwable t) {
+        AzureServiceFabricPlugin.sendEvent("DeployFailed",
+                Constants.AI_RUN, buildId,
+                "Message", t.getMessage());
+    }
+
+    /**
+     * Completes the step once, whichever of the deployments or {@link #stop(Throwable)} comes first.
+     *
+     * @param failure the cause of the failure, or {@code null} if the step succeeded.
+     */
+    private void complete(Throwable failure) {
+        synchronized (this) {
+            if (completed) {
+                return;
+            }
+            completed = true;
+        }
+        if (failure == null) {
+            getContext().onSuccess(null);
+        } else {
+            getContext().onFailure(failure);
+        }
+    }
+}
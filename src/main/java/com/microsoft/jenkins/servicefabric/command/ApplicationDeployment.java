@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import com.microsoft.jenkins.servicefabric.metrics.DeployTimings;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricEndpoint;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricException;
+import hudson.AbortException;
+import hudson.FilePath;
+import hudson.model.TaskListener;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Deployment of one application to one cluster, running the commands built by {@link SFCommandBuilder}.
+ * <p>
+ * Failures are reported in the returned {@link DeployResult} so that they do not affect the deployment of other
+ * applications. A rolling upgrade is only reported as succeeded once it completed in the cluster. A command that
+ * fails with a transient error is run again later, see {@link CommandRetry}, and the deployment goes on from it
+ * without holding a thread in the meantime.
+ */
+public class ApplicationDeployment implements Callable<DeployResult> {
+    private final ServiceFabricEndpoint endpoint;
+    private final FilePath workspace;
+    private final String applicationName;
+    private final String applicationType;
+    private final String manifestPath;
+    private final DeployOptions options;
+    private final TaskListener listener;
+
+    private boolean cancelled;
+    private Thread thread;
+    private ScheduledFuture<?> retry;
+    private UpgradeMonitor monitor;
+
+    private Executor executor;
+    private Completion completion;
+    private SFCommandContext context;
+    private long startMillis;
+    private List<SFCommand> commands;
+    private int nextCommand;
+    private int attempt = 1;
+
+    /**
+     * Notified when a deployment started by {@link #start(Completion)} completes.
+     */
+    public interface Completion {
+        void completed(DeployResult result);
+    }
+
+    public ApplicationDeployment(ServiceFabricEndpoint endpoint,
+                                 FilePath workspace,
+                                 String applicationName,
+                                 String applicationType,
+                                 String manifestPath,
+                                 DeployOptions options,
+                                 TaskListener listener) {
+        this.endpoint = endpoint;
+        this.workspace = workspace;
+        this.applicationName = applicationName;
+        this.applicationType = applicationType;
+        this.manifestPath = manifestPath;
+        this.options = options;
+        this.listener = listener;
+    }
+
+    public String getApplicationName() {
+        return applicationName;
+    }
+
+    /**
+     * @return the management host of the cluster to deploy to.
+     */
+    public String getCluster() {
+        return endpoint.getHost();
+    }
+
+    ServiceFabricEndpoint getEndpoint() {
+        return endpoint;
+    }
+
+    DeployOptions getOptions() {
+        return options;
+    }
+
+    public TaskListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Returns a copy of this deployment that writes its log to the given listener.
+     */
+    public ApplicationDeployment withListener(TaskListener newListener) {
+        return new ApplicationDeployment(endpoint, workspace, applicationName, applicationType, manifestPath,
+                options, newListener);
+    }
+
+    /**
+     * Runs the deployment and waits for it to complete.
+     */
+    @Override
+    public DeployResult call() throws InterruptedException {
+        final DeployResult[] result = new DeployResult[1];
+        final CountDownLatch done = new CountDownLatch(1);
+        start(SFDeployer.EXECUTOR, new Completion() {
+            @Override
+            public void completed(DeployResult deployResult) {
+                result[0] = deployResult;
+                done.countDown();
+            }
+        });
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            cancel();
+            throw e;
+        }
+        return result[0];
+    }
+
+    /**
+     * Runs the deployment commands on the calling thread. A command to retry is run again on the executor, and the
+     * deployment goes on from there. If the commands start a rolling upgrade, the upgrade is then followed by an
+     * {@link UpgradeMonitor} without holding a thread, and the completion is notified when the upgrade ends.
+     * <p>
+     * A deployment can only be started once.
+     *
+     * @param commandExecutor runs the commands retried after a transient failure and the polls of the upgrade.
+     */
+    public void start(Executor commandExecutor, Completion deploymentCompletion) {
+        VersionRetention.deploymentStarted(endpoint, applicationType);
+        this.executor = commandExecutor;
+        this.completion = deploymentCompletion;
+        this.context = new SFCommandContext(endpoint, workspace, listener);
+        this.startMillis = System.currentTimeMillis();
+        run();
+    }
+
+    /**
+     * Runs the commands from the next one, until all ran or one is retried later.
+     */
+    private void run() {
+        UpgradeMonitor upgradeMonitor = null;
+        try {
+            synchronized (this) {
+                retry = null;
+                if (cancelled) {
+                    throw new InterruptedException();
+                }
+                thread = Thread.currentThread();
+            }
+            boolean ran;
+            try {
+                ran = runCommands();
+            } finally {
+                synchronized (this) {
+                    thread = null;
+                }
+            }
+            if (!ran) {
+                return;
+            }
+            if (context.isUpgradeStarted()) {
+                upgradeMonitor = new UpgradeMonitor(context.getClient(),
+                        SFCommandBuilder.toApplicationId(applicationName),
+                        context.getPlan().getTargetVersion(),
+                        listener.getLogger(),
+                        options.getUpgradeTimeoutMinutes());
+                synchronized (this) {
+                    if (cancelled) {
+                        throw new InterruptedException();
+                    }
+                    monitor = upgradeMonitor;
+                }
+            }
+        } catch (InterruptedException e) {
+            // clear the interrupt of a cancelled deployment before the pool thread is reused
+            Thread.interrupted();
+            interrupted();
+            return;
+        } catch (IOException | RuntimeException e) {
+            listener.error(e.getMessage());
+            failed(DeployResult.failure(getCluster(), applicationName, e.getMessage(),
+                    System.currentTimeMillis() - startMillis));
+            return;
+        }
+
+        if (upgradeMonitor == null) {
+            completed(DeployResult.success(getCluster(), applicationName, context.getPlan(),
+                    System.currentTimeMillis() - startMillis));
+            return;
+        }
+        final long monitorStart = System.currentTimeMillis();
+        upgradeMonitor.start(executor, new UpgradeMonitor.Callback() {
+            @Override
+            public void onCompleted() {
+                context.getTimings().record(DeployTimings.MONITOR, System.currentTimeMillis() - monitorStart);
+                completed(DeployResult.success(getCluster(), applicationName, context.getPlan(),
+                        System.currentTimeMillis() - startMillis));
+            }
+
+            @Override
+            public void onFailed(String message) {
+                context.getTimings().record(DeployTimings.MONITOR, System.currentTimeMillis() - monitorStart);
+                listener.error(message);
+                failed(DeployResult.failure(getCluster(), applicationName, message,
+                        System.currentTimeMillis() - startMillis));
+            }
+        });
+    }
+
+    private void interrupted() {
+        listener.error("Deployment was interrupted");
+        failed(DeployResult.failure(getCluster(), applicationName, "Deployment was interrupted",
+                System.currentTimeMillis() - startMillis));
+    }
+
+    /**
+     * Interrupts the deployment commands, or stops following the upgrade.
+     */
+    public void cancel() {
+        UpgradeMonitor current;
+        ScheduledFuture<?> pendingRetry;
+        synchronized (this) {
+            cancelled = true;
+            if (thread != null) {
+                thread.interrupt();
+            }
+            current = monitor;
+            pendingRetry = retry;
+        }
+        // once handed to the executor, the retry sees the deployment cancelled as it starts
+        if (pendingRetry != null && pendingRetry.cancel(false)) {
+            interrupted();
+        }
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    /**
+     * @return {@code false} if a command failed and is retried later.
+     */
+    private boolean runCommands() throws IOException, InterruptedException {
+        DeployTimings timings = context.getTimings();
+        long start = System.currentTimeMillis();
+        if (commands == null) {
+            SFCommandBuilder commandBuilder = new SFCommandBuilder(
+                    workspace,
+                    applicationName,
+                    applicationType,
+                    manifestPath,
+                    options);
+            commands = commandBuilder.buildCommands();
+            timings.record(DeployTimings.MANIFEST, System.currentTimeMillis() - start);
+        }
+        for (; nextCommand < commands.size(); nextCommand++, attempt = 1) {
+            if (context.isCompleted()) {
+                break;
+            }
+            SFCommand command = commands.get(nextCommand);
+            start = System.currentTimeMillis();
+            context.setRetrying(attempt > 1);
+            try {
+                command.execute(context);
+            } catch (IOException e) {
+                long delay = CommandRetry.retryDelay(command, context, e, attempt);
+                if (delay < 0) {
+                    if (e instanceof ServiceFabricException) {
+                        throw new AbortException(String.format("%s failed: %s", command.getName(), e.getMessage()));
+                    }
+                    throw e;
+                }
+                attempt++;
+                scheduleRetry(delay);
+                return false;
+            } finally {
+                timings.record(phaseOf(command), System.currentTimeMillis() - start);
+            }
+        }
+        context.setRetrying(false);
+        return true;
+    }
+
+    private synchronized void scheduleRetry(long delayMillis) throws InterruptedException {
+        if (cancelled) {
+            throw new InterruptedException();
+        }
+        retry = CommandRetry.schedule(new Runnable() {
+            @Override
+            public void run() {
+                ApplicationDeployment.this.run();
+            }
+        }, executor, delayMillis);
+    }
+
+    /**
+     * @return the metric name of the phase of a command, e.g., {@code upgrade_or_install}.
+     */
+    private static String phaseOf(SFCommand command) {
+        return command.getName().toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "_");
+    }
+
+    private void failed(DeployResult result) {
+        VersionRetention.deploymentCompleted(endpoint, applicationType);
+        completion.completed(withTimings(result));
+    }
+
+    private DeployResult withTimings(DeployResult result) {
+        context.getTimings().record(DeployTimings.TOTAL, result.getDurationMillis());
+        return result.withTimings(context.getTimings());
+    }
+
+    /**
+     * Records the package deployed, so that the next deployment of the same package can be skipped, and cleans up
+     * the old versions of the application type.
+     */
+    private void completed(DeployResult result) {
+        String fingerprint = context.getPackageFingerprint();
+        if (fingerprint != null) {
+            try {
+                DeployFingerprints.save(endpoint, SFCommandBuilder.toApplicationId(applicationName),
+                        context.getPlan().getTargetVersion(), fingerprint);
+            } catch (IOException e) {
+                listener.error("Failed to record the deployed package: " + e.getMessage());
+            }
+        }
+        VersionRetention.deploymentCompleted(endpoint, applicationType);
+        if (options.getRetainedVersions() > 0 && context.getPlan().getAction() != DeployPlan.Action.UNCHANGED) {
+            try {
+                VersionRetention.schedule(context.getClient(), applicationType, options.getRetainedVersions(),
+                        context.getPlan().getTargetVersion());
+                listener.getLogger().println(String.format("Removing the versions of application type %s older "
+                        + "than the last %d in the background", applicationType, options.getRetainedVersions()));
+            } catch (IOException e) {
+                listener.error("Failed to clean up the old versions: " + e.getMessage());
+            }
+        }
+        completion.completed(withTimings(result));
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricClient;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricException;
+
+import java.io.IOException;
+
+/**
+ * Removes the application and unregisters its type if the target version is already deployed, so that the same
+ * version can be provisioned again.
+ */
+final class CheckCleanCommand implements SFCommand {
+    private static final String ERROR_APPLICATION_NOT_FOUND = "FABRIC_E_APPLICATION_NOT_FOUND";
+    private static final String ERROR_APPLICATION_TYPE_NOT_FOUND = "FABRIC_E_APPLICATION_TYPE_NOT_FOUND";
+
+    private final String appId;
+    private final String appType;
+
+    CheckCleanCommand(String appId, String appType) {
+        this.appId = appId;
+        this.appType = appType;
+    }
+
+    @Override
+    public String getName() {
+        return "Check and clean";
+    }
+
+    @Override
+    public void execute(SFCommandContext context) throws IOException {
+        DeployPlan plan = context.getPlan();
+        if (plan.getAction() != DeployPlan.Action.REPLACE) {
+            return;
+        }
+        context.getLogger().println(String.format(
+                "Version %s of application %s is already deployed, removing it", plan.getTargetVersion(), appId));
+        ServiceFabricClient client = context.getClient();
+        try {
+            client.deleteApplication(appId);
+        } catch (ServiceFabricException e) {
+            // removed by the previous attempt
+            if (!context.isRetrying() || !ERROR_APPLICATION_NOT_FOUND.equals(e.getErrorCode())) {
+                throw e;
+            }
+        }
+        try {
+            client.unprovisionApplicationType(appType, plan.getTargetVersion());
+        } catch (ServiceFabricException e) {
+            if (!context.isRetrying() || !ERROR_APPLICATION_TYPE_NOT_FOUND.equals(e.getErrorCode())) {
+                throw e;
+            }
+        }
+    }
+}
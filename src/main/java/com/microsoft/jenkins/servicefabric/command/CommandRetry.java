@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import com.microsoft.jenkins.servicefabric.rest.RetryPolicy;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a deployment command, retrying it after a transient failure, e.g., the cluster is busy, the gateway is
+ * unavailable or another upgrade of the application is in progress.
+ * <p>
+ * Only the failed command is run again, so a failed provision is retried without uploading the package again. The
+ * failures are classified and the attempts spaced by {@link RetryPolicy}. A command that may have taken effect before
+ * its response was lost checks {@link SFCommandContext#isRetrying()} to accept the error saying it is already done.
+ * <p>
+ * No thread waits for the next attempt: it is scheduled on a small scheduler shared by all the deployments, which
+ * hands it back to the deployment pool when due, like the polls of {@link UpgradeMonitor}.
+ * <p>
+ * Any other failure, e.g., an invalid package, a conflicting application or a missing file, fails at once.
+ */
+final class CommandRetry {
+    static final int MAX_ATTEMPTS = 4;
+
+    private static final double MILLIS_PER_SECOND = 1000.0;
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new NamingThreadFactory(new DaemonThreadFactory(), CommandRetry.class.getSimpleName()));
+
+    private CommandRetry() {
+        // hide constructor
+    }
+
+    /**
+     * Decides whether to run a failed command again, and logs the decision to retry.
+     *
+     * @param attempt the number of the attempt that failed, from 1.
+     * @return the delay before the next attempt, in milliseconds, or -1 if the failure is final: it is not
+     * transient, or the command was already run {@link #MAX_ATTEMPTS} times.
+     */
+    static long retryDelay(SFCommand command, SFCommandContext context, IOException e, int attempt) {
+        if (attempt >= MAX_ATTEMPTS || !RetryPolicy.isTransient(e)) {
+            return -1;
+        }
+        long backoff = RetryPolicy.backoffOf(attempt);
+        context.getLogger().println(String.format(Locale.ROOT, "%s failed (attempt %d of %d), retrying in %.1f s: %s",
+                command.getName(), attempt, MAX_ATTEMPTS, backoff / MILLIS_PER_SECOND, e.getMessage()));
+        return backoff;
+    }
+
+    /**
+     * Runs the next attempt on the executor once the delay elapsed.
+     *
+     * @return the scheduled attempt, which can be cancelled until handed to the executor.
+     */
+    static ScheduledFuture<?> schedule(final Runnable attempt, final Executor executor, long delayMillis) {
+        return SCHEDULER.schedule(new Runnable() {
+            @Override
+            public void run() {
+                executor.execute(attempt);
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+}
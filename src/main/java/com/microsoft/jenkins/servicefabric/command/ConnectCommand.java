@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import java.io.IOException;
+
+/**
+ * Checks the connectivity to the cluster management endpoint, replaces {@code sfctl cluster select}.
+ */
+final class ConnectCommand implements SFCommand {
+    @Override
+    public String getName() {
+        return "Connect";
+    }
+
+    @Override
+    public void execute(SFCommandContext context) throws IOException {
+        String version = context.getClient().getClusterVersion();
+        context.getLogger().println(String.format("Connected to %s, Service Fabric version %s",
+                context.getEndpoint(), version));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.Files;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricEndpoint;
+import hudson.util.AtomicFileWriter;
+import jenkins.model.Jenkins;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Records on the master the fingerprint of the package last deployed to each application of each cluster, along
+ * with the application type version it was deployed as.
+ * <p>
+ * The cluster does not keep anything that identifies the content of a package, so the fingerprints are kept here to
+ * tell whether a deployment of the version the application already runs would change anything.
+ */
+final class DeployFingerprints {
+    private static final Logger LOGGER = Logger.getLogger(DeployFingerprints.class.getName());
+
+    private static final String DIRECTORY = "service-fabric/deployments";
+    private static final String EXTENSION = ".fingerprint";
+
+    /**
+     * @return whether the given package was the last one deployed to the application as the given version.
+     */
+    static boolean isDeployed(ServiceFabricEndpoint endpoint, String appId, String version, String fingerprint) {
+        File file = getFile(endpoint, appId);
+        if (!file.isFile()) {
+            return false;
+        }
+        try {
+            return record(version, fingerprint).equals(Files.toString(file, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to read the deployment fingerprint " + file, e);
+            return false;
+        }
+    }
+
+    static void save(ServiceFabricEndpoint endpoint, String appId, String version, String fingerprint)
+            throws IOException {
+        AtomicFileWriter writer = new AtomicFileWriter(getFile(endpoint, appId), StandardCharsets.UTF_8.name());
+        try {
+            writer.write(record(version, fingerprint));
+            writer.commit();
+        } finally {
+            writer.abort();
+        }
+    }
+
+    /**
+     * Forgets the package deployed to the application, before the application is changed.
+     */
+    static void remove(ServiceFabricEndpoint endpoint, String appId) throws IOException {
+        File file = getFile(endpoint, appId);
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Cannot delete the deployment fingerprint " + file);
+        }
+    }
+
+    private static String record(String version, String fingerprint) {
+        return fingerprint + " " + version + "\n";
+    }
+
+    private static File getFile(ServiceFabricEndpoint endpoint, String appId) {
+        String key = endpoint.getHost() + ":" + endpoint.getPort() + "/" + appId;
+        try {
+            String name = BaseEncoding.base16().lowerCase().encode(
+                    MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8)));
+            return new File(new File(Jenkins.getInstance().getRootDir(), DIRECTORY), name + EXTENSION);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private DeployFingerprints() {
+        // hide constructor
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricEndpoint;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Serializes the deployments of the same application to the same cluster, across all the builds of this Jenkins,
+ * so that the removal of a version or a rolling upgrade does not race with another deployment of the application.
+ * <p>
+ * A lock is granted to one deployment at a time, in the order they asked for it. Nothing blocks while waiting: the
+ * waiting deployments are queued with a {@link Listener}, which is notified of the position in the queue as it
+ * moves, and of the lock being granted from the thread that released it. The deployments of other applications, or
+ * to other clusters, are not affected.
+ * <p>
+ * A deployment that may be superseded gives up waiting when a newer build of the same job queues for the same lock,
+ * as only the newest package would remain deployed anyway. It never takes the lock after a newer build of the job,
+ * which would roll the application back, even once that build completed: the newest build of each job granted a
+ * lock is remembered after the lock is released. The deployment holding the lock is never superseded.
+ */
+final class DeployLocks {
+    /**
+     * Locks in use, removed once released with no deployment waiting.
+     */
+    private static final Map<String, Lock> LOCKS = new HashMap<>();
+
+    /**
+     * Newest build of each job granted each lock, guarded by {@link #LOCKS}. Kept once the lock is removed; there is
+     * one entry per job, application and cluster deployed to.
+     */
+    private static final Map<String, Owner> NEWEST_GRANTED = new HashMap<>();
+
+    private DeployLocks() {
+        // hide constructor
+    }
+
+    /**
+     * Notified of the progress of a deployment waiting for its lock.
+     */
+    interface Listener {
+        /**
+         * Called when the deployment is queued, and each time it moves up the queue.
+         *
+         * @param position the number of deployments ahead of this one, including the one holding the lock.
+         * @param holder   the owner of the deployment holding the lock.
+         * @param waited   how long the deployment has been waiting, in milliseconds.
+         */
+        void queued(int position, String holder, long waited);
+
+        /**
+         * Called once the lock is granted, possibly on the thread that asks for it or releases it. Should not run
+         * the deployment on the calling thread.
+         *
+         * @param waited how long the deployment waited for the lock, in milliseconds; 0 if it was free.
+         */
+        void acquired(long waited);
+
+        /**
+         * Called instead of {@link #acquired(long)} if the deployment was superseded while waiting, possibly on the
+         * thread that asks for the lock. Should not complete the deployment on the calling thread.
+         *
+         * @param by the owner of the newer deployment.
+         */
+        void superseded(String by);
+    }
+
+    /**
+     * Who asks for a lock.
+     */
+    static final class Owner {
+        private final String name;
+        private final String job;
+        private final int build;
+
+        /**
+         * @param name  a description of who deploys, shown to the deployments that wait for it.
+         * @param job   the full name of the job, whose builds may supersede each other.
+         * @param build the number of the build in the job.
+         */
+        Owner(String name, String job, int build) {
+            this.name = name;
+            this.job = job;
+            this.build = build;
+        }
+
+        /**
+         * @return whether this is an older build of the same job as the other owner.
+         */
+        private boolean isOlderThan(Owner other) {
+            return job.equals(other.job) && build < other.build;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * Asks for the lock of the application in the cluster.
+     *
+     * @param supersedable whether to give up waiting for the lock when a newer build of the same job asks for it.
+     * @return the ticket to release the lock, or give up waiting for it.
+     */
+    static Ticket acquire(ServiceFabricEndpoint endpoint, String applicationName, Owner owner, boolean supersedable,
+                          Listener listener) {
+        String key = keyOf(endpoint, applicationName);
+        Ticket ticket = new Ticket(key, owner, supersedable, listener);
+        int position;
+        String holder;
+        Owner newer = null;
+        List<Ticket> superseded = new ArrayList<>();
+        List<Ticket> moved = new ArrayList<>();
+        synchronized (LOCKS) {
+            Lock lock = LOCKS.get(key);
+            if (lock == null) {
+                lock = new Lock();
+                LOCKS.put(key, lock);
+            }
+            newer = newerThan(lock, ticket);
+            if (newer != null) {
+                ticket.state = State.RELEASED;
+                if (lock.holder == null) {
+                    LOCKS.remove(key);
+                }
+                position = 0;
+                holder = null;
+            } else if (lock.holder == null) {
+                lock.holder = ticket;
+                ticket.granted();
+                position = 0;
+                holder = null;
+            } else {
+                supersede(lock, ticket, superseded, moved);
+                lock.waiting.add(ticket);
+                position = lock.waiting.size();
+                holder = lock.holder.owner.toString();
+            }
+        }
+        for (Ticket waiting : superseded) {
+            waiting.listener.superseded(owner.toString());
+        }
+        if (!moved.isEmpty()) {
+            ticket.notifyMoved(moved);
+        }
+        if (newer != null) {
+            listener.superseded(newer.toString());
+        } else if (position == 0) {
+            listener.acquired(0);
+        } else {
+            listener.queued(position, holder, 0);
+        }
+        return ticket;
+    }
+
+    /**
+     * @return the owner of a newer build of the same job granted, holding or waiting for the lock, if the ticket may
+     * be superseded by it, otherwise {@code null}.
+     */
+    private static Owner newerThan(Lock lock, Ticket ticket) {
+        if (!ticket.supersedable) {
+            return null;
+        }
+        Owner newest = NEWEST_GRANTED.get(ticket.newestKey());
+        if (newest != null && ticket.owner.isOlderThan(newest)) {
+            return newest;
+        }
+        if (lock.holder != null && ticket.owner.isOlderThan(lock.holder.owner)) {
+            return lock.holder.owner;
+        }
+        for (Ticket waiting : lock.waiting) {
+            if (ticket.owner.isOlderThan(waiting.owner)) {
+                return waiting.owner;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes from the queue the tickets of the older builds of the same job that may be superseded.
+     *
+     * @param superseded the tickets removed.
+     * @param moved      the tickets left in the queue, which moved up.
+     */
+    private static void supersede(Lock lock, Ticket ticket, List<Ticket> superseded, List<Ticket> moved) {
+        for (Iterator<Ticket> i = lock.waiting.iterator(); i.hasNext(); ) {
+            Ticket waiting = i.next();
+            if (waiting.supersedable && waiting.owner.isOlderThan(ticket.owner)) {
+                i.remove();
+                waiting.state = State.RELEASED;
+                superseded.add(waiting);
+            } else if (!superseded.isEmpty()) {
+                moved.add(waiting);
+            }
+        }
+    }
+
+    private static String keyOf(ServiceFabricEndpoint endpoint, String applicationName) {
+        return endpoint.getHost().toLowerCase(Locale.ROOT) + ":" + endpoint.getPort() + "/"
+                + SFCommandBuilder.toApplicationId(applicationName);
+    }
+
+    private enum State {
+        WAITING,
+        HELD,
+        RELEASED,
+    }
+
+    private static final class Lock {
+        private Ticket holder;
+        private final Deque<Ticket> waiting = new ArrayDeque<>();
+    }
+
+    /**
+     * A deployment holding, or waiting for, a lock.
+     */
+    static final class Ticket {
+        private final String key;
+        private final Owner owner;
+        private final boolean supersedable;
+        private final Listener listener;
+        private final long queuedAt = System.currentTimeMillis();
+        private State state = State.WAITING;
+
+        private Ticket(String key, Owner owner, boolean supersedable, Listener listener) {
+            this.key = key;
+            this.owner = owner;
+            this.supersedable = supersedable;
+            this.listener = listener;
+        }
+
+        private String newestKey() {
+            return key + "\n" + owner.job;
+        }
+
+        /**
+         * Records this ticket as holding its lock, called with the monitor of {@link #LOCKS}.
+         */
+        private void granted() {
+            state = State.HELD;
+            Owner newest = NEWEST_GRANTED.get(newestKey());
+            if (newest == null || newest.isOlderThan(owner)) {
+                NEWEST_GRANTED.put(newestKey(), owner);
+            }
+        }
+
+        /**
+         * Gives up waiting for the lock.
+         *
+         * @return {@code false} if the lock was already granted, in which case it has to be released, or the
+         * deployment was superseded.
+         */
+        boolean cancel() {
+            List<Ticket> moved;
+            synchronized (LOCKS) {
+                if (state != State.WAITING) {
+                    return false;
+                }
+                state = State.RELEASED;
+                Lock lock = LOCKS.get(key);
+                moved = behind(lock, this);
+                lock.waiting.remove(this);
+            }
+            notifyMoved(moved);
+            return true;
+        }
+
+        /**
+         * Releases the lock, granting it to the next deployment in the queue, or gives up waiting for it. Does
+         * nothing if already released.
+         */
+        void release() {
+            if (cancel()) {
+                return;
+            }
+            Ticket next;
+            List<Ticket> moved;
+            synchronized (LOCKS) {
+                if (state == State.RELEASED) {
+                    return;
+                }
+                state = State.RELEASED;
+                Lock lock = LOCKS.get(key);
+                next = lock.waiting.poll();
+                lock.holder = next;
+                if (next == null) {
+                    LOCKS.remove(key);
+                    return;
+                }
+                next.granted();
+                moved = new ArrayList<>(lock.waiting);
+            }
+            next.listener.acquired(System.currentTimeMillis() - next.queuedAt);
+            notifyMoved(moved);
+        }
+
+        /**
+         * @return the tickets queued behind the given one, which move up the queue when it leaves.
+         */
+        private static List<Ticket> behind(Lock lock, Ticket ticket) {
+            List<Ticket> moved = new ArrayList<>();
+            boolean found = false;
+            for (Ticket waiting : lock.waiting) {
+                if (found) {
+                    moved.add(waiting);
+                }
+                found = found || waiting == ticket;
+            }
+            return moved;
+        }
+
+        private void notifyMoved(List<Ticket> moved) {
+            if (moved.isEmpty()) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            List<Integer> positions = new ArrayList<>(moved.size());
+            String holder;
+            synchronized (LOCKS) {
+                Lock lock = LOCKS.get(key);
+                if (lock == null || lock.holder == null) {
+                    return;
+                }
+                holder = lock.holder.owner.toString();
+                for (Iterator<Ticket> i = moved.iterator(); i.hasNext(); ) {
+                    Ticket waiting = i.next();
+                    int position = indexOf(lock.waiting, waiting);
+                    if (position < 0) {
+                        // granted or cancelled in the meantime
+                        i.remove();
+                    } else {
+                        positions.add(position + 1);
+                    }
+                }
+            }
+            for (int i = 0; i < moved.size(); i++) {
+                Ticket waiting = moved.get(i);
+                waiting.listener.queued(positions.get(i), holder, now - waiting.queuedAt);
+            }
+        }
+
+        private static int indexOf(Deque<Ticket> queue, Ticket ticket) {
+            int index = 0;
+            for (Ticket waiting : queue) {
+                if (waiting == ticket) {
+                    return index;
+                }
+                index++;
+            }
+            return -1;
+        }
+    }
+}
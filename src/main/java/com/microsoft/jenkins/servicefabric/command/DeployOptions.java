@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import java.io.Serializable;
+
+/**
+ * Options of the deployment commands that are shared by all the applications deployed by a step.
+ */
+public class DeployOptions implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private boolean incrementalUpload;
+    private boolean skipUnchanged;
+    private boolean diffPackage;
+    private boolean skipSuperseded;
+    private int retainedVersions;
+    private int compressionLevel;
+    private int upgradeTimeoutMinutes;
+    private int upgradeDomainTimeoutMinutes;
+
+    /**
+     * @return whether to only upload the files that changed since the previous upload to the same cluster.
+     */
+    public boolean isIncrementalUpload() {
+        return incrementalUpload;
+    }
+
+    public void setIncrementalUpload(boolean incrementalUpload) {
+        this.incrementalUpload = incrementalUpload;
+    }
+
+    /**
+     * @return whether to skip the deployment when the cluster already runs the same package.
+     */
+    public boolean isSkipUnchanged() {
+        return skipUnchanged;
+    }
+
+    public void setSkipUnchanged(boolean skipUnchanged) {
+        this.skipUnchanged = skipUnchanged;
+    }
+
+    /**
+     * @return whether to leave out of the package of an upgrade the packages whose version is already provisioned.
+     */
+    public boolean isDiffPackage() {
+        return diffPackage;
+    }
+
+    public void setDiffPackage(boolean diffPackage) {
+        this.diffPackage = diffPackage;
+    }
+
+    /**
+     * @return whether to give up waiting to deploy when a newer build of the same job waits to deploy the same
+     * application to the same cluster.
+     */
+    public boolean isSkipSuperseded() {
+        return skipSuperseded;
+    }
+
+    public void setSkipSuperseded(boolean skipSuperseded) {
+        this.skipSuperseded = skipSuperseded;
+    }
+
+    /**
+     * @return the number of most recent application type versions to keep provisioned after a successful
+     * deployment, besides the versions in use, 0 to keep all of them.
+     */
+    public int getRetainedVersions() {
+        return retainedVersions;
+    }
+
+    public void setRetainedVersions(int retainedVersions) {
+        this.retainedVersions = retainedVersions;
+    }
+
+    /**
+     * @return the deflate level of the code, config and data packages uploaded as zip files, from 1 (fastest) to 9
+     * (smallest), 0 to upload them uncompressed.
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * @return time limit of a whole application upgrade, 0 for no limit.
+     */
+    public int getUpgradeTimeoutMinutes() {
+        return upgradeTimeoutMinutes;
+    }
+
+    public void setUpgradeTimeoutMinutes(int upgradeTimeoutMinutes) {
+        this.upgradeTimeoutMinutes = upgradeTimeoutMinutes;
+    }
+
+    /**
+     * @return time limit of each upgrade domain of an application upgrade, 0 for no limit.
+     */
+    public int getUpgradeDomainTimeoutMinutes() {
+        return upgradeDomainTimeoutMinutes;
+    }
+
+    public void setUpgradeDomainTimeoutMinutes(int upgradeDomainTimeoutMinutes) {
+        this.upgradeDomainTimeoutMinutes = upgradeDomainTimeoutMinutes;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import com.microsoft.jenkins.servicefabric.rest.ApplicationInfo;
+
+/**
+ * Decision of how to deploy the target application version, made from a single snapshot of the application state
+ * in the cluster.
+ */
+public final class DeployPlan {
+    public enum Action {
+        /**
+         * The application does not exist, create it.
+         */
+        CREATE,
+        /**
+         * The application exists with another version, upgrade it.
+         */
+        UPGRADE,
+        /**
+         * The application already runs the target version, remove it and the registered type, then create it again.
+         */
+        REPLACE,
+        /**
+         * The application already runs the target version from the same package, nothing to deploy.
+         */
+        UNCHANGED,
+    }
+
+    private final Action action;
+    private final String targetVersion;
+    private final ApplicationInfo current;
+
+    private DeployPlan(Action action, String targetVersion, ApplicationInfo current) {
+        this.action = action;
+        this.targetVersion = targetVersion;
+        this.current = current;
+    }
+
+    /**
+     * Plans the deployment.
+     *
+     * @param current       snapshot of the application in the cluster, {@code null} if it does not exist.
+     * @param targetVersion the application type version to deploy.
+     */
+    public static DeployPlan create(ApplicationInfo current, String targetVersion) {
+        Action action;
+        if (current == null) {
+            action = Action.CREATE;
+        } else if (targetVersion.equals(current.getTypeVersion())) {
+            action = Action.REPLACE;
+        } else {
+            action = Action.UPGRADE;
+        }
+        return new DeployPlan(action, targetVersion, current);
+    }
+
+    /**
+     * Plans to leave the application as it is, as it runs the same package.
+     */
+    public DeployPlan unchanged() {
+        if (action != Action.REPLACE) {
+            throw new IllegalStateException("Only a deployment of the current version can be unchanged");
+        }
+        return new DeployPlan(Action.UNCHANGED, targetVersion, current);
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public String getTargetVersion() {
+        return targetVersion;
+    }
+
+    public boolean isApplicationExists() {
+        return current != null;
+    }
+
+    /**
+     * @return the application type name in the cluster, or {@code null} if the application does not exist.
+     */
+    public String getCurrentType() {
+        return current == null ? null : current.getTypeName();
+    }
+
+    /**
+     * @return the application type version in the cluster, or {@code null} if the application does not exist.
+     */
+    public String getCurrentVersion() {
+        return current == null ? null : current.getTypeVersion();
+    }
+
+    /**
+     * @return the aggregated health state in the cluster, or {@code null} if the application does not exist.
+     */
+    public String getCurrentHealthState() {
+        return current == null ? null : current.getHealthState();
+    }
+
+    @Override
+    public String toString() {
+        if (current == null) {
+            return String.format("%s version %s", action, targetVersion);
+        }
+        return String.format("%s version %s (current version %s, health %s)",
+                action, targetVersion, current.getTypeVersion(), current.getHealthState());
+    }
+}
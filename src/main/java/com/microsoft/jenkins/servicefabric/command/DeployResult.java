@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import com.microsoft.jenkins.servicefabric.metrics.DeployTimings;
+
+import java.io.Serializable;
+import java.util.Locale;
+
+/**
+ * Outcome of the deployment of one application.
+ */
+public final class DeployResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final double MILLIS_PER_SECOND = 1000.0;
+
+    public enum Status {
+        SUCCESS,
+        FAILED,
+        SKIPPED,
+        /**
+         * Not deployed as a newer build deploys the application.
+         */
+        SUPERSEDED,
+    }
+
+    private final String cluster;
+    private final String applicationName;
+    private final Status status;
+    private final DeployPlan.Action action;
+    private final String version;
+    private final long durationMillis;
+    private final String message;
+    private final DeployTimings timings;
+
+    private DeployResult(String cluster,
+                         String applicationName,
+                         Status status,
+                         DeployPlan.Action action,
+                         String version,
+                         long durationMillis,
+                         String message,
+                         DeployTimings timings) {
+        this.cluster = cluster;
+        this.applicationName = applicationName;
+        this.status = status;
+        this.action = action;
+        this.version = version;
+        this.durationMillis = durationMillis;
+        this.message = message;
+        this.timings = timings;
+    }
+
+    public static DeployResult success(String cluster, String applicationName, DeployPlan plan,
+                                       long durationMillis) {
+        return new DeployResult(cluster, applicationName, Status.SUCCESS, plan.getAction(), plan.getTargetVersion(),
+                durationMillis, null, null);
+    }
+
+    public static DeployResult failure(String cluster, String applicationName, String message,
+                                       long durationMillis) {
+        return new DeployResult(cluster, applicationName, Status.FAILED, null, null, durationMillis, message,
+                null);
+    }
+
+    public static DeployResult skipped(String cluster, String applicationName, String message) {
+        return new DeployResult(cluster, applicationName, Status.SKIPPED, null, null, 0, message, null);
+    }
+
+    public static DeployResult superseded(String cluster, String applicationName, String message) {
+        return new DeployResult(cluster, applicationName, Status.SUPERSEDED, null, null, 0, message, null);
+    }
+
+    /**
+     * Returns a copy of this result with the timings of the deployment phases.
+     */
+    public DeployResult withTimings(DeployTimings deployTimings) {
+        return new DeployResult(cluster, applicationName, status, action, version, durationMillis, message,
+                deployTimings);
+    }
+
+    /**
+     * @return the management host of the cluster deployed to.
+     */
+    public String getCluster() {
+        return cluster;
+    }
+
+    public String getApplicationName() {
+        return applicationName;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isSuccess() {
+        return status == Status.SUCCESS;
+    }
+
+    public boolean isSuperseded() {
+        return status == Status.SUPERSEDED;
+    }
+
+    /**
+     * @return the planned action, or {@code null} if the deployment failed.
+     */
+    public DeployPlan.Action getAction() {
+        return action;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * @return why the deployment failed, was skipped or superseded, or {@code null} if it succeeded.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return the durations of the deployment phases, or {@code null} if the deployment did not run.
+     */
+    public DeployTimings getTimings() {
+        return timings;
+    }
+
+    @Override
+    public String toString() {
+        String duration = String.format(Locale.ROOT, "%.1f s", durationMillis / MILLIS_PER_SECOND);
+        switch (status) {
+            case SUCCESS:
+                return String.format("[%s] %s: %s, %s version %s in %s",
+                        cluster, applicationName, status, action, version, duration);
+            case FAILED:
+                return String.format("[%s] %s: %s after %s, %s", cluster, applicationName, status, duration, message);
+            default:
+                return String.format("[%s] %s: %s, %s", cluster, applicationName, status, message);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import com.microsoft.jenkins.servicefabric.manifest.ApplicationManifest;
+import com.microsoft.jenkins.servicefabric.manifest.ManifestPackage;
+import com.microsoft.jenkins.servicefabric.manifest.ManifestParser;
+import com.microsoft.jenkins.servicefabric.manifest.ServiceManifest;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricClient;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Reduces the package of an upgrade to a diff package, by leaving out the service packages, and the code, config
+ * and data packages, whose version is the same as in the application type version the application runs.
+ * <p>
+ * The cluster takes the left out packages from the version already provisioned, so only the changed packages are
+ * uploaded and provisioned.
+ */
+final class DiffCommand implements SFCommand {
+    private final String appType;
+    private final ApplicationManifest manifest;
+
+    /**
+     * @param manifest the application manifest of the package, with the service manifests it imports.
+     */
+    DiffCommand(String appType, ApplicationManifest manifest) {
+        this.appType = appType;
+        this.manifest = manifest;
+    }
+
+    @Override
+    public String getName() {
+        return "Diff";
+    }
+
+    @Override
+    public void execute(SFCommandContext context) {
+        DeployPlan plan = context.getPlan();
+        if (plan.getAction() != DeployPlan.Action.UPGRADE) {
+            return;
+        }
+        PrintStream logger = context.getLogger();
+        Set<String> excluded;
+        try {
+            excluded = unchangedPaths(context.getClient(), plan.getCurrentVersion());
+        } catch (IOException e) {
+            // the diff only saves time, the whole package deploys as well
+            logger.println("Cannot compare with the provisioned version " + plan.getCurrentVersion()
+                    + ", uploading the whole package: " + e.getMessage());
+            return;
+        }
+        if (excluded.isEmpty()) {
+            logger.println("All the packages changed since version " + plan.getCurrentVersion());
+            return;
+        }
+        logger.println(String.format("Leaving out the packages unchanged since version %s: %s",
+                plan.getCurrentVersion(), excluded));
+        context.setExcludedPaths(excluded);
+    }
+
+    /**
+     * @return the paths of the unchanged service, code, config and data package directories, relative to the
+     * application package directory.
+     */
+    private Set<String> unchangedPaths(ServiceFabricClient client, String currentVersion) throws IOException {
+        ApplicationManifest current = ManifestParser.parseApplicationManifest(
+                checkManifest(client.getApplicationManifest(appType, currentVersion)));
+        Map<String, String> currentImports = versions(current.getServiceManifestImports());
+
+        Set<String> excluded = new TreeSet<>();
+        for (ManifestPackage serviceImport : manifest.getServiceManifestImports()) {
+            String serviceName = serviceImport.getName();
+            String currentImportVersion = currentImports.get(serviceName);
+            if (currentImportVersion == null) {
+                // a new service
+                continue;
+            }
+            if (currentImportVersion.equals(serviceImport.getVersion())) {
+                excluded.add(serviceName);
+                continue;
+            }
+            ServiceManifest service = manifest.getServiceManifest(serviceName);
+            if (service == null) {
+                continue;
+            }
+            ServiceManifest currentService = ManifestParser.parseServiceManifest(
+                    checkManifest(client.getServiceManifest(appType, currentVersion, serviceName)));
+            Map<String, String> currentPackages = versions(currentService.getPackages());
+            for (ManifestPackage servicePackage : service.getPackages()) {
+                if (servicePackage.getVersion() != null
+                        && servicePackage.getVersion().equals(currentPackages.get(servicePackage.getName()))) {
+                    excluded.add(serviceName + "/" + servicePackage.getName());
+                }
+            }
+        }
+        return excluded;
+    }
+
+    private static Map<String, String> versions(List<ManifestPackage> packages) {
+        Map<String, String> versions = new HashMap<>();
+        for (ManifestPackage manifestPackage : packages) {
+            versions.put(manifestPackage.getName(), manifestPackage.getVersion());
+        }
+        return versions;
+    }
+
+    private static String checkManifest(String xml) throws IOException {
+        if (xml == null) {
+            throw new IOException("The cluster returned no manifest");
+        }
+        return xml;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import com.microsoft.jenkins.servicefabric.rest.ApplicationInfo;
+import com.microsoft.jenkins.servicefabric.upload.PackageDigest;
+import hudson.AbortException;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.IOException;
+
+/**
+ * Queries the application state once and plans the deployment from it.
+ * <p>
+ * When unchanged packages are skipped, the deployment completes here if the application already runs the version
+ * from a package with the same fingerprint, computed from the digest staged on the node that holds the workspace.
+ */
+final class PlanCommand implements SFCommand {
+    private static final String READY_STATUS = "Ready";
+
+    private final String appId;
+    private final String appType;
+    private final String appVersion;
+    private final PackageDigest packageDigest;
+
+    /**
+     * @param packageDigest the digest of the package to deploy if unchanged packages are skipped, {@code null}
+     *                      otherwise.
+     */
+    PlanCommand(String appId, String appType, String appVersion, PackageDigest packageDigest) {
+        this.appId = appId;
+        this.appType = appType;
+        this.appVersion = appVersion;
+        this.packageDigest = packageDigest;
+    }
+
+    @Override
+    public String getName() {
+        return "Plan";
+    }
+
+    @Override
+    public void execute(SFCommandContext context) throws IOException, InterruptedException {
+        ApplicationInfo info = context.getClient().getApplicationInfo(appId);
+        DeployPlan plan = DeployPlan.create(info, appVersion);
+        if (plan.isApplicationExists() && !StringUtils.equals(appType, plan.getCurrentType())) {
+            throw new AbortException(String.format("Application %s exists with type %s, which is not %s",
+                    appId, plan.getCurrentType(), appType));
+        }
+        if (packageDigest != null) {
+            String fingerprint = packageDigest.getFingerprint();
+            if (plan.getAction() == DeployPlan.Action.REPLACE && READY_STATUS.equals(info.getStatus())
+                    && DeployFingerprints.isDeployed(context.getEndpoint(), appId, appVersion, fingerprint)) {
+                plan = plan.unchanged();
+                context.setCompleted(true);
+            } else {
+                // the recorded package no longer tells what runs once the application is changed
+                DeployFingerprints.remove(context.getEndpoint(), appId);
+                context.setPackageFingerprint(fingerprint);
+            }
+        }
+        context.getLogger().println(String.format("Deploy plan for application %s: %s", appId, plan));
+        context.setPlan(plan);
+    }
+}
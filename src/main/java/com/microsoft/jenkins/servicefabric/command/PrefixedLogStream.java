@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import hudson.console.LineTransformationOutputStream;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the output of one of several concurrent deployments to the build log as it is produced, one whole line at
+ * a time, each line prefixed with the deployment it comes from.
+ */
+final class PrefixedLogStream extends LineTransformationOutputStream {
+    private final PrintStream target;
+    private final byte[] prefix;
+
+    PrefixedLogStream(PrintStream target, String prefix) {
+        this.target = target;
+        this.prefix = prefix.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected void eol(byte[] b, int len) throws IOException {
+        // PrintStream locks on itself too, so the lines of the deployments never interleave
+        synchronized (target) {
+            target.write(prefix);
+            target.write(b, 0, len);
+            target.flush();
+        }
+    }
+
+    /**
+     * Writes the last line if it is not terminated, the build log itself is left open.
+     */
+    @Override
+    public void close() throws IOException {
+        forceEol();
+    }
+}
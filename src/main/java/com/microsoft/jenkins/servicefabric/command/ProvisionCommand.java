@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricException;
+
+import java.io.IOException;
+
+/**
+ * Registers the application type from the uploaded package, replaces {@code sfctl application provision}.
+ */
+final class ProvisionCommand implements SFCommand {
+    private static final String ERROR_APPLICATION_TYPE_ALREADY_EXISTS = "FABRIC_E_APPLICATION_TYPE_ALREADY_EXISTS";
+
+    private final String buildPath;
+
+    ProvisionCommand(String buildPath) {
+        this.buildPath = buildPath;
+    }
+
+    @Override
+    public String getName() {
+        return "Provision";
+    }
+
+    @Override
+    public void execute(SFCommandContext context) throws IOException {
+        context.getLogger().println("Provisioning application type from image store path " + buildPath);
+        try {
+            context.getClient().provisionApplicationType(buildPath);
+        } catch (ServiceFabricException e) {
+            if (!context.isRetrying() || !ERROR_APPLICATION_TYPE_ALREADY_EXISTS.equals(e.getErrorCode())) {
+                throw e;
+            }
+            context.getLogger().println("Application type was provisioned by the previous attempt");
+        }
+    }
+}
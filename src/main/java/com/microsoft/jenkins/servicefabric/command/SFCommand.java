@@ -0,0 +1,20 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import java.io.IOException;
+
+/**
+ * One operation of the deployment sequence against the Service Fabric cluster.
+ */
+public interface SFCommand {
+    /**
+     * @return short name of the operation, used in the build log.
+     */
+    String getName();
+
+    void execute(SFCommandContext context) throws IOException, InterruptedException;
+}
@@ -5,174 +5,104 @@
  */
 package com.microsoft.jenkins.servicefabric.command;
 
+import com.microsoft.jenkins.servicefabric.manifest.ApplicationManifest;
+import hudson.AbortException;
 import hudson.FilePath;
-import org.w3c.dom.Document;
-import org.xml.sax.SAXException;
+import org.apache.commons.lang.StringUtils;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.File;
 import java.io.IOException;
-import java.util.logging.Level;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Logger;
 
 public class SFCommandBuilder {
     private static final Logger LOGGER = Logger.getLogger(SFCommandBuilder.class.getName());
 
-    // declare the command templates
-    private static final String SF_CONNECT =
-            "sfctl cluster select --endpoint http://{clusterIP}:19080";
-    private static final String SF_SECURE_CONNECT =
-            "sfctl cluster select --endpoint https://{clusterIP}:19080 "
-                    + "--key {clientKey} --cert {clientCert} --no-verify";
-    private static final String SF_COPY =
-            "sfctl application upload --path {appName} --show-progress";
-    private static final String SF_REGISTER_TYPE =
-            "sfctl application provision --application-type-build-path {appName}";
-    private static final String SF_APPLICATION_CREATE =
-            "sfctl application create --app-name {appName} --app-type {appType} --app-version {appVersion}";
-    private static final String SF_APPLICATION_UPGRADE =
-            "sfctl application upgrade --application-id {appId} --application-version {appVersion} --parameters {}"
-            + " --mode Monitored";
-    private static final String SF_APPLICATION_REMOVE =
-            "sfctl application delete --application-id {appId}";
-    private static final String SF_APPLICATION_UNREGISTER =
-            "sfctl application unprovision --application-type-name {appType} --application-type-version {appVersion}";
-
     private FilePath workspace;
     private String appName;
     private String appType;
-    private String clusterIP;
     private String manifestPath;
-    private String clientKey;
-    private String clientCert;
+    private DeployOptions options;
 
     public SFCommandBuilder(FilePath workspace,
                             String applicationName,
                             String applicationType,
-                            String clusterIP,
                             String manifestPath,
-                            String clientKey,
-                            String clientCert) {
+                            DeployOptions options) {
         this.workspace = workspace;
         this.appName = applicationName;
         this.appType = applicationType;
-        this.clusterIP = clusterIP;
         this.manifestPath = manifestPath;
-        this.clientKey = clientKey;
-        this.clientCert = clientCert;
+        this.options = options;
     }
 
     /**
-     * Build and return the output command.
+     * Build and return the commands of the deployment, in the order to be executed.
      */
-    public String buildCommands() {
-
-        String appId = getAppIdFromName(appName);
-        String targetVersion = checkTargetApplicationManifestVersion(workspace, manifestPath);
-
-        // start building the command. note that since Jenkins resets its
-        // location after each command,
-        // we put everything into one big command in order to avoid having to
-        // move locations over and over
-        String outputCommand = "";
-
-        // start by connecting to the cluster -- see if this is a secure cluster
-        // or not
-        if (isSecureCluster()) {
-            // implies this is a secure cluster
-            outputCommand += SF_SECURE_CONNECT.replace("{clusterIP}", clusterIP).replace("{clientKey}", clientKey)
-                    .replace("{clientCert}", clientCert);
-        } else {
-            // non-secure cluster
-            outputCommand += SF_CONNECT.replace("{clusterIP}", clusterIP);
-        }
-
-        outputCommand += " && " + createCheckCleanCommand(appId, appType, targetVersion);
-
-        // make the command: move into the application package folder
-        // Getting application path from the appilcation-manifest path input in
-        // Jenkins portal
-        String tmpString = manifestPath.substring(0, manifestPath.lastIndexOf('/', manifestPath.length() - 1));
-        String applicationPath;
-        if (tmpString.lastIndexOf('/', tmpString.length() - 1) != -1) {
-            applicationPath = tmpString.substring(0, tmpString.lastIndexOf('/', tmpString.length() - 1));
-        } else {
-            applicationPath = "..";
+    public List<SFCommand> buildCommands() throws IOException, InterruptedException {
+
+        String appId = toApplicationId(appName);
+        StagedPackage staged = stagePackage();
+        ApplicationManifest manifest = staged.getManifest();
+        String targetVersion = manifest.getApplicationTypeVersion();
+
+        // The application package is the folder containing the application manifest. It's uploaded to the
+        // image store path named after the application, which is then used as the build path of the provision.
+        // The path is unique per application in the cluster, and the deployments of an application to a cluster
+        // are serialized by DeployLocks, so no two deployments upload to the same path at the same time. It stays
+        // the same across versions, so that an incremental upload reuses the files of the previous one.
+        String packagePath = getPackagePath(manifestPath);
+        String storePath = appId;
+
+        List<SFCommand> commands = new ArrayList<>();
+        commands.add(new ConnectCommand());
+        commands.add(new PlanCommand(appId, appType, targetVersion,
+                options.isSkipUnchanged() ? staged.getDigest() : null));
+        commands.add(new CheckCleanCommand(appId, appType));
+        if (options.isDiffPackage()) {
+            commands.add(new DiffCommand(appType, manifest));
         }
-        outputCommand += "&& cd " + applicationPath;
-
-        // add on the different commands: copy -> register -> create
-        outputCommand += " && " + (SF_COPY.replace("{appName}", appName.replace("fabric:/", "")));
-        outputCommand += " && " + (SF_REGISTER_TYPE.replace("{appName}", appName.replace("fabric:/", "")));
+        commands.add(new UploadCommand(packagePath, storePath,
+                options.isIncrementalUpload() ? staged.getDigest() : null, options.getCompressionLevel()));
+        commands.add(new ProvisionCommand(storePath));
+        commands.add(new UpgradeOrInstallCommand(appId, appName, appType, options));
 
-        outputCommand += " && " + createUpgradeOrInstallCommand(appId, appName, appType, targetVersion);
-
-        LOGGER.info("Command to be run:" + outputCommand);
-        return outputCommand;
+        LOGGER.info(String.format("Deploy %s version %s from %s", appName, targetVersion, packagePath));
+        return commands;
     }
 
-    private String getAppIdFromName(String name) {
+    /**
+     * @return the application id, i.e., the application name without the {@code fabric:/} scheme.
+     */
+    static String toApplicationId(String name) {
         return name.substring(name.indexOf(":/") + 2);
     }
 
-    private boolean isSecureCluster() {
-        return !this.clientKey.isEmpty() && !this.clientCert.isEmpty();
-    }
-
-    private String createCheckCleanCommand(String appId, String type, String appVersion) {
-        String checkUninstall =
-                "if [ `sfctl application info --application-id {appId} | wc -l` -ne 0 ]; "
-                        + "then "
-                        + "if [ `sfctl application info --application-id {appId} | grep {appVersion} | wc -l` -eq 1 ]; "
-                        + "then "
-                        + SF_APPLICATION_REMOVE + " && " + SF_APPLICATION_UNREGISTER + "; "
-                        + "fi; "
-                        + "fi";
-        return checkUninstall.replace("{appId}", appId).replace("{appType}", type).replace("{appVersion}",
-                appVersion);
-    }
-
-    private String createUpgradeOrInstallCommand(String appId, String name, String type, String appVersion) {
-        String upgradeOrInstallCommand =
-                "if [ `sfctl application info --application-id {appId} | wc -l` -ne 0 ]; "
-                        + "then "
-                        + "if [ `sfctl application info --application-id {appId} | grep {appVersion} | wc -l` -eq 0 ]; "
-                        + "then "
-                        + SF_APPLICATION_UPGRADE + "; "
-                        + "fi; "
-                        + "else " + SF_APPLICATION_CREATE + "; "
-                        + "fi";
-        return upgradeOrInstallCommand.replace("{appId}", appId).replace("{appType}", type)
-                .replace("{appVersion}", appVersion).replace("{appName}", name);
+    private static String getPackagePath(String path) {
+        int index = path.lastIndexOf('/');
+        if (index <= 0) {
+            return ".";
+        }
+        return path.substring(0, index);
     }
 
-    private String checkTargetApplicationManifestVersion(FilePath ws, String filePath) {
-
-        String targetVersion,
-                newFilePath = workspace.child(filePath).getRemote();
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder;
-        Document applicationManifest;
-        try {
-            builder = factory.newDocumentBuilder();
-        } catch (ParserConfigurationException e) {
-            LOGGER.log(Level.SEVERE, "ParserConfigurationException:" + e);
-            throw new RuntimeException(e.getMessage());
+    /**
+     * Reads the application manifest, and hashes the package if needed, on the node holding the workspace. Checks
+     * the manifest matches the application type.
+     */
+    private StagedPackage stagePackage() throws IOException, InterruptedException {
+        StagedPackage staged = StagedPackage.stage(workspace.child(manifestPath),
+                options.isSkipUnchanged() || options.isIncrementalUpload());
+        ApplicationManifest manifest = staged.getManifest();
+        if (StringUtils.isNotEmpty(appType) && !appType.equals(manifest.getApplicationTypeName())) {
+            throw new AbortException(String.format("Application manifest %s is for application type %s, not %s",
+                    manifestPath, manifest.getApplicationTypeName(), appType));
         }
-        try {
-            applicationManifest = builder.parse(new File(newFilePath));
-        } catch (SAXException e) {
-            LOGGER.log(Level.SEVERE, "SAXException:" + e);
-            throw new RuntimeException(e.getMessage());
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "IOException:" + e);
-            throw new RuntimeException(e.getMessage());
+        String targetVersion = manifest.getApplicationTypeVersion();
+        if (StringUtils.isBlank(targetVersion)) {
+            throw new AbortException("Application manifest " + manifestPath + " has no ApplicationTypeVersion");
         }
-        targetVersion = applicationManifest.getDocumentElement().getAttribute("ApplicationTypeVersion");
-        return targetVersion;
-
+        return staged;
     }
 
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import com.microsoft.jenkins.servicefabric.metrics.DeployTimings;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricClient;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricEndpoint;
+import hudson.FilePath;
+import hudson.model.TaskListener;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Shared state of the commands of one deployment.
+ */
+public class SFCommandContext {
+    private final ServiceFabricEndpoint endpoint;
+    private final FilePath workspace;
+    private final TaskListener listener;
+    private final DeployTimings timings = new DeployTimings();
+
+    private ServiceFabricClient client;
+    private DeployPlan plan;
+    private boolean upgradeStarted;
+    private String packageFingerprint;
+    private boolean completed;
+    private boolean retrying;
+    private Set<String> excludedPaths = Collections.emptySet();
+
+    public SFCommandContext(ServiceFabricEndpoint endpoint, FilePath workspace, TaskListener listener) {
+        this.endpoint = endpoint;
+        this.workspace = workspace;
+        this.listener = listener;
+    }
+
+    public ServiceFabricEndpoint getEndpoint() {
+        return endpoint;
+    }
+
+    public FilePath getWorkspace() {
+        return workspace;
+    }
+
+    public TaskListener getListener() {
+        return listener;
+    }
+
+    public PrintStream getLogger() {
+        return listener.getLogger();
+    }
+
+    public DeployTimings getTimings() {
+        return timings;
+    }
+
+    public ServiceFabricClient getClient() throws IOException {
+        if (client == null) {
+            client = ServiceFabricClient.forEndpoint(endpoint);
+        }
+        return client;
+    }
+
+    /**
+     * @return the deploy plan made from the application state queried at the start of the deployment.
+     */
+    public DeployPlan getPlan() {
+        if (plan == null) {
+            throw new IllegalStateException("The deployment has not been planned yet");
+        }
+        return plan;
+    }
+
+    public void setPlan(DeployPlan plan) {
+        this.plan = plan;
+    }
+
+    /**
+     * @return whether a rolling upgrade was started, which completes after the commands.
+     */
+    public boolean isUpgradeStarted() {
+        return upgradeStarted;
+    }
+
+    public void setUpgradeStarted(boolean upgradeStarted) {
+        this.upgradeStarted = upgradeStarted;
+    }
+
+    /**
+     * @return the fingerprint of the application package to record once deployed, or {@code null} if not computed.
+     */
+    public String getPackageFingerprint() {
+        return packageFingerprint;
+    }
+
+    public void setPackageFingerprint(String packageFingerprint) {
+        this.packageFingerprint = packageFingerprint;
+    }
+
+    /**
+     * @return whether the deployment is already complete, so the remaining commands are not run.
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    /**
+     * @return whether the command is run again after a transient failure, which may have happened after the
+     * command took effect in the cluster.
+     */
+    public boolean isRetrying() {
+        return retrying;
+    }
+
+    public void setRetrying(boolean retrying) {
+        this.retrying = retrying;
+    }
+
+    /**
+     * @return the paths relative to the application package directory that are left out of the upload.
+     */
+    public Set<String> getExcludedPaths() {
+        return excludedPaths;
+    }
+
+    public void setExcludedPaths(Set<String> excludedPaths) {
+        this.excludedPaths = excludedPaths;
+    }
+}
@@ -0,0 +1,422 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import hudson.util.StreamTaskListener;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the deployments of several applications, possibly to several clusters, concurrently with a bounded number
+ * of workers.
+ * <p>
+ * The output of the deployments is streamed to the build log as it is produced, each line prefixed with the
+ * cluster and the application it comes from.
+ * <p>
+ * The deployments run on a pool shared by all the builds, bounded to {@link #MAX_THREADS} threads; the deployments
+ * started beyond that wait in its queue. Nothing waits for them: the next deployment is started when one completes,
+ * and the caller is notified through a {@link Callback} when all are done.
+ * <p>
+ * A deployment only starts once it holds the {@link DeployLocks lock} of its application in its cluster, so that it
+ * does not conflict with another build deploying the same application. While queued for the lock, it holds neither
+ * a thread nor a slot of the pool, and the other deployments go on. With {@link DeployOptions#isSkipSuperseded()},
+ * it is not deployed if a newer build of the job comes to deploy the same application meanwhile; the deployments of
+ * the next waves are then not deployed either.
+ */
+public class SFDeployer {
+    private static final double MILLIS_PER_SECOND = 1000.0;
+
+    /**
+     * A deployment holds a thread while it checks the cluster, uploads the package and provisions it, but not while
+     * it waits for its lock, for a retry or for the upgrade to complete.
+     */
+    static final int MAX_THREADS = 16;
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    static final ExecutorService EXECUTOR = createExecutor();
+
+    /**
+     * Notified of the progress of the deployments, from the pool threads.
+     */
+    public interface Callback {
+        /**
+         * Called when a deployment completes, before the other deployments of its wave complete.
+         */
+        void onResult(DeployResult result);
+
+        /**
+         * Called once all the deployments completed or were skipped.
+         */
+        void onCompleted(List<DeployResult> results);
+
+        /**
+         * Called if the deployments could not be run to completion, e.g., the build log cannot be written.
+         */
+        void onFailure(Throwable t);
+    }
+
+    private final int maxParallel;
+    private final DeployLocks.Owner owner;
+    private final TaskListener listener;
+
+    /**
+     * @param run the build that deploys, shown to the other builds waiting to deploy the same applications.
+     */
+    public SFDeployer(int maxParallel, Run<?, ?> run, TaskListener listener) {
+        this.maxParallel = Math.max(1, maxParallel);
+        this.owner = new DeployLocks.Owner(run.getFullDisplayName(), run.getParent().getFullName(), run.getNumber());
+        this.listener = listener;
+    }
+
+    /**
+     * Runs all the deployments concurrently.
+     */
+    public List<DeployResult> deploy(List<ApplicationDeployment> deployments)
+            throws InterruptedException, IOException {
+        return deployInWaves(Collections.singletonList(deployments));
+    }
+
+    /**
+     * Runs the deployments wave by wave and waits for them to complete, see
+     * {@link #deployInWaves(List, Callback)}.
+     */
+    public List<DeployResult> deployInWaves(List<List<ApplicationDeployment>> waves)
+            throws InterruptedException, IOException {
+        final CountDownLatch done = new CountDownLatch(1);
+        final List<List<DeployResult>> results = new ArrayList<>(1);
+        final List<Throwable> failures = new ArrayList<>(1);
+        Handle handle = deployInWaves(waves, new Callback() {
+            @Override
+            public void onResult(DeployResult result) {
+                // reported when all complete
+            }
+
+            @Override
+            public void onCompleted(List<DeployResult> allResults) {
+                results.add(allResults);
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                failures.add(t);
+                done.countDown();
+            }
+        });
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            handle.cancel();
+            throw e;
+        }
+        if (!failures.isEmpty()) {
+            Throwable t = failures.get(0);
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            }
+            throw new IOException(t);
+        }
+        return results.get(0);
+    }
+
+    /**
+     * Starts the deployments wave by wave. The deployments of a wave run concurrently, and the next wave only
+     * starts if all the deployments of the previous waves succeeded; otherwise the remaining ones are skipped.
+     *
+     * @return a handle to cancel the deployments.
+     */
+    public Handle deployInWaves(List<List<ApplicationDeployment>> waves, Callback callback) {
+        int total = 0;
+        for (List<ApplicationDeployment> wave : waves) {
+            total += wave.size();
+        }
+        Handle handle = new Handle(waves, callback, total == 1);
+        handle.nextWave();
+        return handle;
+    }
+
+    /**
+     * State of the deployments started by {@link #deployInWaves(List, Callback)}.
+     */
+    public final class Handle {
+        private final List<List<ApplicationDeployment>> waves;
+        private final Callback callback;
+        /**
+         * With a single deployment, there is nothing to interleave with, so it writes to the build log directly.
+         */
+        private final boolean direct;
+        private final List<DeployResult> results = new ArrayList<>();
+
+        private int waveIndex = -1;
+        private String failedWave;
+        private String supersededReason;
+        private boolean cancelled;
+
+        private List<ApplicationDeployment> wave;
+        private DeployResult[] waveResults;
+        private PrefixedLogStream[] streams;
+        private DeployLocks.Ticket[] tickets;
+        private final Set<ApplicationDeployment> active = new HashSet<>();
+        /**
+         * Deployments of the current wave queued for their lock, by index in the wave.
+         */
+        private final Map<Integer, ApplicationDeployment> queued = new HashMap<>();
+        private int started;
+        private int remaining;
+
+        private Handle(List<List<ApplicationDeployment>> waves, Callback callback, boolean direct) {
+            this.waves = waves;
+            this.callback = callback;
+            this.direct = direct;
+        }
+
+        /**
+         * Interrupts the running deployments and skips the ones not started yet.
+         */
+        public void cancel() {
+            List<ApplicationDeployment> toCancel;
+            Map<Integer, ApplicationDeployment> toDequeue;
+            synchronized (this) {
+                cancelled = true;
+                toCancel = new ArrayList<>(active);
+                toDequeue = new HashMap<>(queued);
+            }
+            // outside of the lock, as a cancelled deployment completes through this handle
+            for (ApplicationDeployment deployment : toCancel) {
+                deployment.cancel();
+            }
+            for (Map.Entry<Integer, ApplicationDeployment> entry : toDequeue.entrySet()) {
+                // if the lock was granted meanwhile, the deployment is skipped as it starts
+                if (ticketOf(entry.getKey()).cancel()) {
+                    ApplicationDeployment task = entry.getValue();
+                    completed(entry.getKey(), task, DeployResult.skipped(task.getCluster(),
+                            task.getApplicationName(), "deployment was cancelled"));
+                }
+            }
+        }
+
+        private synchronized DeployLocks.Ticket ticketOf(int index) {
+            return tickets[index];
+        }
+
+        private synchronized void nextWave() {
+            PrintStream logger = listener.getLogger();
+            while (++waveIndex < waves.size()) {
+                List<ApplicationDeployment> next = waves.get(waveIndex);
+                if (next.isEmpty()) {
+                    continue;
+                }
+                if (failedWave != null || cancelled) {
+                    String reason = cancelled ? "deployment was cancelled" : "deployment failed in " + failedWave;
+                    for (ApplicationDeployment deployment : next) {
+                        DeployResult result = DeployResult.skipped(deployment.getCluster(),
+                                deployment.getApplicationName(), reason);
+                        results.add(result);
+                        callback.onResult(result);
+                    }
+                    continue;
+                }
+                if (supersededReason != null) {
+                    for (ApplicationDeployment deployment : next) {
+                        DeployResult result = DeployResult.superseded(deployment.getCluster(),
+                                deployment.getApplicationName(), supersededReason);
+                        results.add(result);
+                        callback.onResult(result);
+                    }
+                    continue;
+                }
+                if (waves.size() > 1) {
+                    logger.println(String.format("Deploying wave %d of %d", waveIndex + 1, waves.size()));
+                }
+                wave = next;
+                waveResults = new DeployResult[wave.size()];
+                streams = new PrefixedLogStream[wave.size()];
+                tickets = new DeployLocks.Ticket[wave.size()];
+                started = 0;
+                remaining = wave.size();
+                while (started < Math.min(maxParallel, wave.size())) {
+                    launch(started++);
+                }
+                return;
+            }
+
+            if (!direct) {
+                printSummary(logger, results);
+            }
+            callback.onCompleted(results);
+        }
+
+        private void launch(final int index) {
+            ApplicationDeployment deployment = wave.get(index);
+            TaskListener deploymentListener = listener;
+            if (!direct) {
+                streams[index] = new PrefixedLogStream(listener.getLogger(), String.format("[%s] %s | ",
+                        deployment.getCluster(), deployment.getApplicationName()));
+                deploymentListener = new StreamTaskListener(streams[index], StandardCharsets.UTF_8);
+            }
+            final ApplicationDeployment task = deployment.withListener(deploymentListener);
+            final PrintStream logger = deploymentListener.getLogger();
+            queued.put(index, task);
+            // called back from this thread if the lock is free, otherwise when released by another deployment
+            tickets[index] = DeployLocks.acquire(task.getEndpoint(), task.getApplicationName(), owner,
+                    task.getOptions().isSkipSuperseded(), new DeployLocks.Listener() {
+                        @Override
+                        public void queued(int position, String holder, long waited) {
+                            logger.println(String.format(Locale.ROOT, "Waiting for %s to complete its deployment "
+                                    + "of the application, %d ahead in the queue after %.1f s",
+                                    holder, position, waited / MILLIS_PER_SECOND));
+                        }
+
+                        @Override
+                        public void acquired(long waited) {
+                            if (waited > 0) {
+                                logger.println(String.format(Locale.ROOT, "Deploying after waiting %.1f s in the "
+                                        + "queue", waited / MILLIS_PER_SECOND));
+                            }
+                            run(index, task);
+                        }
+
+                        @Override
+                        public void superseded(final String by) {
+                            logger.println(String.format("Not deploying, %s deploys the application next", by));
+                            EXECUTOR.execute(new Runnable() {
+                                @Override
+                                public void run() {
+                                    completed(index, task, DeployResult.superseded(task.getCluster(),
+                                            task.getApplicationName(), "superseded by " + by));
+                                }
+                            });
+                        }
+                    });
+        }
+
+        private void run(final int index, final ApplicationDeployment task) {
+            EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (!started(index, task)) {
+                        completed(index, task, DeployResult.skipped(task.getCluster(), task.getApplicationName(),
+                                "deployment was cancelled"));
+                        return;
+                    }
+                    try {
+                        task.start(EXECUTOR, new ApplicationDeployment.Completion() {
+                            @Override
+                            public void completed(DeployResult result) {
+                                Handle.this.completed(index, task, result);
+                            }
+                        });
+                    } catch (RuntimeException e) {
+                        completed(index, task, DeployResult.failure(task.getCluster(), task.getApplicationName(),
+                                e.toString(), 0));
+                    }
+                }
+            });
+        }
+
+        /**
+         * @return {@code false} if the deployments were cancelled and this one must not run.
+         */
+        private synchronized boolean started(int index, ApplicationDeployment task) {
+            queued.remove(index);
+            if (cancelled) {
+                return false;
+            }
+            active.add(task);
+            return true;
+        }
+
+        private synchronized void completed(int index, ApplicationDeployment task, DeployResult result) {
+            active.remove(task);
+            queued.remove(index);
+            tickets[index].release();
+            waveResults[index] = result;
+            try {
+                if (!direct) {
+                    streams[index].close();
+                    listener.getLogger().println(result);
+                }
+            } catch (IOException | RuntimeException e) {
+                callback.onFailure(e);
+                return;
+            }
+            callback.onResult(result);
+            remaining--;
+            if (started < wave.size()) {
+                launch(started++);
+            }
+            if (remaining > 0) {
+                return;
+            }
+
+            for (DeployResult waveResult : waveResults) {
+                results.add(waveResult);
+                if (waveResult.isSuperseded()) {
+                    if (supersededReason == null) {
+                        supersededReason = waveResult.getMessage() + " in wave " + (waveIndex + 1);
+                    }
+                } else if (!waveResult.isSuccess() && failedWave == null) {
+                    failedWave = "wave " + (waveIndex + 1);
+                }
+            }
+            nextWave();
+        }
+    }
+
+    private static ExecutorService createExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS,
+                THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new NamingThreadFactory(new DaemonThreadFactory(), SFDeployer.class.getSimpleName()));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static void printSummary(PrintStream logger, List<DeployResult> results) {
+        logger.println("Deployment results:");
+        Map<String, int[]> clusters = new LinkedHashMap<>();
+        for (DeployResult result : results) {
+            logger.println("    " + result);
+            int[] counts = clusters.get(result.getCluster());
+            if (counts == null) {
+                counts = new int[DeployResult.Status.values().length];
+                clusters.put(result.getCluster(), counts);
+            }
+            counts[result.getStatus().ordinal()]++;
+        }
+        if (clusters.size() > 1) {
+            logger.println("Cluster results:");
+            for (Map.Entry<String, int[]> entry : clusters.entrySet()) {
+                int[] counts = entry.getValue();
+                logger.println(String.format("    [%s] %d succeeded, %d failed, %d skipped, %d superseded",
+                        entry.getKey(),
+                        counts[DeployResult.Status.SUCCESS.ordinal()],
+                        counts[DeployResult.Status.FAILED.ordinal()],
+                        counts[DeployResult.Status.SKIPPED.ordinal()],
+                        counts[DeployResult.Status.SUPERSEDED.ordinal()]));
+            }
+        }
+    }
+}
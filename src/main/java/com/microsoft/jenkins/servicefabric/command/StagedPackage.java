@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import com.microsoft.jenkins.servicefabric.manifest.ApplicationManifest;
+import com.microsoft.jenkins.servicefabric.manifest.ManifestReader;
+import com.microsoft.jenkins.servicefabric.upload.PackageDigest;
+import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * What the deployment needs to know about the application package, gathered in a single call to the node that holds
+ * the workspace: the manifests, and the digest of the package files when unchanged packages are skipped or the
+ * upload is incremental.
+ * <p>
+ * Only these small results come back to the master; the package content is read, and later uploaded, on the node.
+ * The digest is used for the rest of the deployment, so the package is only hashed once; the workspace is not
+ * expected to change while it is deployed.
+ */
+final class StagedPackage implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final ApplicationManifest manifest;
+    private final PackageDigest digest;
+
+    private StagedPackage(ApplicationManifest manifest, PackageDigest digest) {
+        this.manifest = manifest;
+        this.digest = digest;
+    }
+
+    /**
+     * Reads the application manifest and, if asked, hashes the package directory that contains it.
+     *
+     * @param applicationManifest the application manifest in the workspace.
+     * @param withDigest          whether to compute the digest of the package files.
+     */
+    static StagedPackage stage(FilePath applicationManifest, boolean withDigest)
+            throws IOException, InterruptedException {
+        return applicationManifest.act(new StageCallable(withDigest));
+    }
+
+    ApplicationManifest getManifest() {
+        return manifest;
+    }
+
+    /**
+     * @return the digest of the package files, or {@code null} if it was not computed.
+     */
+    PackageDigest getDigest() {
+        return digest;
+    }
+
+    private static final class StageCallable extends MasterToSlaveFileCallable<StagedPackage> {
+        private static final long serialVersionUID = 1L;
+
+        private final boolean withDigest;
+
+        StageCallable(boolean withDigest) {
+            this.withDigest = withDigest;
+        }
+
+        @Override
+        public StagedPackage invoke(File f, VirtualChannel channel) throws IOException {
+            ApplicationManifest manifest = ManifestReader.read(f);
+            PackageDigest digest = withDigest
+                    ? PackageDigest.compute(f.getAbsoluteFile().getParentFile())
+                    : null;
+            return new StagedPackage(manifest, digest);
+        }
+    }
+}
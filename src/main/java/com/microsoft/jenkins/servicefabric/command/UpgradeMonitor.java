@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import com.microsoft.jenkins.servicefabric.rest.ApplicationUpgradeProgress;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricClient;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows a rolling application upgrade until it completes or is rolled back, and writes the progress of each
+ * upgrade domain to the log.
+ * <p>
+ * No thread waits for the upgrade: a small scheduler shared by all the deployments only waits for the next poll,
+ * which it hands to the deployment pool when due, so a slow or unreachable cluster never delays the polls of the
+ * other upgrades. The poll interval starts short and grows while nothing changes, and is reset when an upgrade
+ * domain progresses.
+ */
+final class UpgradeMonitor {
+    private static final ScheduledExecutorService SHARED_SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new NamingThreadFactory(new DaemonThreadFactory(), UpgradeMonitor.class.getSimpleName()));
+
+    static final long MIN_POLL_INTERVAL_MILLIS = 1000;
+    static final long MAX_POLL_INTERVAL_MILLIS = 15000;
+    private static final int POLL_BACKOFF_FACTOR = 2;
+    private static final int MAX_CONSECUTIVE_ERRORS = 5;
+    /**
+     * Allowance over the upgrade timeout for the cluster to roll back and report it.
+     */
+    static final long ROLLBACK_GRACE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    /**
+     * Time for the cluster to report the new upgrade instead of the previous one.
+     */
+    static final long START_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    /**
+     * How long an upgrade without a timeout is followed. The cluster does not limit it, so a stuck upgrade domain
+     * would otherwise keep the build waiting forever.
+     */
+    static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.HOURS.toMillis(12);
+
+    /**
+     * Notified of the end of the upgrade, from the thread of the last poll.
+     */
+    interface Callback {
+        void onCompleted();
+
+        void onFailed(String message);
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final ServiceFabricClient client;
+    private final String appId;
+    private final String targetVersion;
+    private final PrintStream logger;
+    private final long startDeadline;
+    private final long deadline;
+    private final boolean limitedByCluster;
+
+    private final Map<String, String> domainStates = new HashMap<>();
+    private String upgradeState;
+    private long interval = MIN_POLL_INTERVAL_MILLIS;
+    private int consecutiveErrors;
+
+    private Executor executor;
+    private Callback callback;
+    private ScheduledFuture<?> next;
+    private boolean done;
+
+    /**
+     * @param upgradeTimeoutMinutes the upgrade timeout given to the cluster, 0 for no limit, in which case the
+     *                              upgrade is followed for {@link #DEFAULT_TIMEOUT_MILLIS}.
+     */
+    UpgradeMonitor(ServiceFabricClient client,
+                   String appId,
+                   String targetVersion,
+                   PrintStream logger,
+                   int upgradeTimeoutMinutes) {
+        this(SHARED_SCHEDULER, client, appId, targetVersion, logger, upgradeTimeoutMinutes > 0,
+                timeoutMillisOf(upgradeTimeoutMinutes), START_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param limitedByCluster   whether the cluster rolls the upgrade back after its own timeout.
+     * @param timeoutMillis      how long the upgrade is followed.
+     * @param startTimeoutMillis how long the cluster may still report the previous upgrade.
+     */
+    UpgradeMonitor(ScheduledExecutorService scheduler,
+                   ServiceFabricClient client,
+                   String appId,
+                   String targetVersion,
+                   PrintStream logger,
+                   boolean limitedByCluster,
+                   long timeoutMillis,
+                   long startTimeoutMillis) {
+        this.scheduler = scheduler;
+        this.client = client;
+        this.appId = appId;
+        this.targetVersion = targetVersion;
+        this.logger = logger;
+        this.limitedByCluster = limitedByCluster;
+        this.startDeadline = System.currentTimeMillis() + startTimeoutMillis;
+        this.deadline = System.currentTimeMillis() + timeoutMillis;
+    }
+
+    /**
+     * @return how long an upgrade with the given timeout is followed: the timeout and the time to roll back, or
+     * {@link #DEFAULT_TIMEOUT_MILLIS} without a timeout.
+     */
+    static long timeoutMillisOf(int upgradeTimeoutMinutes) {
+        return upgradeTimeoutMinutes > 0
+                ? TimeUnit.MINUTES.toMillis(upgradeTimeoutMinutes) + ROLLBACK_GRACE_MILLIS
+                : DEFAULT_TIMEOUT_MILLIS;
+    }
+
+    /**
+     * @param pollExecutor runs the polls, which block on the requests to the cluster.
+     */
+    void start(Executor pollExecutor, Callback newCallback) {
+        this.executor = pollExecutor;
+        this.callback = newCallback;
+        schedule(0);
+    }
+
+    /**
+     * Stops following the upgrade. The upgrade itself goes on in the cluster.
+     */
+    void cancel() {
+        synchronized (this) {
+            if (next != null) {
+                next.cancel(false);
+            }
+        }
+        finish(false, "Stopped following the upgrade of " + appId + ", it goes on in the cluster");
+    }
+
+    private synchronized void schedule(long delayMillis) {
+        if (done) {
+            return;
+        }
+        next = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        poll();
+                    }
+                });
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Only one poll runs at a time, as the next one is scheduled at the end of the previous one.
+     */
+    private void poll() {
+        ApplicationUpgradeProgress progress;
+        try {
+            progress = client.getApplicationUpgradeProgress(appId);
+            consecutiveErrors = 0;
+        } catch (IOException e) {
+            if (++consecutiveErrors >= MAX_CONSECUTIVE_ERRORS) {
+                finish(false, "Failed to get the upgrade progress of " + appId + ": " + e.getMessage());
+                return;
+            }
+            logger.println("Failed to get the upgrade progress, retrying: " + e.getMessage());
+            scheduleNext(false);
+            return;
+        }
+
+        if (!targetVersion.equals(progress.getTargetVersion())) {
+            // the cluster still reports the previous upgrade
+            if (System.currentTimeMillis() > startDeadline) {
+                finish(false, String.format("Upgrade of %s to version %s did not start, the cluster reports "
+                        + "version %s", appId, targetVersion, progress.getTargetVersion()));
+            } else {
+                scheduleNext(false);
+            }
+            return;
+        }
+        boolean changed = report(progress);
+        if (progress.isCompleted()) {
+            finish(true, null);
+        } else if (progress.isAborted()) {
+            String reason = progress.getFailureReason() == null ? "" : " (" + progress.getFailureReason() + ")";
+            finish(false, String.format("Upgrade of %s to version %s ended in %s%s",
+                    appId, progress.getTargetVersion(), progress.getUpgradeState(), reason));
+        } else if (System.currentTimeMillis() > deadline && limitedByCluster) {
+            finish(false, String.format("Upgrade of %s did not complete in time, it is still %s",
+                    appId, progress.getUpgradeState()));
+        } else if (System.currentTimeMillis() > deadline) {
+            finish(false, String.format("Upgrade of %s did not complete in %d hours, it is still %s and goes on in "
+                    + "the cluster", appId, TimeUnit.MILLISECONDS.toHours(DEFAULT_TIMEOUT_MILLIS),
+                    progress.getUpgradeState()));
+        } else {
+            scheduleNext(changed);
+        }
+    }
+
+    /**
+     * Writes the changes since the previous poll to the log, and the state of each upgrade domain on first sight.
+     *
+     * @return whether anything changed.
+     */
+    private boolean report(ApplicationUpgradeProgress progress) {
+        boolean changed = false;
+        if (!StringUtils.equals(progress.getUpgradeState(), upgradeState)) {
+            upgradeState = progress.getUpgradeState();
+            String details = progress.getUpgradeStatusDetails();
+            logger.println(String.format("Upgrade to version %s: %s%s", progress.getTargetVersion(), upgradeState,
+                    details == null || details.isEmpty() ? "" : " - " + details));
+            changed = true;
+        }
+        boolean first = domainStates.isEmpty();
+        List<String> seen = new ArrayList<>();
+        for (Map.Entry<String, String> domain : progress.getUpgradeDomains().entrySet()) {
+            boolean known = domainStates.containsKey(domain.getKey());
+            String previous = domainStates.put(domain.getKey(), domain.getValue());
+            if (first) {
+                seen.add(String.format("%s (%s)", domain.getKey(), domain.getValue()));
+            } else if (!known || !StringUtils.equals(previous, domain.getValue())) {
+                logger.println(String.format("    Upgrade domain %s: %s", domain.getKey(), domain.getValue()));
+                changed = true;
+            }
+        }
+        if (!seen.isEmpty()) {
+            logger.println("Upgrade domains: " + StringUtils.join(seen, ", "));
+        }
+        return changed;
+    }
+
+    private void scheduleNext(boolean changed) {
+        interval = changed ? MIN_POLL_INTERVAL_MILLIS : Math.min(MAX_POLL_INTERVAL_MILLIS,
+                interval * POLL_BACKOFF_FACTOR);
+        schedule(interval);
+    }
+
+    /**
+     * Notifies the callback once, outside of the lock, as it completes the deployment.
+     */
+    private void finish(boolean success, String message) {
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+            done = true;
+        }
+        if (success) {
+            logger.println("Upgrade of " + appId + " completed");
+            callback.onCompleted();
+        } else {
+            callback.onFailed(message);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import com.microsoft.jenkins.servicefabric.rest.ApplicationUpgradeProgress;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricClient;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricException;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upgrades the application if it exists with a different version, or creates it if it does not exist (anymore).
+ */
+final class UpgradeOrInstallCommand implements SFCommand {
+    private static final String ERROR_APPLICATION_ALREADY_EXISTS = "FABRIC_E_APPLICATION_ALREADY_EXISTS";
+    private static final String ERROR_UPGRADE_IN_PROGRESS = "FABRIC_E_APPLICATION_UPGRADE_IN_PROGRESS";
+
+    private final String appId;
+    private final String appName;
+    private final String appType;
+    private final DeployOptions options;
+
+    UpgradeOrInstallCommand(String appId, String appName, String appType, DeployOptions options) {
+        this.appId = appId;
+        this.appName = appName;
+        this.appType = appType;
+        this.options = options;
+    }
+
+    @Override
+    public String getName() {
+        return "Upgrade or install";
+    }
+
+    @Override
+    public void execute(SFCommandContext context) throws IOException {
+        ServiceFabricClient client = context.getClient();
+        DeployPlan plan = context.getPlan();
+        String appVersion = plan.getTargetVersion();
+        if (plan.getAction() == DeployPlan.Action.UPGRADE) {
+            context.getLogger().println(String.format("Upgrading application %s from version %s to %s",
+                    appName, plan.getCurrentVersion(), appVersion));
+            try {
+                client.upgradeApplication(appId, appName, appVersion,
+                        TimeUnit.MINUTES.toMillis(options.getUpgradeTimeoutMinutes()),
+                        TimeUnit.MINUTES.toMillis(options.getUpgradeDomainTimeoutMinutes()));
+            } catch (ServiceFabricException e) {
+                if (!context.isRetrying() || !ERROR_UPGRADE_IN_PROGRESS.equals(e.getErrorCode())
+                        || !isUpgradingTo(client, appVersion)) {
+                    throw e;
+                }
+                context.getLogger().println("Upgrade was started by the previous attempt");
+            }
+            context.setUpgradeStarted(true);
+        } else {
+            context.getLogger().println(String.format("Creating application %s of type %s version %s",
+                    appName, appType, appVersion));
+            try {
+                client.createApplication(appName, appType, appVersion);
+            } catch (ServiceFabricException e) {
+                if (!context.isRetrying() || !ERROR_APPLICATION_ALREADY_EXISTS.equals(e.getErrorCode())) {
+                    throw e;
+                }
+                context.getLogger().println("Application was created by the previous attempt");
+            }
+        }
+    }
+
+    /**
+     * @return whether the upgrade in progress is the one to the version deployed, rather than another one.
+     */
+    private boolean isUpgradingTo(ServiceFabricClient client, String appVersion) throws IOException {
+        ApplicationUpgradeProgress progress = client.getApplicationUpgradeProgress(appId);
+        return !progress.isAborted() && appVersion.equals(progress.getTargetVersion());
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricClient;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricEndpoint;
+import com.microsoft.jenkins.servicefabric.upload.ImageStoreDigests;
+import com.microsoft.jenkins.servicefabric.upload.ImageStoreUploader;
+import com.microsoft.jenkins.servicefabric.upload.PackageDigest;
+import com.microsoft.jenkins.servicefabric.upload.UploadStats;
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Uploads the application package to the cluster image store, replaces {@code sfctl application upload}.
+ * <p>
+ * The upload runs on the node that holds the workspace, so the package content does not go through the master.
+ * An incremental upload compares the digest staged with the package to the digest of the previous upload. A full
+ * upload can compress the code, config and data packages, which an incremental upload does not.
+ */
+final class UploadCommand implements SFCommand {
+    private final String packagePath;
+    private final String storePath;
+    private final PackageDigest packageDigest;
+    private final int compressionLevel;
+
+    /**
+     * @param packageDigest    the digest of the package for an incremental upload, {@code null} to upload the whole
+     *                         package.
+     * @param compressionLevel the deflate level of the zipped packages of a full upload, 0 to not compress them.
+     */
+    UploadCommand(String packagePath, String storePath, PackageDigest packageDigest, int compressionLevel) {
+        this.packagePath = packagePath;
+        this.storePath = storePath;
+        this.packageDigest = packageDigest;
+        this.compressionLevel = compressionLevel;
+    }
+
+    @Override
+    public String getName() {
+        return "Upload";
+    }
+
+    @Override
+    public void execute(SFCommandContext context) throws IOException, InterruptedException {
+        FilePath packageDir = context.getWorkspace().child(packagePath);
+        ServiceFabricEndpoint endpoint = context.getEndpoint();
+        context.getLogger().println(String.format("Uploading application package %s to image store path %s",
+                packageDir.getRemote(), storePath));
+        Set<String> excluded = new TreeSet<>(context.getExcludedPaths());
+        long start = System.currentTimeMillis();
+        UploadStats stats;
+        if (packageDigest != null) {
+            PackageDigest previous = ImageStoreDigests.load(endpoint, storePath);
+            if (previous == null) {
+                context.getLogger().println("No previous upload is recorded, uploading the whole package");
+            }
+            if (compressionLevel > 0) {
+                context.getLogger().println("Packages are not compressed by incremental uploads");
+            }
+            stats = packageDir.act(new IncrementalUploadCallable(endpoint, storePath,
+                    packageDigest.without(excluded), previous, context.getListener()));
+            ImageStoreDigests.save(endpoint, storePath, stats.getDigest());
+        } else {
+            stats = packageDir.act(
+                    new UploadCallable(endpoint, storePath, excluded, compressionLevel, context.getListener()));
+            context.getLogger().println(String.format("Uploaded %d files", stats.getFileCount()));
+        }
+        context.getTimings().recordUpload(stats.getBytes(), System.currentTimeMillis() - start);
+    }
+
+    private static final class UploadCallable extends MasterToSlaveFileCallable<UploadStats> {
+        private static final long serialVersionUID = 1L;
+
+        private final ServiceFabricEndpoint endpoint;
+        private final String storePath;
+        private final Set<String> excluded;
+        private final int compressionLevel;
+        private final TaskListener listener;
+
+        UploadCallable(ServiceFabricEndpoint endpoint, String storePath, Set<String> excluded,
+                       int compressionLevel, TaskListener listener) {
+            this.endpoint = endpoint;
+            this.storePath = storePath;
+            this.excluded = excluded;
+            this.compressionLevel = compressionLevel;
+            this.listener = listener;
+        }
+
+        @Override
+        public UploadStats invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
+            ServiceFabricClient client = ServiceFabricClient.forEndpoint(endpoint);
+            ImageStoreUploader uploader = new ImageStoreUploader(client, listener.getLogger(), compressionLevel);
+            uploader.upload(f, storePath, excluded);
+            return uploader.getStats(null);
+        }
+    }
+
+    private static final class IncrementalUploadCallable extends MasterToSlaveFileCallable<UploadStats> {
+        private static final long serialVersionUID = 1L;
+
+        private final ServiceFabricEndpoint endpoint;
+        private final String storePath;
+        private final PackageDigest local;
+        private final PackageDigest previous;
+        private final TaskListener listener;
+
+        IncrementalUploadCallable(ServiceFabricEndpoint endpoint,
+                                  String storePath,
+                                  PackageDigest local,
+                                  PackageDigest previous,
+                                  TaskListener listener) {
+            this.endpoint = endpoint;
+            this.storePath = storePath;
+            this.local = local;
+            this.previous = previous;
+            this.listener = listener;
+        }
+
+        @Override
+        public UploadStats invoke(File f, VirtualChannel channel)
+                throws IOException, InterruptedException {
+            ServiceFabricClient client = ServiceFabricClient.forEndpoint(endpoint);
+            ImageStoreUploader uploader = new ImageStoreUploader(client, listener.getLogger());
+            PackageDigest digest = uploader.uploadChanges(f, storePath, local, previous);
+            return uploader.getStats(digest);
+        }
+    }
+}
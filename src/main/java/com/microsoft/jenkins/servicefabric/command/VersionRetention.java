@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import com.microsoft.jenkins.servicefabric.rest.ApplicationInfo;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricClient;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricEndpoint;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Unprovisions the old versions of an application type after a successful deployment, keeping the most recent
+ * versions and every version in use by an application.
+ * <p>
+ * The cleanup runs in the background on a single thread shared by all the builds, so it never delays a deployment.
+ * At most {@link #BATCH_SIZE} versions are removed per cleanup, the remaining ones are removed after the next
+ * deployments. The cleanup of an application type is skipped while this Jenkins deploys it to the same cluster, as
+ * the version being deployed may be provisioned but not in use yet.
+ */
+final class VersionRetention {
+    private static final Logger LOGGER = Logger.getLogger(VersionRetention.class.getName());
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(
+            new NamingThreadFactory(new DaemonThreadFactory(), VersionRetention.class.getSimpleName()));
+
+    static final int BATCH_SIZE = 10;
+
+    private static final String UPGRADING_STATUS = "Upgrading";
+    private static final Pattern VERSION_SEPARATOR = Pattern.compile("[^0-9A-Za-z]+");
+
+    /**
+     * Number of deployments running from this Jenkins, keyed by cluster and application type.
+     */
+    private static final ConcurrentMap<String, AtomicInteger> ACTIVE = new ConcurrentHashMap<>();
+    private static final Set<String> SCHEDULED =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    static void deploymentStarted(ServiceFabricEndpoint endpoint, String appType) {
+        String key = keyOf(endpoint, appType);
+        AtomicInteger count = ACTIVE.get(key);
+        if (count == null) {
+            count = new AtomicInteger();
+            AtomicInteger existing = ACTIVE.putIfAbsent(key, count);
+            if (existing != null) {
+                count = existing;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    static void deploymentCompleted(ServiceFabricEndpoint endpoint, String appType) {
+        AtomicInteger count = ACTIVE.get(keyOf(endpoint, appType));
+        if (count != null) {
+            count.decrementAndGet();
+        }
+    }
+
+    /**
+     * Schedules the cleanup of the application type in the cluster, unless one is already scheduled.
+     *
+     * @param retained        the number of most recent versions to keep.
+     * @param deployedVersion the version just deployed, which is always kept.
+     */
+    static void schedule(final ServiceFabricClient client,
+                         final String appType,
+                         final int retained,
+                         final String deployedVersion) {
+        final String key = keyOf(client.getEndpoint(), appType);
+        if (!SCHEDULED.add(key)) {
+            return;
+        }
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                SCHEDULED.remove(key);
+                try {
+                    cleanUp(client, appType, retained, deployedVersion);
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.log(Level.WARNING, String.format("Failed to clean up the versions of application type "
+                            + "%s in %s", appType, client.getEndpoint().getHost()), e);
+                }
+            }
+        });
+    }
+
+    private static void cleanUp(ServiceFabricClient client, String appType, int retained, String deployedVersion)
+            throws IOException {
+        String cluster = client.getEndpoint().getHost();
+        String key = keyOf(client.getEndpoint(), appType);
+        if (isDeploying(key)) {
+            LOGGER.fine(String.format("Application type %s is being deployed to %s, cleanup skipped", appType,
+                    cluster));
+            return;
+        }
+
+        List<String> versions = client.listApplicationTypeVersions(appType);
+        Set<String> kept = new HashSet<>();
+        kept.add(deployedVersion);
+        for (ApplicationInfo application : client.listApplications(appType)) {
+            kept.add(application.getTypeVersion());
+            if (UPGRADING_STATUS.equals(application.getStatus())) {
+                kept.add(client.getApplicationUpgradeProgress(application.getId()).getTargetVersion());
+            }
+        }
+        Collections.sort(versions, Collections.reverseOrder(VERSION_ORDER));
+        kept.addAll(versions.subList(0, Math.min(retained, versions.size())));
+
+        List<String> removable = new ArrayList<>();
+        for (String version : versions) {
+            if (!kept.contains(version)) {
+                removable.add(version);
+            }
+        }
+        // oldest first
+        Collections.reverse(removable);
+        int removed = 0;
+        for (String version : removable.subList(0, Math.min(BATCH_SIZE, removable.size()))) {
+            if (isDeploying(key)) {
+                break;
+            }
+            try {
+                client.unprovisionApplicationType(appType, version);
+                removed++;
+                LOGGER.info(String.format("Unprovisioned application type %s version %s from %s", appType,
+                        version, cluster));
+            } catch (IOException e) {
+                // e.g., an application was created with the version in the meantime
+                LOGGER.log(Level.WARNING, String.format("Failed to unprovision application type %s version %s "
+                        + "from %s: %s", appType, version, cluster, e.getMessage()));
+            }
+        }
+        if (removable.size() > removed) {
+            LOGGER.info(String.format("%d old versions of application type %s remain in %s, they will be removed "
+                    + "after the next deployments", removable.size() - removed, appType, cluster));
+        }
+    }
+
+    private static boolean isDeploying(String key) {
+        AtomicInteger count = ACTIVE.get(key);
+        return count != null && count.get() > 0;
+    }
+
+    private static String keyOf(ServiceFabricEndpoint endpoint, String appType) {
+        return endpoint.getHost() + ":" + endpoint.getPort() + "/" + appType;
+    }
+
+    /**
+     * Orders the versions by their numeric parts, e.g., {@code 1.10.0} after {@code 1.9.0}, and by text otherwise.
+     */
+    static final Comparator<String> VERSION_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String a, String b) {
+            String[] partsA = VERSION_SEPARATOR.split(a);
+            String[] partsB = VERSION_SEPARATOR.split(b);
+            for (int i = 0; i < Math.min(partsA.length, partsB.length); i++) {
+                int result = comparePart(partsA[i], partsB[i]);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            if (partsA.length != partsB.length) {
+                return partsA.length < partsB.length ? -1 : 1;
+            }
+            return a.compareTo(b);
+        }
+
+        private int comparePart(String a, String b) {
+            boolean numericA = !a.isEmpty() && a.matches("\\d+");
+            boolean numericB = !b.isEmpty() && b.matches("\\d+");
+            if (numericA && numericB) {
+                // compare by length first so that long numbers do not overflow
+                String trimmedA = a.replaceFirst("^0+(?=\\d)", "");
+                String trimmedB = b.replaceFirst("^0+(?=\\d)", "");
+                if (trimmedA.length() != trimmedB.length()) {
+                    return trimmedA.length() < trimmedB.length() ? -1 : 1;
+                }
+                return trimmedA.compareTo(trimmedB);
+            }
+            if (numericA != numericB) {
+                // numbers before text, e.g., 1.0.0 before 1.0.beta
+                return numericA ? -1 : 1;
+            }
+            return a.compareTo(b);
+        }
+    };
+
+    private VersionRetention() {
+        // hide constructor
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.manifest;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The parts of an {@code ApplicationManifest.xml} the deployment is interested in, together with the service
+ * manifests it imports.
+ */
+public final class ApplicationManifest implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String applicationTypeName;
+    private final String applicationTypeVersion;
+    private final Map<String, String> parameters;
+    private final List<ManifestPackage> serviceManifestImports;
+    private final List<ServiceManifest> serviceManifests;
+
+    public ApplicationManifest(String applicationTypeName,
+                               String applicationTypeVersion,
+                               Map<String, String> parameters,
+                               List<ManifestPackage> serviceManifestImports,
+                               List<ServiceManifest> serviceManifests) {
+        this.applicationTypeName = applicationTypeName;
+        this.applicationTypeVersion = applicationTypeVersion;
+        this.parameters = parameters;
+        this.serviceManifestImports = serviceManifestImports;
+        this.serviceManifests = serviceManifests;
+    }
+
+    /**
+     * @return a copy of this manifest with the given service manifests.
+     */
+    ApplicationManifest withServiceManifests(List<ServiceManifest> manifests) {
+        return new ApplicationManifest(applicationTypeName, applicationTypeVersion, parameters,
+                serviceManifestImports, new ArrayList<>(manifests));
+    }
+
+    public String getApplicationTypeName() {
+        return applicationTypeName;
+    }
+
+    public String getApplicationTypeVersion() {
+        return applicationTypeVersion;
+    }
+
+    /**
+     * @return the default value of each application parameter, keyed by the parameter name.
+     */
+    public Map<String, String> getParameters() {
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    /**
+     * @return the name and version of the service manifests the application imports.
+     */
+    public List<ManifestPackage> getServiceManifestImports() {
+        return Collections.unmodifiableList(serviceManifestImports);
+    }
+
+    /**
+     * @return the imported service manifests found in the application package.
+     */
+    public List<ServiceManifest> getServiceManifests() {
+        return Collections.unmodifiableList(serviceManifests);
+    }
+
+    /**
+     * @return the imported service manifest of the given name, or {@code null} if it is not in the package.
+     */
+    public ServiceManifest getServiceManifest(String name) {
+        for (ServiceManifest manifest : serviceManifests) {
+            if (manifest.getName().equals(name)) {
+                return manifest;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.manifest;
+
+import java.io.Serializable;
+
+/**
+ * A named and versioned part of a manifest: a service manifest import, or a code, config or data package.
+ */
+public final class ManifestPackage implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+    private final String version;
+
+    public ManifestPackage(String name, String version) {
+        this.name = name;
+        this.version = version;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + version;
+    }
+}
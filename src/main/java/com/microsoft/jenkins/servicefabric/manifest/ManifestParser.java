@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.manifest;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses the Service Fabric manifests with a streaming StAX reader, only keeping the elements of the model.
+ */
+public final class ManifestParser {
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private static final int CHILD_DEPTH = 2;
+    private static final int GRANDCHILD_DEPTH = 3;
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // manifests have no DTD, and must not pull in external entities
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * Parses an application manifest. The service manifests are not resolved.
+     */
+    public static ApplicationManifest parseApplicationManifest(InputStream in) throws IOException {
+        return parseApplicationManifest(open(in));
+    }
+
+    /**
+     * Parses an application manifest returned by the cluster. The service manifests are not resolved.
+     */
+    public static ApplicationManifest parseApplicationManifest(String xml) throws IOException {
+        return parseApplicationManifest(open(xml));
+    }
+
+    public static ServiceManifest parseServiceManifest(InputStream in) throws IOException {
+        return parseServiceManifest(open(in));
+    }
+
+    /**
+     * Parses a service manifest returned by the cluster.
+     */
+    public static ServiceManifest parseServiceManifest(String xml) throws IOException {
+        return parseServiceManifest(open(xml));
+    }
+
+    private static ApplicationManifest parseApplicationManifest(XMLStreamReader reader) throws IOException {
+        try {
+            String typeName = null;
+            String typeVersion = null;
+            Map<String, String> parameters = new LinkedHashMap<>();
+            List<ManifestPackage> imports = new ArrayList<>();
+            List<String> path = new ArrayList<>();
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    path.remove(path.size() - 1);
+                    continue;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                String element = reader.getLocalName();
+                path.add(element);
+                if (path.size() == 1) {
+                    if (!"ApplicationManifest".equals(element)) {
+                        throw new IOException("Not an application manifest, the root element is " + element);
+                    }
+                    typeName = attribute(reader, "ApplicationTypeName");
+                    typeVersion = attribute(reader, "ApplicationTypeVersion");
+                } else if (isPath(path, "Parameters", "Parameter")) {
+                    parameters.put(attribute(reader, "Name"), attribute(reader, "DefaultValue"));
+                } else if (isPath(path, "ServiceManifestImport", "ServiceManifestRef")) {
+                    imports.add(new ManifestPackage(attribute(reader, "ServiceManifestName"),
+                            attribute(reader, "ServiceManifestVersion")));
+                }
+            }
+            return new ApplicationManifest(typeName, typeVersion, parameters, imports,
+                    new ArrayList<ServiceManifest>());
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed application manifest: " + e.getMessage(), e);
+        } finally {
+            close(reader);
+        }
+    }
+
+    private static ServiceManifest parseServiceManifest(XMLStreamReader reader) throws IOException {
+        try {
+            String name = null;
+            String version = null;
+            List<String> serviceTypes = new ArrayList<>();
+            List<ManifestPackage> codePackages = new ArrayList<>();
+            List<ManifestPackage> configPackages = new ArrayList<>();
+            List<ManifestPackage> dataPackages = new ArrayList<>();
+            List<String> path = new ArrayList<>();
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    path.remove(path.size() - 1);
+                    continue;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                String element = reader.getLocalName();
+                path.add(element);
+                if (path.size() == 1) {
+                    if (!"ServiceManifest".equals(element)) {
+                        throw new IOException("Not a service manifest, the root element is " + element);
+                    }
+                    name = attribute(reader, "Name");
+                    version = attribute(reader, "Version");
+                } else if (path.size() == GRANDCHILD_DEPTH && "ServiceTypes".equals(path.get(1))) {
+                    // StatelessServiceType, StatefulServiceType and their service group counterparts
+                    String serviceType = attribute(reader, "ServiceTypeName");
+                    if (serviceType != null) {
+                        serviceTypes.add(serviceType);
+                    }
+                } else if (path.size() == CHILD_DEPTH) {
+                    ManifestPackage servicePackage = new ManifestPackage(attribute(reader, "Name"),
+                            attribute(reader, "Version"));
+                    if ("CodePackage".equals(element)) {
+                        codePackages.add(servicePackage);
+                    } else if ("ConfigPackage".equals(element)) {
+                        configPackages.add(servicePackage);
+                    } else if ("DataPackage".equals(element)) {
+                        dataPackages.add(servicePackage);
+                    }
+                }
+            }
+            return new ServiceManifest(name, version, serviceTypes, codePackages, configPackages, dataPackages);
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed service manifest: " + e.getMessage(), e);
+        } finally {
+            close(reader);
+        }
+    }
+
+    private static XMLStreamReader open(InputStream in) throws IOException {
+        try {
+            return FACTORY.createXMLStreamReader(in);
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot read the manifest: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The manifest is already decoded, whatever encoding its XML declaration mentions.
+     */
+    private static XMLStreamReader open(String xml) throws IOException {
+        try {
+            return FACTORY.createXMLStreamReader(new StringReader(xml));
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot read the manifest: " + e.getMessage(), e);
+        }
+    }
+
+    private static void close(XMLStreamReader reader) {
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            // nothing to release, the stream is closed by the caller
+        }
+    }
+
+    /**
+     * @return whether the current element is the child of the root element given by the path.
+     */
+    private static boolean isPath(List<String> path, String parent, String element) {
+        return path.size() == GRANDCHILD_DEPTH && parent.equals(path.get(1)) && element.equals(path.get(2));
+    }
+
+    private static String attribute(XMLStreamReader reader, String name) {
+        return reader.getAttributeValue(null, name);
+    }
+
+    private ManifestParser() {
+        // hide constructor
+    }
+}
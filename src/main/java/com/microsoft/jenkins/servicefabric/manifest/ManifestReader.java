@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.manifest;
+
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.Files;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the application manifest and the service manifests it imports, on the node that holds them.
+ * <p>
+ * The parsed manifests are cached in the JVM of that node by the hash of the file content, so a manifest is only
+ * parsed again when it changes.
+ */
+public final class ManifestReader {
+    static final String SERVICE_MANIFEST_FILE = "ServiceManifest.xml";
+
+    private static final int MAX_CACHE_SIZE = 256;
+
+    private static final Map<String, Object> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, Object>(MAX_CACHE_SIZE, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                    return size() > MAX_CACHE_SIZE;
+                }
+            });
+
+    /**
+     * Reads the application manifest from a local file, on the node that holds it, and the service manifests it
+     * imports from the service package directories next to it.
+     */
+    public static ApplicationManifest read(File applicationManifest) throws IOException {
+        if (!applicationManifest.isFile()) {
+            throw new IOException("Application manifest " + applicationManifest + " does not exist");
+        }
+        byte[] content = Files.toByteArray(applicationManifest);
+        String key = "application:" + hash(content);
+        ApplicationManifest manifest = (ApplicationManifest) CACHE.get(key);
+        if (manifest == null) {
+            manifest = ManifestParser.parseApplicationManifest(new ByteArrayInputStream(content));
+            CACHE.put(key, manifest);
+        }
+
+        // the service package directories are named after the service manifests
+        File packageDir = applicationManifest.getAbsoluteFile().getParentFile();
+        List<ServiceManifest> serviceManifests = new ArrayList<>();
+        for (ManifestPackage serviceImport : manifest.getServiceManifestImports()) {
+            File file = new File(new File(packageDir, serviceImport.getName()), SERVICE_MANIFEST_FILE);
+            if (file.isFile()) {
+                serviceManifests.add(readServiceManifest(file));
+            }
+        }
+        return manifest.withServiceManifests(serviceManifests);
+    }
+
+    private static ServiceManifest readServiceManifest(File file) throws IOException {
+        byte[] content = Files.toByteArray(file);
+        String key = "service:" + hash(content);
+        ServiceManifest manifest = (ServiceManifest) CACHE.get(key);
+        if (manifest == null) {
+            manifest = ManifestParser.parseServiceManifest(new ByteArrayInputStream(content));
+            CACHE.put(key, manifest);
+        }
+        return manifest;
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            return BaseEncoding.base16().lowerCase().encode(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ManifestReader() {
+        // hide constructor
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.manifest;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The parts of a {@code ServiceManifest.xml} the deployment is interested in.
+ */
+public final class ServiceManifest implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+    private final String version;
+    private final List<String> serviceTypes;
+    private final List<ManifestPackage> codePackages;
+    private final List<ManifestPackage> configPackages;
+    private final List<ManifestPackage> dataPackages;
+
+    public ServiceManifest(String name,
+                           String version,
+                           List<String> serviceTypes,
+                           List<ManifestPackage> codePackages,
+                           List<ManifestPackage> configPackages,
+                           List<ManifestPackage> dataPackages) {
+        this.name = name;
+        this.version = version;
+        this.serviceTypes = serviceTypes;
+        this.codePackages = codePackages;
+        this.configPackages = configPackages;
+        this.dataPackages = dataPackages;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the names of the service types, stateless or stateful.
+     */
+    public List<String> getServiceTypes() {
+        return Collections.unmodifiableList(serviceTypes);
+    }
+
+    public List<ManifestPackage> getCodePackages() {
+        return Collections.unmodifiableList(codePackages);
+    }
+
+    public List<ManifestPackage> getConfigPackages() {
+        return Collections.unmodifiableList(configPackages);
+    }
+
+    public List<ManifestPackage> getDataPackages() {
+        return Collections.unmodifiableList(dataPackages);
+    }
+
+    /**
+     * @return the code, config and data packages, which are each in the directory of their name in the service
+     * package.
+     */
+    public List<ManifestPackage> getPackages() {
+        List<ManifestPackage> packages = new ArrayList<>(codePackages);
+        packages.addAll(configPackages);
+        packages.addAll(dataPackages);
+        return packages;
+    }
+}
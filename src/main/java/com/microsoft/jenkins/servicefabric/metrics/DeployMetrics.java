@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.metrics;
+
+import com.microsoft.jenkins.servicefabric.util.TelemetryQueue;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Master wide metrics of the deployments since Jenkins started, aggregated over all the builds: a duration
+ * histogram per deployment phase, the deployment outcomes, and the upload volume.
+ * <p>
+ * The series are labelled by phase and status only, so their number stays small whatever the number of clusters
+ * and applications.
+ */
+public final class DeployMetrics {
+    static final String PREFIX = "servicefabric_";
+
+    private static final double MILLIS_PER_SECOND = 1000.0;
+
+    private static final DeployMetrics INSTANCE = new DeployMetrics();
+
+    private final ConcurrentMap<String, Histogram> phases = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> deployments = new ConcurrentHashMap<>();
+    private final AtomicLong uploadedBytes = new AtomicLong();
+    private final AtomicLong uploadMillis = new AtomicLong();
+
+    DeployMetrics() {
+    }
+
+    public static DeployMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    public void recordPhase(String phase, long millis) {
+        Histogram histogram = phases.get(phase);
+        if (histogram == null) {
+            histogram = Histogram.ofDurations();
+            Histogram existing = phases.putIfAbsent(phase, histogram);
+            if (existing != null) {
+                histogram = existing;
+            }
+        }
+        histogram.observeMillis(millis);
+    }
+
+    public void recordUpload(long bytes, long millis) {
+        uploadedBytes.addAndGet(bytes);
+        uploadMillis.addAndGet(millis);
+    }
+
+    /**
+     * @param status the outcome of the deployment, e.g., {@code SUCCESS}.
+     */
+    public void recordDeployment(String status) {
+        AtomicLong count = deployments.get(status);
+        if (count == null) {
+            count = new AtomicLong();
+            AtomicLong existing = deployments.putIfAbsent(status, count);
+            if (existing != null) {
+                count = existing;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    /**
+     * @return the metrics in the Prometheus text exposition format.
+     */
+    public String toPrometheusText() {
+        StringBuilder out = new StringBuilder();
+        String phaseName = PREFIX + "deploy_phase_seconds";
+        out.append("# HELP ").append(phaseName).append(" Duration of the deployment phases.\n");
+        out.append("# TYPE ").append(phaseName).append(" histogram\n");
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(phases).entrySet()) {
+            entry.getValue().writeTo(out, phaseName, "phase=\"" + entry.getKey() + "\"");
+        }
+
+        String deploymentsName = PREFIX + "deployments_total";
+        out.append("# HELP ").append(deploymentsName).append(" Deployments of an application to a cluster.\n");
+        out.append("# TYPE ").append(deploymentsName).append(" counter\n");
+        for (Map.Entry<String, AtomicLong> entry : new TreeMap<>(deployments).entrySet()) {
+            out.append(deploymentsName).append("{status=\"").append(entry.getKey()).append("\"} ")
+                    .append(entry.getValue().get()).append('\n');
+        }
+
+        appendCounter(out, PREFIX + "upload_bytes_total", "Bytes uploaded to the image stores.",
+                String.valueOf(uploadedBytes.get()));
+        appendCounter(out, PREFIX + "upload_seconds_total", "Time spent uploading to the image stores.",
+                String.valueOf(uploadMillis.get() / MILLIS_PER_SECOND));
+        appendCounter(out, PREFIX + "telemetry_dropped_total", "Telemetry dropped as the send queue was full.",
+                String.valueOf(TelemetryQueue.getInstance().getDropped()));
+        return out.toString();
+    }
+
+    private static void appendCounter(StringBuilder out, String name, String help, String value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.metrics;
+
+import hudson.Util;
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Phase timings of the Service Fabric deployments of a build, shown on the build page.
+ */
+public final class DeployMetricsAction implements RunAction2 {
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+    private static final double MILLIS_PER_SECOND = 1000.0;
+
+    private final LinkedHashMap<String, Long> resolutions = new LinkedHashMap<>();
+    private final List<Entry> entries = new ArrayList<>();
+
+    private transient Run<?, ?> run;
+
+    /**
+     * Gets the action of the build, adding it if the build has none yet.
+     */
+    public static DeployMetricsAction of(Run<?, ?> run) {
+        synchronized (run) {
+            DeployMetricsAction action = run.getAction(DeployMetricsAction.class);
+            if (action == null) {
+                action = new DeployMetricsAction();
+                run.addAction(action);
+            }
+            return action;
+        }
+    }
+
+    /**
+     * Records the time taken to resolve the management endpoint of a cluster.
+     */
+    public void recordResolution(String cluster, long millis) {
+        synchronized (this) {
+            resolutions.put(cluster, millis);
+        }
+        DeployMetrics.getInstance().recordPhase("resolve", millis);
+    }
+
+    /**
+     * Records the outcome of the deployment of an application to a cluster.
+     *
+     * @param timings the timings of the deployment, or {@code null} if it did not run.
+     */
+    public void add(String cluster, String applicationName, String status, DeployTimings timings) {
+        synchronized (this) {
+            entries.add(new Entry(cluster, applicationName, status, timings));
+        }
+        DeployMetrics.getInstance().recordDeployment(status);
+    }
+
+    public synchronized Map<String, Long> getResolutions() {
+        return new LinkedHashMap<>(resolutions);
+    }
+
+    public synchronized List<Entry> getEntries() {
+        return new ArrayList<>(entries);
+    }
+
+    /**
+     * @return the phases of all the deployments, in the order they ran, for the columns of the table.
+     */
+    public synchronized Set<String> getPhases() {
+        Set<String> phases = new LinkedHashSet<>();
+        for (Entry entry : entries) {
+            phases.addAll(entry.getPhases().keySet());
+        }
+        return phases;
+    }
+
+    public Run<?, ?> getRun() {
+        return run;
+    }
+
+    @Override
+    public void onAttached(Run<?, ?> r) {
+        this.run = r;
+    }
+
+    @Override
+    public void onLoad(Run<?, ?> r) {
+        this.run = r;
+    }
+
+    @Override
+    public String getIconFileName() {
+        return "graph.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Service Fabric Deploy Timings";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "service-fabric-timings";
+    }
+
+    public static String formatMillis(Long millis) {
+        return millis == null ? "" : Util.getTimeSpanString(millis);
+    }
+
+    /**
+     * Timings of the deployment of one application to one cluster.
+     */
+    public static final class Entry {
+        private final String cluster;
+        private final String applicationName;
+        private final String status;
+        private final LinkedHashMap<String, Long> phases;
+        private final long uploadedBytes;
+        private final long uploadMillis;
+
+        Entry(String cluster, String applicationName, String status, DeployTimings timings) {
+            this.cluster = cluster;
+            this.applicationName = applicationName;
+            this.status = status;
+            this.phases = timings == null ? new LinkedHashMap<String, Long>()
+                    : new LinkedHashMap<>(timings.getPhases());
+            this.uploadedBytes = timings == null ? -1 : timings.getUploadedBytes();
+            this.uploadMillis = timings == null ? 0 : timings.getUploadMillis();
+        }
+
+        public String getCluster() {
+            return cluster;
+        }
+
+        public String getApplicationName() {
+            return applicationName;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public Map<String, Long> getPhases() {
+            return phases;
+        }
+
+        /**
+         * @return the upload volume and throughput, or an empty string if nothing was uploaded.
+         */
+        public String getUpload() {
+            if (uploadedBytes < 0) {
+                return "";
+            }
+            double megabytes = uploadedBytes / BYTES_PER_MEGABYTE;
+            if (uploadMillis <= 0) {
+                return String.format(Locale.ROOT, "%.1f MB", megabytes);
+            }
+            return String.format(Locale.ROOT, "%.1f MB at %.1f MB/s", megabytes,
+                    megabytes / (uploadMillis / MILLIS_PER_SECOND));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.metrics;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Durations of the phases of one deployment, in the order they ran. Each phase is also recorded in the master wide
+ * {@link DeployMetrics}.
+ */
+public final class DeployTimings implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String MANIFEST = "manifest";
+    public static final String MONITOR = "monitor";
+    public static final String TOTAL = "total";
+
+    private final LinkedHashMap<String, Long> phases = new LinkedHashMap<>();
+    private long uploadedBytes = -1;
+    private long uploadMillis;
+
+    /**
+     * Records the duration of a phase, added to the previous duration if the phase ran before.
+     */
+    public synchronized void record(String phase, long millis) {
+        Long previous = phases.get(phase);
+        phases.put(phase, previous == null ? millis : previous + millis);
+        DeployMetrics.getInstance().recordPhase(phase, millis);
+    }
+
+    /**
+     * Records the volume of an upload, whose duration is recorded as a phase.
+     */
+    public synchronized void recordUpload(long bytes, long millis) {
+        uploadedBytes = Math.max(0, uploadedBytes) + bytes;
+        uploadMillis += millis;
+        DeployMetrics.getInstance().recordUpload(bytes, millis);
+    }
+
+    /**
+     * @return the duration of each phase in milliseconds.
+     */
+    public synchronized Map<String, Long> getPhases() {
+        return new LinkedHashMap<>(phases);
+    }
+
+    /**
+     * @return the bytes uploaded to the image store, or -1 if nothing was uploaded.
+     */
+    public synchronized long getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    public synchronized long getUploadMillis() {
+        return uploadMillis;
+    }
+}
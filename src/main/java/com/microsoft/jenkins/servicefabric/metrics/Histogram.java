@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of durations with fixed bucket bounds, in the Prometheus histogram model.
+ * <p>
+ * Recording a value is a few atomic increments, so it can be done from any deployment thread.
+ */
+public final class Histogram {
+    private static final double MICROS_PER_SECOND = 1000000.0;
+    private static final double MILLIS_PER_SECOND = 1000.0;
+    private static final long MICROS_PER_MILLI = 1000;
+
+    /**
+     * Upper bounds of the buckets in seconds, from sub-second REST calls to hour long rolling upgrades.
+     */
+    static final double[] DURATION_BOUNDS = {
+        0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120, 300, 600, 1800, 3600,
+    };
+
+    private final double[] bounds;
+    /**
+     * Count of each bucket, not cumulative, with a last bucket for the values above all the bounds.
+     */
+    private final AtomicLongArray counts;
+    private final AtomicLong sumMicros = new AtomicLong();
+
+    Histogram(double[] bounds) {
+        this.bounds = bounds;
+        this.counts = new AtomicLongArray(bounds.length + 1);
+    }
+
+    static Histogram ofDurations() {
+        return new Histogram(DURATION_BOUNDS);
+    }
+
+    public void observeMillis(long millis) {
+        double seconds = millis / MILLIS_PER_SECOND;
+        int index = 0;
+        while (index < bounds.length && seconds > bounds[index]) {
+            index++;
+        }
+        counts.incrementAndGet(index);
+        sumMicros.addAndGet(millis * MICROS_PER_MILLI);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public double getSumSeconds() {
+        return sumMicros.get() / MICROS_PER_SECOND;
+    }
+
+    /**
+     * Writes the histogram in the Prometheus text format.
+     *
+     * @param labels the labels of the series, e.g., {@code phase="upload"}, or an empty string.
+     */
+    void writeTo(StringBuilder out, String name, String labels) {
+        String separator = labels.isEmpty() ? "" : ",";
+        long cumulative = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            cumulative += counts.get(i);
+            out.append(String.format(Locale.ROOT, "%s_bucket{%s%sle=\"%s\"} %d%n",
+                    name, labels, separator, bounds[i], cumulative));
+        }
+        cumulative += counts.get(bounds.length);
+        out.append(String.format(Locale.ROOT, "%s_bucket{%s%sle=\"+Inf\"} %d%n", name, labels, separator,
+                cumulative));
+        String braces = labels.isEmpty() ? "" : "{" + labels + "}";
+        out.append(String.format(Locale.ROOT, "%s_sum%s %s%n", name, braces, getSumSeconds()));
+        out.append(String.format(Locale.ROOT, "%s_count%s %d%n", name, braces, cumulative));
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.metrics;
+
+import hudson.Extension;
+import hudson.model.RootAction;
+import jenkins.model.Jenkins;
+import org.kohsuke.stapler.StaplerResponse;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Exposes the {@link DeployMetrics} at {@code /service-fabric-metrics/} in the Prometheus text format, to be
+ * scraped with the credentials of a user with the overall read permission.
+ */
+@Extension
+public final class MetricsRootAction implements RootAction {
+    @Override
+    public String getIconFileName() {
+        // not shown in the side panel
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Service Fabric Metrics";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "service-fabric-metrics";
+    }
+
+    public void doIndex(StaplerResponse rsp) throws IOException {
+        Jenkins.getInstance().checkPermission(Jenkins.READ);
+        rsp.setContentType("text/plain; version=0.0.4; charset=utf-8");
+        PrintWriter writer = rsp.getWriter();
+        writer.write(DeployMetrics.getInstance().toPrometheusText());
+        writer.flush();
+    }
+}
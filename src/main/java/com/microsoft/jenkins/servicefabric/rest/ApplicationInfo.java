@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.rest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Application information returned by {@code GET /Applications/{applicationId}}.
+ */
+public final class ApplicationInfo {
+    private final String id;
+    private final String name;
+    private final String typeName;
+    private final String typeVersion;
+    private final String status;
+    private final String healthState;
+
+    public ApplicationInfo(String id,
+                           String name,
+                           String typeName,
+                           String typeVersion,
+                           String status,
+                           String healthState) {
+        this.id = id;
+        this.name = name;
+        this.typeName = typeName;
+        this.typeVersion = typeVersion;
+        this.status = status;
+        this.healthState = healthState;
+    }
+
+    static ApplicationInfo fromJson(JsonNode node) {
+        return new ApplicationInfo(
+                node.path("Id").asText(null),
+                node.path("Name").asText(null),
+                node.path("TypeName").asText(null),
+                node.path("TypeVersion").asText(null),
+                node.path("Status").asText(null),
+                node.path("HealthState").asText(null));
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getTypeName() {
+        return typeName;
+    }
+
+    public String getTypeVersion() {
+        return typeVersion;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getHealthState() {
+        return healthState;
+    }
+}
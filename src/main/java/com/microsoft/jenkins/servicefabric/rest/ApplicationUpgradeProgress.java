@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.rest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Progress of an application upgrade returned by {@code GET /Applications/{applicationId}/$/GetUpgradeProgress}.
+ */
+public final class ApplicationUpgradeProgress {
+    public static final String ROLLING_FORWARD_COMPLETED = "RollingForwardCompleted";
+    public static final String ROLLING_BACK_COMPLETED = "RollingBackCompleted";
+    public static final String FAILED = "Failed";
+
+    private final String upgradeState;
+    private final String targetVersion;
+    private final String nextUpgradeDomain;
+    private final Map<String, String> upgradeDomains;
+    private final String failureReason;
+    private final String upgradeStatusDetails;
+
+    public ApplicationUpgradeProgress(String upgradeState,
+                                      String targetVersion,
+                                      String nextUpgradeDomain,
+                                      Map<String, String> upgradeDomains,
+                                      String failureReason,
+                                      String upgradeStatusDetails) {
+        this.upgradeState = upgradeState;
+        this.targetVersion = targetVersion;
+        this.nextUpgradeDomain = nextUpgradeDomain;
+        this.upgradeDomains = upgradeDomains;
+        this.failureReason = failureReason;
+        this.upgradeStatusDetails = upgradeStatusDetails;
+    }
+
+    static ApplicationUpgradeProgress fromJson(JsonNode node) {
+        Map<String, String> domains = new LinkedHashMap<>();
+        for (JsonNode domain : node.path("UpgradeDomains")) {
+            domains.put(domain.path("Name").asText(), domain.path("State").asText(null));
+        }
+        return new ApplicationUpgradeProgress(
+                node.path("UpgradeState").asText(null),
+                node.path("TargetApplicationTypeVersion").asText(null),
+                node.path("NextUpgradeDomain").asText(null),
+                domains,
+                node.path("FailureReason").asText(null),
+                node.path("UpgradeStatusDetails").asText(null));
+    }
+
+    /**
+     * @return one of {@code RollingForwardPending}, {@code RollingForwardInProgress},
+     * {@code RollingForwardCompleted}, {@code RollingBackInProgress}, {@code RollingBackCompleted} or
+     * {@code Failed}.
+     */
+    public String getUpgradeState() {
+        return upgradeState;
+    }
+
+    public String getTargetVersion() {
+        return targetVersion;
+    }
+
+    public String getNextUpgradeDomain() {
+        return nextUpgradeDomain;
+    }
+
+    /**
+     * @return the state of each upgrade domain, keyed by the domain name, in the upgrade order.
+     */
+    public Map<String, String> getUpgradeDomains() {
+        return Collections.unmodifiableMap(upgradeDomains);
+    }
+
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    public String getUpgradeStatusDetails() {
+        return upgradeStatusDetails;
+    }
+
+    public boolean isCompleted() {
+        return ROLLING_FORWARD_COMPLETED.equals(upgradeState);
+    }
+
+    /**
+     * @return whether the upgrade ended without reaching the target version.
+     */
+    public boolean isAborted() {
+        return ROLLING_BACK_COMPLETED.equals(upgradeState) || FAILED.equals(upgradeState);
+    }
+}
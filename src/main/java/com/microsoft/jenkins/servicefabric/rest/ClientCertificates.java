@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.rest;
+
+import com.google.common.io.BaseEncoding;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Collection;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the TLS configuration for a secured Service Fabric cluster from PEM encoded client certificate and key.
+ * <p>
+ * Like {@code sfctl cluster select --no-verify}, the server certificate is not verified.
+ */
+final class ClientCertificates {
+    private static final Pattern PEM_BLOCK = Pattern.compile(
+            "-----BEGIN ([A-Z ]+)-----([^-]+)-----END \\1-----");
+
+    private static final String PKCS8_KEY = "PRIVATE KEY";
+    private static final String PKCS1_RSA_KEY = "RSA PRIVATE KEY";
+
+    private static final String[] KEY_ALGORITHMS = {"RSA", "EC"};
+
+    /**
+     * DER encoded {@code AlgorithmIdentifier} of rsaEncryption (1.2.840.113549.1.1.1) with NULL parameters.
+     */
+    private static final byte[] RSA_ALGORITHM_IDENTIFIER = {
+            0x30, 0x0d, 0x06, 0x09, 0x2a, (byte) 0x86, 0x48, (byte) 0x86,
+            (byte) 0xf7, 0x0d, 0x01, 0x01, 0x01, 0x05, 0x00,
+    };
+    private static final byte[] PKCS8_VERSION = {0x02, 0x01, 0x00};
+    private static final int DER_SEQUENCE = 0x30;
+    private static final int DER_OCTET_STRING = 0x04;
+    private static final int DER_SHORT_LENGTH_LIMIT = 0x80;
+    private static final int BYTE_MASK = 0xff;
+    private static final int BITS_PER_BYTE = 8;
+
+    private static final char[] KEY_STORE_PASSWORD = new char[0];
+
+    static final X509TrustManager TRUST_ALL = new X509TrustManager() {
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) {
+            // cluster endpoints are not verified, same as sfctl --no-verify
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) {
+            // cluster endpoints are not verified, same as sfctl --no-verify
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+    };
+
+    static final HostnameVerifier ANY_HOST = new HostnameVerifier() {
+        @Override
+        public boolean verify(String hostname, SSLSession session) {
+            return true;
+        }
+    };
+
+    static SSLContext createSslContext(String certPem, String keyPem) throws IOException {
+        try {
+            Collection<? extends Certificate> certificates = CertificateFactory.getInstance("X.509")
+                    .generateCertificates(new ByteArrayInputStream(pemBlocks(certPem, "CERTIFICATE")));
+            if (certificates.isEmpty()) {
+                throw new IOException("No certificate found in the client certificate file");
+            }
+            PrivateKey privateKey = parsePrivateKey(keyPem);
+
+            KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+            keyStore.load(null, null);
+            keyStore.setKeyEntry("client", privateKey, KEY_STORE_PASSWORD,
+                    certificates.toArray(new Certificate[certificates.size()]));
+
+            KeyManagerFactory keyManagerFactory =
+                    KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keyManagerFactory.init(keyStore, KEY_STORE_PASSWORD);
+
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(keyManagerFactory.getKeyManagers(), new TrustManager[]{TRUST_ALL}, null);
+            return sslContext;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Failed to load the client certificate: " + e.getMessage(), e);
+        }
+    }
+
+    private static PrivateKey parsePrivateKey(String pem) throws IOException, GeneralSecurityException {
+        Matcher matcher = PEM_BLOCK.matcher(pem);
+        while (matcher.find()) {
+            String type = matcher.group(1);
+            byte[] der;
+            if (PKCS8_KEY.equals(type)) {
+                der = decode(matcher.group(2));
+            } else if (PKCS1_RSA_KEY.equals(type)) {
+                der = wrapPkcs1(decode(matcher.group(2)));
+            } else {
+                continue;
+            }
+            PKCS8EncodedKeySpec spec = new PKCS8EncodedKeySpec(der);
+            GeneralSecurityException last = null;
+            for (String algorithm : KEY_ALGORITHMS) {
+                try {
+                    return KeyFactory.getInstance(algorithm).generatePrivate(spec);
+                } catch (GeneralSecurityException e) {
+                    last = e;
+                }
+            }
+            throw last;
+        }
+        throw new IOException("No unencrypted PKCS#1 or PKCS#8 private key found in the client key file");
+    }
+
+    private static byte[] pemBlocks(String pem, String type) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Matcher matcher = PEM_BLOCK.matcher(pem);
+        while (matcher.find()) {
+            if (type.equals(matcher.group(1))) {
+                out.write(matcher.group().getBytes(StandardCharsets.US_ASCII));
+                out.write('\n');
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decode(String base64) {
+        return BaseEncoding.base64().decode(base64.replaceAll("\\s", ""));
+    }
+
+    /**
+     * Wraps a PKCS#1 RSAPrivateKey structure into a PKCS#8 PrivateKeyInfo, which is what the JCA understands.
+     */
+    private static byte[] wrapPkcs1(byte[] pkcs1) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(PKCS8_VERSION);
+        body.write(RSA_ALGORITHM_IDENTIFIER);
+        writeDer(body, DER_OCTET_STRING, pkcs1);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeDer(out, DER_SEQUENCE, body.toByteArray());
+        return out.toByteArray();
+    }
+
+    private static void writeDer(ByteArrayOutputStream out, int tag, byte[] content) throws IOException {
+        out.write(tag);
+        int length = content.length;
+        if (length < DER_SHORT_LENGTH_LIMIT) {
+            out.write(length);
+        } else {
+            int bytes = 0;
+            for (int l = length; l > 0; l >>>= BITS_PER_BYTE) {
+                bytes++;
+            }
+            out.write(DER_SHORT_LENGTH_LIMIT | bytes);
+            for (int i = bytes - 1; i >= 0; i--) {
+                out.write((length >>> (i * BITS_PER_BYTE)) & BYTE_MASK);
+            }
+        }
+        out.write(content);
+    }
+
+    private ClientCertificates() {
+        // hide constructor
+    }
+}
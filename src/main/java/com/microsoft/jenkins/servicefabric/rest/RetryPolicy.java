@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.rest;
+
+import hudson.remoting.ChannelClosedException;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Tells the transient failures of the requests to the cluster from the permanent ones, and spaces their retries with
+ * an exponential backoff, half of it random, so that the requests that failed together do not retry together.
+ * <p>
+ * It holds no thread, as it is used both on the master and on the agents.
+ */
+public final class RetryPolicy {
+    static final long INITIAL_BACKOFF_MILLIS = 2000;
+    static final long MAX_BACKOFF_MILLIS = 60000;
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    /**
+     * Service Fabric errors that go away once the cluster is done with what it is doing.
+     */
+    private static final Set<String> TRANSIENT_ERRORS = new HashSet<>(Arrays.asList(
+            "FABRIC_E_TIMEOUT",
+            "FABRIC_E_SERVICE_TOO_BUSY",
+            "FABRIC_E_SERVICE_OFFLINE",
+            "FABRIC_E_GATEWAY_NOT_REACHABLE",
+            "FABRIC_E_COMMUNICATION_ERROR",
+            "FABRIC_E_NOT_PRIMARY",
+            "FABRIC_E_NOT_READY",
+            "FABRIC_E_NO_WRITE_QUORUM",
+            "FABRIC_E_RECONFIGURATION_PENDING",
+            "FABRIC_E_OPERATION_NOT_COMPLETE",
+            "FABRIC_E_APPLICATION_UPGRADE_IN_PROGRESS",
+            "FABRIC_E_APPLICATION_UPDATE_IN_PROGRESS",
+            "FABRIC_E_APPLICATION_TYPE_PROVISION_IN_PROGRESS"));
+
+    /**
+     * Service Fabric errors that the same request always gets, whatever their HTTP status.
+     */
+    private static final Set<String> PERMANENT_ERRORS = new HashSet<>(Arrays.asList(
+            "FABRIC_E_INVALID_ARGUMENT",
+            "FABRIC_E_IMAGEBUILDER_VALIDATION_ERROR",
+            "FABRIC_E_APPLICATION_ALREADY_EXISTS",
+            "FABRIC_E_APPLICATION_TYPE_ALREADY_EXISTS",
+            "FABRIC_E_APPLICATION_TYPE_IN_USE"));
+
+    private static final String CONNECTION_RESET = "Connection reset";
+
+    private static final Random RANDOM = new Random();
+
+    private RetryPolicy() {
+        // hide constructor
+    }
+
+    /**
+     * @return whether the same request may succeed later: the cluster reported a transient error, or the connection
+     * to the cluster or to the agent was lost, as the failure or one of its causes.
+     */
+    public static boolean isTransient(IOException e) {
+        if (e instanceof ServiceFabricException) {
+            ServiceFabricException error = (ServiceFabricException) e;
+            if (TRANSIENT_ERRORS.contains(error.getErrorCode())) {
+                return true;
+            }
+            if (PERMANENT_ERRORS.contains(error.getErrorCode())) {
+                return false;
+            }
+            int statusCode = error.getStatusCode();
+            return (statusCode >= HttpURLConnection.HTTP_INTERNAL_ERROR
+                    && statusCode != HttpURLConnection.HTTP_NOT_IMPLEMENTED)
+                    || statusCode == HttpURLConnection.HTTP_CLIENT_TIMEOUT
+                    || statusCode == HTTP_TOO_MANY_REQUESTS;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (isConnectionLost(cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isConnectionLost(Throwable e) {
+        if (e instanceof SocketTimeoutException
+                || e instanceof ConnectException
+                || e instanceof ChannelClosedException) {
+            return true;
+        }
+        return e instanceof SocketException
+                && e.getMessage() != null
+                && e.getMessage().startsWith(CONNECTION_RESET);
+    }
+
+    /**
+     * @param attempt the number of the attempt that failed, from 1.
+     * @return the delay before the next attempt, between half and all of the exponential backoff.
+     */
+    public static long backoffOf(int attempt) {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        for (int i = 1; i < attempt && backoff < MAX_BACKOFF_MILLIS; i++) {
+            backoff *= 2;
+        }
+        backoff = Math.min(MAX_BACKOFF_MILLIS, backoff);
+        long half = backoff / 2;
+        return half + (long) (RANDOM.nextDouble() * (backoff - half));
+    }
+}
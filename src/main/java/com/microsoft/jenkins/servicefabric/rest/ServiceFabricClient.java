@@ -0,0 +1,626 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.rest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import okhttp3.ConnectionPool;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import org.apache.commons.lang.StringUtils;
+
+import javax.net.ssl.SSLContext;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Client of the Service Fabric management REST API, served by the cluster HTTP gateway on port 19080.
+ * <p>
+ * The client of a given endpoint, with its keep-alive connection pool, is reused across deployments, so a deployment
+ * only pays the TCP / TLS handshake once. The clients not used for a while are dropped and their idle connections
+ * closed, so that the clients of the clusters no longer deployed to, and the client keys they hold, do not stay in
+ * memory.
+ */
+public final class ServiceFabricClient {
+    private static final Logger LOGGER = Logger.getLogger(ServiceFabricClient.class.getName());
+
+    private static final String API_VERSION = "6.0";
+    /**
+     * The first version that filters the application list by type.
+     */
+    private static final String APPLICATIONS_API_VERSION = "6.1";
+    private static final String PROVISION_API_VERSION = "6.2";
+    private static final String CLUSTER_VERSION_API_VERSION = "6.4";
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String ERROR_APPLICATION_NOT_FOUND = "FABRIC_E_APPLICATION_NOT_FOUND";
+
+    private static final int MAX_IDLE_CONNECTIONS = 16;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final long CONNECT_TIMEOUT_SECONDS = 30;
+    private static final long READ_TIMEOUT_SECONDS = 120;
+    private static final long CLIENT_EXPIRY_MINUTES = 30;
+    private static final int MAX_CLIENTS = 64;
+    /**
+     * Server side timeout of the synchronous provision operation, which validates and copies the whole package.
+     */
+    private static final long PROVISION_TIMEOUT_SECONDS = 600;
+
+    private static final OkHttpClient SHARED_HTTP_CLIENT = new OkHttpClient.Builder()
+            .connectTimeout(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .writeTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .build();
+
+    private static final Cache<ServiceFabricEndpoint, ServiceFabricClient> CLIENTS = CacheBuilder.newBuilder()
+            .expireAfterAccess(CLIENT_EXPIRY_MINUTES, TimeUnit.MINUTES)
+            .maximumSize(MAX_CLIENTS)
+            .removalListener(new RemovalListener<ServiceFabricEndpoint, ServiceFabricClient>() {
+                @Override
+                public void onRemoval(RemovalNotification<ServiceFabricEndpoint, ServiceFabricClient> notification) {
+                    notification.getValue().close();
+                }
+            })
+            .build();
+
+    private final ServiceFabricEndpoint endpoint;
+    private final HttpUrl baseUrl;
+    private final OkHttpClient httpClient;
+    private final OkHttpClient provisionHttpClient;
+
+    private ServiceFabricClient(ServiceFabricEndpoint endpoint) throws IOException {
+        this.endpoint = endpoint;
+        this.baseUrl = HttpUrl.parse(endpoint.getUrl());
+        if (baseUrl == null) {
+            throw new IOException("Invalid Service Fabric management endpoint: " + endpoint.getUrl());
+        }
+
+        OkHttpClient.Builder builder = SHARED_HTTP_CLIENT.newBuilder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES));
+        if (endpoint.isSecure()) {
+            SSLContext sslContext = ClientCertificates.createSslContext(
+                    endpoint.getClientCert(), endpoint.getClientKey());
+            builder.sslSocketFactory(sslContext.getSocketFactory(), ClientCertificates.TRUST_ALL)
+                    .hostnameVerifier(ClientCertificates.ANY_HOST);
+        }
+        this.httpClient = builder.build();
+        this.provisionHttpClient = httpClient.newBuilder()
+                .readTimeout(PROVISION_TIMEOUT_SECONDS + READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Gets the client for the given endpoint, creating it on first use.
+     */
+    public static ServiceFabricClient forEndpoint(final ServiceFabricEndpoint endpoint) throws IOException {
+        try {
+            return CLIENTS.get(endpoint, new Callable<ServiceFabricClient>() {
+                @Override
+                public ServiceFabricClient call() throws IOException {
+                    return new ServiceFabricClient(endpoint);
+                }
+            });
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Closes the idle connections of a client dropped from the cache. A deployment still using the client can go
+     * on, it opens new connections as needed.
+     */
+    private void close() {
+        httpClient.connectionPool().evictAll();
+    }
+
+    public ServiceFabricEndpoint getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Checks the connectivity to the cluster.
+     *
+     * @return the Service Fabric runtime version of the cluster.
+     */
+    public String getClusterVersion() throws IOException {
+        HttpUrl url = url(CLUSTER_VERSION_API_VERSION, "$", "GetClusterVersion").build();
+        return readJson(get(url)).path("Version").asText(null);
+    }
+
+    /**
+     * Uploads a single file to the cluster image store.
+     *
+     * @param storePath relative path in the image store, using {@code /} as separator.
+     * @param file      local file to upload, or {@code null} to upload an empty file.
+     */
+    public void uploadFile(String storePath, File file) throws IOException {
+        HttpUrl url = imageStoreUrl(storePath).build();
+        RequestBody body = file == null
+                ? RequestBody.create(OCTET_STREAM, new byte[0])
+                : RequestBody.create(OCTET_STREAM, file);
+        execute(httpClient, new Request.Builder().url(url).put(body).build()).close();
+    }
+
+    /**
+     * Produces the content of a file as it is uploaded.
+     */
+    public interface ContentWriter {
+        /**
+         * Writes the whole content, again from the start if the request is retried. The stream is not closed.
+         */
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Uploads a single file to the cluster image store, sending its content as it is produced. The size is not
+     * known beforehand, so the content is sent with a chunked transfer encoding.
+     *
+     * @param storePath relative path in the image store, using {@code /} as separator.
+     */
+    public void uploadStream(String storePath, ContentWriter content) throws IOException {
+        HttpUrl url = imageStoreUrl(storePath).build();
+        execute(httpClient, new Request.Builder().url(url).put(new StreamingRequestBody(content)).build()).close();
+    }
+
+    /**
+     * Uploads a chunk of a file to the cluster image store as part of an upload session. The chunks of a session
+     * can be uploaded concurrently and in any order, and the file is only created when the session is committed.
+     *
+     * @param storePath relative path of the file in the image store, using {@code /} as separator.
+     * @param sessionId the upload session id, chosen by the client.
+     * @param chunk     the chunk content, from its position to its limit.
+     * @param start     offset of the chunk in the file.
+     * @param fileSize  total size of the file.
+     */
+    public void uploadChunk(String storePath, String sessionId, ByteBuffer chunk, long start, long fileSize)
+            throws IOException {
+        HttpUrl url = imageStoreUrl(storePath)
+                .addPathSegment("$")
+                .addPathSegment("UploadChunk")
+                .addQueryParameter("session-id", sessionId)
+                .build();
+        long end = start + chunk.remaining() - 1;
+        Request request = new Request.Builder()
+                .url(url)
+                .header("Content-Range", String.format("bytes %d-%d/%d", start, end, fileSize))
+                .put(new ByteBufferRequestBody(chunk))
+                .build();
+        execute(httpClient, request).close();
+    }
+
+    /**
+     * Gets the state of an upload session.
+     *
+     * @return the upload session, or {@code null} if the image store does not know the session.
+     */
+    public UploadSession getUploadSession(String sessionId) throws IOException {
+        HttpUrl url = url(API_VERSION, "ImageStore", "$", "GetUploadSession")
+                .addQueryParameter("session-id", sessionId)
+                .build();
+        JsonNode sessions;
+        try {
+            sessions = readJson(get(url)).path("UploadSessions");
+        } catch (ServiceFabricException e) {
+            if (e.getStatusCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+                return null;
+            }
+            throw e;
+        }
+        return sessions.size() == 0 ? null : UploadSession.fromJson(sessions.get(0));
+    }
+
+    /**
+     * Commits an upload session once all the chunks are uploaded, which creates the file in the image store.
+     */
+    public void commitUploadSession(String sessionId) throws IOException {
+        HttpUrl url = url(API_VERSION, "ImageStore", "$", "CommitUploadSession")
+                .addQueryParameter("session-id", sessionId)
+                .build();
+        execute(httpClient, post(url, MAPPER.createObjectNode())).close();
+    }
+
+    /**
+     * Discards an upload session and the chunks uploaded so far.
+     */
+    public void deleteUploadSession(String sessionId) throws IOException {
+        HttpUrl url = url(API_VERSION, "ImageStore", "$", "DeleteUploadSession")
+                .addQueryParameter("session-id", sessionId)
+                .build();
+        execute(httpClient, new Request.Builder().url(url).delete().build()).close();
+    }
+
+    /**
+     * Lists all the files under a path of the cluster image store, recursively.
+     *
+     * @param storePath relative path in the image store, using {@code /} as separator.
+     * @return the size of each file, keyed by the path relative to {@code storePath}, using {@code /} as separator.
+     * Empty if the path does not exist.
+     */
+    public Map<String, Long> listImageStoreFiles(String storePath) throws IOException {
+        Map<String, Long> files = new HashMap<>();
+        String root = normalizeStorePath(storePath);
+        Deque<String> folders = new ArrayDeque<>();
+        folders.add(root);
+        while (!folders.isEmpty()) {
+            String folder = folders.poll();
+            JsonNode content;
+            try {
+                content = readJson(get(imageStoreUrl(folder).build()));
+            } catch (ServiceFabricException e) {
+                if (e.getStatusCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+                    continue;
+                }
+                throw e;
+            }
+            for (JsonNode file : content.path("StoreFiles")) {
+                String path = normalizeStorePath(file.path("StoreRelativePath").asText());
+                if (path.startsWith(root + "/")) {
+                    files.put(path.substring(root.length() + 1), file.path("FileSize").asLong());
+                }
+            }
+            for (JsonNode subFolder : content.path("StoreFolders")) {
+                folders.add(normalizeStorePath(subFolder.path("StoreRelativePath").asText()));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Deletes a file or a folder from the cluster image store.
+     */
+    public void deleteImageStoreContent(String storePath) throws IOException {
+        HttpUrl url = imageStoreUrl(storePath).build();
+        execute(httpClient, new Request.Builder().url(url).delete().build()).close();
+    }
+
+    /**
+     * Provisions (registers) the application type from the package previously uploaded to the image store.
+     */
+    public void provisionApplicationType(String buildPath) throws IOException {
+        HttpUrl url = url(PROVISION_API_VERSION, "ApplicationTypes", "$", "Provision")
+                .addQueryParameter("timeout", String.valueOf(PROVISION_TIMEOUT_SECONDS))
+                .build();
+        ObjectNode body = MAPPER.createObjectNode();
+        body.put("Kind", "ImageStorePath");
+        body.put("ApplicationTypeBuildPath", buildPath);
+        body.put("Async", false);
+        execute(provisionHttpClient, post(url, body)).close();
+    }
+
+    public void unprovisionApplicationType(String typeName, String typeVersion) throws IOException {
+        HttpUrl url = url(API_VERSION, "ApplicationTypes", typeName, "$", "Unprovision").build();
+        ObjectNode body = MAPPER.createObjectNode();
+        body.put("ApplicationTypeVersion", typeVersion);
+        execute(provisionHttpClient, post(url, body)).close();
+    }
+
+    /**
+     * @return the provisioned versions of the application type, in no particular order.
+     */
+    public List<String> listApplicationTypeVersions(String typeName) throws IOException {
+        List<String> versions = new ArrayList<>();
+        for (JsonNode item : listPaged(url(API_VERSION, "ApplicationTypes", typeName))) {
+            String version = item.path("Version").asText(null);
+            if (version != null) {
+                versions.add(version);
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * @return the applications of the application type, whichever version they run.
+     */
+    public List<ApplicationInfo> listApplications(String typeName) throws IOException {
+        List<ApplicationInfo> applications = new ArrayList<>();
+        for (JsonNode item : listPaged(url(APPLICATIONS_API_VERSION, "Applications")
+                .addQueryParameter("ApplicationTypeName", typeName))) {
+            ApplicationInfo application = ApplicationInfo.fromJson(item);
+            // a cluster that ignores the filter lists the applications of all the types
+            if (typeName.equals(application.getTypeName())) {
+                applications.add(application);
+            }
+        }
+        return applications;
+    }
+
+    /**
+     * @return the XML application manifest of a provisioned application type version.
+     */
+    public String getApplicationManifest(String typeName, String typeVersion) throws IOException {
+        HttpUrl url = url(API_VERSION, "ApplicationTypes", typeName, "$", "GetApplicationManifest")
+                .addQueryParameter("ApplicationTypeVersion", typeVersion)
+                .build();
+        return readJson(get(url)).path("Manifest").asText(null);
+    }
+
+    /**
+     * @return the XML service manifest of a service imported by a provisioned application type version.
+     */
+    public String getServiceManifest(String typeName, String typeVersion, String serviceManifestName)
+            throws IOException {
+        HttpUrl url = url(API_VERSION, "ApplicationTypes", typeName, "$", "GetServiceManifest")
+                .addQueryParameter("ApplicationTypeVersion", typeVersion)
+                .addQueryParameter("ServiceManifestName", serviceManifestName)
+                .build();
+        return readJson(get(url)).path("Manifest").asText(null);
+    }
+
+    /**
+     * Gets the application information.
+     *
+     * @param applicationId the application id, i.e., the application name without the {@code fabric:/} scheme.
+     * @return the application information, or {@code null} if the application does not exist.
+     */
+    public ApplicationInfo getApplicationInfo(String applicationId) throws IOException {
+        HttpUrl url = url(API_VERSION, "Applications", toUrlId(applicationId)).build();
+        Response response;
+        try {
+            response = execute(httpClient, new Request.Builder().url(url).get().build());
+        } catch (ServiceFabricException e) {
+            if (ERROR_APPLICATION_NOT_FOUND.equals(e.getErrorCode())) {
+                return null;
+            }
+            throw e;
+        }
+        if (response.code() == HttpURLConnection.HTTP_NO_CONTENT) {
+            response.close();
+            return null;
+        }
+        return ApplicationInfo.fromJson(readJson(response));
+    }
+
+    public void createApplication(String name, String typeName, String typeVersion) throws IOException {
+        HttpUrl url = url(API_VERSION, "Applications", "$", "Create").build();
+        ObjectNode body = MAPPER.createObjectNode();
+        body.put("Name", name);
+        body.put("TypeName", typeName);
+        body.put("TypeVersion", typeVersion);
+        body.putArray("ParameterList");
+        execute(httpClient, post(url, body)).close();
+    }
+
+    /**
+     * Starts a monitored rolling upgrade of the application to the given application type version.
+     */
+    public void upgradeApplication(String applicationId, String name, String typeVersion) throws IOException {
+        upgradeApplication(applicationId, name, typeVersion, 0, 0);
+    }
+
+    /**
+     * Starts a monitored rolling upgrade of the application to the given application type version, which is rolled
+     * back by the cluster if it fails the health checks or does not complete in time.
+     *
+     * @param upgradeTimeoutMillis       time limit of the whole upgrade, 0 for the cluster default.
+     * @param upgradeDomainTimeoutMillis time limit of each upgrade domain, 0 for the cluster default.
+     */
+    public void upgradeApplication(String applicationId,
+                                   String name,
+                                   String typeVersion,
+                                   long upgradeTimeoutMillis,
+                                   long upgradeDomainTimeoutMillis) throws IOException {
+        HttpUrl url = url(API_VERSION, "Applications", toUrlId(applicationId), "$", "Upgrade").build();
+        ObjectNode body = MAPPER.createObjectNode();
+        body.put("Name", name);
+        body.put("TargetApplicationTypeVersion", typeVersion);
+        body.putArray("Parameters");
+        body.put("UpgradeKind", "Rolling");
+        body.put("RollingUpgradeMode", "Monitored");
+        ObjectNode monitoringPolicy = body.putObject("MonitoringPolicy");
+        monitoringPolicy.put("FailureAction", "Rollback");
+        // durations are given either in ISO 8601 or in milliseconds
+        if (upgradeTimeoutMillis > 0) {
+            monitoringPolicy.put("UpgradeTimeoutInMilliseconds", String.valueOf(upgradeTimeoutMillis));
+        }
+        if (upgradeDomainTimeoutMillis > 0) {
+            monitoringPolicy.put("UpgradeDomainTimeoutInMilliseconds", String.valueOf(upgradeDomainTimeoutMillis));
+        }
+        execute(httpClient, post(url, body)).close();
+    }
+
+    public ApplicationUpgradeProgress getApplicationUpgradeProgress(String applicationId) throws IOException {
+        HttpUrl url = url(API_VERSION, "Applications", toUrlId(applicationId), "$", "GetUpgradeProgress").build();
+        return ApplicationUpgradeProgress.fromJson(readJson(get(url)));
+    }
+
+    public void deleteApplication(String applicationId) throws IOException {
+        HttpUrl url = url(API_VERSION, "Applications", toUrlId(applicationId), "$", "Delete").build();
+        execute(httpClient, post(url, MAPPER.createObjectNode())).close();
+    }
+
+    private HttpUrl.Builder url(String apiVersion, String... segments) {
+        HttpUrl.Builder builder = baseUrl.newBuilder();
+        for (String segment : segments) {
+            builder.addPathSegment(segment);
+        }
+        return builder.addQueryParameter("api-version", apiVersion);
+    }
+
+    private HttpUrl.Builder imageStoreUrl(String storePath) {
+        HttpUrl.Builder builder = baseUrl.newBuilder().addPathSegment("ImageStore");
+        for (String segment : StringUtils.split(storePath, '/')) {
+            builder.addPathSegment(segment);
+        }
+        return builder.addQueryParameter("api-version", API_VERSION);
+    }
+
+    /**
+     * Image store paths are reported with the separator of the cluster OS.
+     */
+    private static String normalizeStorePath(String storePath) {
+        return StringUtils.strip(storePath.replace('\\', '/'), "/");
+    }
+
+    /**
+     * Hierarchical application names use {@code ~} as the separator in the REST resource ids.
+     */
+    private static String toUrlId(String applicationId) {
+        return applicationId.replace('/', '~');
+    }
+
+    private static Request post(HttpUrl url, JsonNode body) throws IOException {
+        return new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(JSON, MAPPER.writeValueAsString(body)))
+                .build();
+    }
+
+    private Response get(HttpUrl url) throws IOException {
+        return execute(httpClient, new Request.Builder().url(url).get().build());
+    }
+
+    /**
+     * Gets all the items of a paged list, following the continuation tokens.
+     */
+    private List<JsonNode> listPaged(HttpUrl.Builder url) throws IOException {
+        List<JsonNode> items = new ArrayList<>();
+        String continuationToken = null;
+        do {
+            HttpUrl pageUrl = continuationToken == null
+                    ? url.build()
+                    : url.build().newBuilder().addQueryParameter("ContinuationToken", continuationToken).build();
+            JsonNode page = readJson(get(pageUrl));
+            for (JsonNode item : page.path("Items")) {
+                items.add(item);
+            }
+            continuationToken = StringUtils.trimToNull(page.path("ContinuationToken").asText(null));
+        } while (continuationToken != null);
+        return items;
+    }
+
+    private static Response execute(OkHttpClient client, Request request) throws IOException {
+        LOGGER.fine(request.method() + " " + request.url());
+        Response response = client.newCall(request).execute();
+        if (!response.isSuccessful()) {
+            try {
+                throw toException(response);
+            } finally {
+                response.close();
+            }
+        }
+        return response;
+    }
+
+    private static ServiceFabricException toException(Response response) {
+        String errorCode = null;
+        String message = response.message();
+        try {
+            ResponseBody body = response.body();
+            String content = body == null ? null : body.string();
+            if (StringUtils.isNotBlank(content)) {
+                message = content;
+                JsonNode error = MAPPER.readTree(content).path("Error");
+                if (!error.isMissingNode()) {
+                    errorCode = error.path("Code").asText(null);
+                    message = error.path("Message").asText(message);
+                }
+            }
+        } catch (IOException e) {
+            // not a Service Fabric error document, keep the raw message
+        }
+        return new ServiceFabricException(response.code(), errorCode, message);
+    }
+
+    /**
+     * Streams a (memory mapped) buffer to the connection without copying it to the heap as a whole.
+     */
+    private static final class ByteBufferRequestBody extends RequestBody {
+        private final ByteBuffer buffer;
+
+        ByteBufferRequestBody(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return OCTET_STREAM;
+        }
+
+        @Override
+        public long contentLength() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            // duplicate so that the body can be written again if the request is retried
+            ByteBuffer content = buffer.duplicate();
+            WritableByteChannel channel = Channels.newChannel(sink.outputStream());
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        }
+    }
+
+    private static final class StreamingRequestBody extends RequestBody {
+        private final ContentWriter content;
+
+        StreamingRequestBody(ContentWriter content) {
+            this.content = content;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return OCTET_STREAM;
+        }
+
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            content.writeTo(sink.outputStream());
+        }
+    }
+
+    private static JsonNode readJson(Response response) throws IOException {
+        try {
+            ResponseBody body = response.body();
+            if (body == null) {
+                return MAPPER.createObjectNode();
+            }
+            JsonNode node = MAPPER.readTree(body.byteStream());
+            return node == null ? MAPPER.createObjectNode() : node;
+        } finally {
+            response.close();
+        }
+    }
+}
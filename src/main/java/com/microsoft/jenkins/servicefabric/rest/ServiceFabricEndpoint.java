@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.rest;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Connection information of a Service Fabric cluster management endpoint.
+ * <p>
+ * The client certificate and key are kept as PEM content rather than file paths, so that the endpoint can be
+ * shipped to and used from any agent.
+ */
+public final class ServiceFabricEndpoint implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int DEFAULT_PORT = 19080;
+
+    private final String host;
+    private final int port;
+    private final String clientKey;
+    private final String clientCert;
+
+    public ServiceFabricEndpoint(String host, int port, String clientKey, String clientCert) {
+        this.host = host;
+        this.port = port;
+        this.clientKey = clientKey;
+        this.clientCert = clientCert;
+    }
+
+    public ServiceFabricEndpoint(String host, String clientKey, String clientCert) {
+        this(host, DEFAULT_PORT, clientKey, clientCert);
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * @return PEM content of the client private key, or {@code null} for an unsecured cluster.
+     */
+    public String getClientKey() {
+        return clientKey;
+    }
+
+    /**
+     * @return PEM content of the client certificate, or {@code null} for an unsecured cluster.
+     */
+    public String getClientCert() {
+        return clientCert;
+    }
+
+    public boolean isSecure() {
+        return StringUtils.isNotBlank(clientKey) && StringUtils.isNotBlank(clientCert);
+    }
+
+    public String getUrl() {
+        return (isSecure() ? "https" : "http") + "://" + host + ":" + port;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ServiceFabricEndpoint that = (ServiceFabricEndpoint) o;
+        return port == that.port
+                && StringUtils.equals(host, that.host)
+                && StringUtils.equals(clientKey, that.clientKey)
+                && StringUtils.equals(clientCert, that.clientCert);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(new Object[]{host, port, clientKey, clientCert});
+    }
+
+    @Override
+    public String toString() {
+        return getUrl();
+    }
+}
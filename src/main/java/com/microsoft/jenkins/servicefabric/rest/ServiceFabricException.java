@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.rest;
+
+import java.io.IOException;
+
+/**
+ * Error response returned by the Service Fabric management endpoint.
+ */
+public class ServiceFabricException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+    private final String errorCode;
+
+    public ServiceFabricException(int statusCode, String errorCode, String message) {
+        super(String.format("HTTP %d %s: %s", statusCode, errorCode == null ? "" : errorCode, message));
+        this.statusCode = statusCode;
+        this.errorCode = errorCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return the Service Fabric error code, such as {@code FABRIC_E_APPLICATION_NOT_FOUND}, or {@code null} if
+     * the response did not carry one.
+     */
+    public String getErrorCode() {
+        return errorCode;
+    }
+}
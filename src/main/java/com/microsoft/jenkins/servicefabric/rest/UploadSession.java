@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.rest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * State of an image store upload session returned by {@code GET /ImageStore/$/GetUploadSession}.
+ */
+public final class UploadSession {
+    private final String storeRelativePath;
+    private final long fileSize;
+    private final List<Range> expectedRanges;
+
+    public UploadSession(String storeRelativePath, long fileSize, List<Range> expectedRanges) {
+        this.storeRelativePath = storeRelativePath;
+        this.fileSize = fileSize;
+        this.expectedRanges = expectedRanges;
+    }
+
+    static UploadSession fromJson(JsonNode node) {
+        List<Range> ranges = new ArrayList<>();
+        for (JsonNode range : node.path("ExpectedRanges")) {
+            ranges.add(new Range(range.path("StartPosition").asLong(), range.path("EndPosition").asLong()));
+        }
+        return new UploadSession(
+                node.path("StoreRelativePath").asText(null),
+                node.path("FileSize").asLong(),
+                ranges);
+    }
+
+    public String getStoreRelativePath() {
+        return storeRelativePath;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * @return the byte ranges the image store has not received yet.
+     */
+    public List<Range> getExpectedRanges() {
+        return Collections.unmodifiableList(expectedRanges);
+    }
+
+    /**
+     * Byte range of a file, both ends inclusive.
+     */
+    public static final class Range {
+        private final long start;
+        private final long end;
+
+        public Range(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public long getLength() {
+            return end - start + 1;
+        }
+    }
+}
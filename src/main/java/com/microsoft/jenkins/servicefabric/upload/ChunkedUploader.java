@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.upload;
+
+import com.microsoft.jenkins.servicefabric.rest.RetryPolicy;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricClient;
+import com.microsoft.jenkins.servicefabric.rest.UploadSession;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Uploads a large file to the cluster image store in chunks through an upload session.
+ * <p>
+ * The chunks are memory mapped from the file and uploaded concurrently, and a chunk that failed with a transient
+ * error is retried once with the backoff of {@link RetryPolicy}. The session id is derived from the file, so an
+ * upload that failed can be resumed by a later attempt, which only sends the ranges the image store has not
+ * received yet.
+ */
+public final class ChunkedUploader {
+    static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+    static final int DEFAULT_PARALLEL_CHUNKS = 4;
+    static final int MAX_PARALLEL_CHUNKS = 16;
+
+    /**
+     * A chunk is only retried once on its own, the rest is left to the retry of the upload command, which resumes
+     * the session.
+     */
+    private static final int MAX_ATTEMPTS = 2;
+
+    /**
+     * Shared by all the uploads of the agent, each one limited to its own number of chunks in flight.
+     */
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(MAX_PARALLEL_CHUNKS,
+            new NamingThreadFactory(new DaemonThreadFactory(), ChunkedUploader.class.getSimpleName()));
+
+    private final ServiceFabricClient client;
+    private final PrintStream logger;
+    private final int chunkSize;
+    private final int parallelChunks;
+
+    public ChunkedUploader(ServiceFabricClient client, PrintStream logger) {
+        this(client, logger, DEFAULT_CHUNK_SIZE, DEFAULT_PARALLEL_CHUNKS);
+    }
+
+    public ChunkedUploader(ServiceFabricClient client, PrintStream logger, int chunkSize, int parallelChunks) {
+        this.client = client;
+        this.logger = logger;
+        this.chunkSize = chunkSize;
+        this.parallelChunks = Math.max(1, Math.min(MAX_PARALLEL_CHUNKS, parallelChunks));
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Uploads the file to the given image store path, resuming a previous upload session of the same file if the
+     * image store still has it.
+     */
+    public void upload(File file, String storePath) throws IOException, InterruptedException {
+        long fileSize = file.length();
+        String sessionId = sessionIdOf(file, storePath);
+
+        List<UploadSession.Range> ranges;
+        UploadSession session = client.getUploadSession(sessionId);
+        if (session != null && session.getFileSize() == fileSize) {
+            ranges = session.getExpectedRanges();
+            long remaining = 0;
+            for (UploadSession.Range range : ranges) {
+                remaining += range.getLength();
+            }
+            logger.println(String.format("Resuming the upload of %s, %d of %d bytes remaining",
+                    storePath, remaining, fileSize));
+        } else {
+            if (session != null) {
+                client.deleteUploadSession(sessionId);
+            }
+            ranges = Collections.singletonList(new UploadSession.Range(0, fileSize - 1));
+        }
+
+        List<UploadSession.Range> chunks = split(ranges);
+        if (!chunks.isEmpty()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                uploadChunks(raf.getChannel(), storePath, sessionId, fileSize, chunks);
+            }
+        }
+        client.commitUploadSession(sessionId);
+    }
+
+    /**
+     * Keeps at most {@link #parallelChunks} chunks of the file in flight on the shared pool.
+     */
+    private void uploadChunks(FileChannel channel,
+                              String storePath,
+                              String sessionId,
+                              long fileSize,
+                              List<UploadSession.Range> chunks) throws IOException, InterruptedException {
+        CompletionService<Void> completionService = new ExecutorCompletionService<>(EXECUTOR);
+        List<Future<Void>> inFlight = new ArrayList<>();
+        try {
+            int submitted = 0;
+            for (int completed = 0; completed < chunks.size(); ++completed) {
+                while (submitted < chunks.size() && submitted - completed < parallelChunks) {
+                    inFlight.add(completionService.submit(
+                            new ChunkTask(channel, storePath, sessionId, chunks.get(submitted++), fileSize)));
+                }
+                try {
+                    completionService.take().get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    throw new IOException("Failed to upload " + storePath, cause);
+                }
+            }
+        } finally {
+            for (Future<Void> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Splits the ranges to upload into chunks of at most {@link #chunkSize} bytes.
+     */
+    private List<UploadSession.Range> split(List<UploadSession.Range> ranges) {
+        List<UploadSession.Range> chunks = new ArrayList<>();
+        for (UploadSession.Range range : ranges) {
+            for (long start = range.getStart(); start <= range.getEnd(); start += chunkSize) {
+                chunks.add(new UploadSession.Range(start, Math.min(range.getEnd(), start + chunkSize - 1)));
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * The same file content uploaded to the same path maps to the same session, which is what allows to resume.
+     */
+    private static String sessionIdOf(File file, String storePath) {
+        String key = storePath + "\n" + file.length() + "\n" + file.lastModified();
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private final class ChunkTask implements Callable<Void> {
+        private final FileChannel channel;
+        private final String storePath;
+        private final String sessionId;
+        private final UploadSession.Range chunk;
+        private final long fileSize;
+
+        ChunkTask(FileChannel channel, String storePath, String sessionId, UploadSession.Range chunk, long fileSize) {
+            this.channel = channel;
+            this.storePath = storePath;
+            this.sessionId = sessionId;
+            this.chunk = chunk;
+            this.fileSize = fileSize;
+        }
+
+        @Override
+        public Void call() throws IOException, InterruptedException {
+            // mapped when the chunk is uploaded, so that only the chunks in flight are mapped at a time
+            long start = chunk.getStart();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, chunk.getLength());
+            for (int attempt = 1;; ++attempt) {
+                try {
+                    client.uploadChunk(storePath, sessionId, buffer, start, fileSize);
+                    return null;
+                } catch (IOException e) {
+                    if (attempt >= MAX_ATTEMPTS || !RetryPolicy.isTransient(e)) {
+                        throw e;
+                    }
+                    long backoff = RetryPolicy.backoffOf(attempt);
+                    logger.println(String.format("Failed to upload %s at offset %d (attempt %d of %d), "
+                            + "retrying in %d ms: %s", storePath, start, attempt, MAX_ATTEMPTS, backoff, e));
+                    Thread.sleep(backoff);
+                }
+            }
+        }
+    }
+}
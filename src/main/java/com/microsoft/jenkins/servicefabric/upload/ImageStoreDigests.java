@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.upload;
+
+import com.google.common.io.BaseEncoding;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricEndpoint;
+import hudson.util.AtomicFileWriter;
+import jenkins.model.Jenkins;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Records on the master the digest of the package last uploaded to each image store path of each cluster.
+ * <p>
+ * The image store only reports the file sizes, so the content digests are kept here to tell the changed files
+ * from the unchanged ones in the next upload.
+ */
+public final class ImageStoreDigests {
+    private static final Logger LOGGER = Logger.getLogger(ImageStoreDigests.class.getName());
+
+    private static final String DIRECTORY = "service-fabric/image-store";
+    private static final String EXTENSION = ".digest";
+
+    /**
+     * @return the digest of the package last uploaded, or {@code null} if unknown.
+     */
+    public static PackageDigest load(ServiceFabricEndpoint endpoint, String storePath) {
+        File file = getFile(endpoint, storePath);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            return PackageDigest.readFrom(in);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to read the package digest " + file, e);
+            return null;
+        }
+    }
+
+    public static void save(ServiceFabricEndpoint endpoint, String storePath, PackageDigest digest)
+            throws IOException {
+        AtomicFileWriter writer = new AtomicFileWriter(getFile(endpoint, storePath), StandardCharsets.UTF_8.name());
+        try {
+            digest.writeTo(writer);
+            writer.commit();
+        } finally {
+            writer.abort();
+        }
+    }
+
+    private static File getFile(ServiceFabricEndpoint endpoint, String storePath) {
+        String key = endpoint.getHost() + ":" + endpoint.getPort() + "/" + storePath;
+        String name = BaseEncoding.base16().lowerCase().encode(
+                PackageDigest.newMessageDigest().digest(key.getBytes(StandardCharsets.UTF_8)));
+        return new File(new File(Jenkins.getInstance().getRootDir(), DIRECTORY), name + EXTENSION);
+    }
+
+    private ImageStoreDigests() {
+        // hide constructor
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.upload;
+
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricClient;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Uploads a local application package directory to the cluster image store, the same way as
+ * {@code sfctl application upload}: every file is uploaded with its relative path, and every directory gets an
+ * empty {@code _.dir} marker file.
+ * <p>
+ * Files larger than a chunk are uploaded through a resumable upload session, see {@link ChunkedUploader}.
+ * <p>
+ * The directories or files of a diff package that the cluster takes from the provisioned version can be left out,
+ * given by their paths relative to the package directory.
+ * <p>
+ * With a compression level, the code, config and data packages are uploaded as zip files next to their service
+ * manifest, like a package compressed by {@code Copy-ServiceFabricApplicationPackage -CompressPackage}. The zip
+ * files are compressed on several threads as they are uploaded, they are never written to disk.
+ */
+public final class ImageStoreUploader {
+    static final String DIRECTORY_MARKER = "_.dir";
+    static final String SERVICE_MANIFEST_FILE = "ServiceManifest.xml";
+    static final String ZIP_EXTENSION = ".zip";
+
+    /**
+     * Leaves room for the zip headers and the data that does not compress.
+     */
+    private static final long MAX_ZIPPED_SIZE = StreamingZipWriter.MAX_SIZE / 10 * 9;
+
+    private final ServiceFabricClient client;
+    private final PrintStream logger;
+    private final ChunkedUploader chunkedUploader;
+    private final int compressionLevel;
+    private int uploadedFiles;
+    private long uploadedBytes;
+
+    public ImageStoreUploader(ServiceFabricClient client, PrintStream logger) {
+        this(client, logger, 0);
+    }
+
+    /**
+     * @param compressionLevel the deflate level of the compressed packages, from 1 (fastest) to 9 (smallest), 0 to
+     *                         upload the packages uncompressed.
+     */
+    public ImageStoreUploader(ServiceFabricClient client, PrintStream logger, int compressionLevel) {
+        this.client = client;
+        this.logger = logger;
+        this.chunkedUploader = new ChunkedUploader(client, logger);
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Uploads the whole package, in place of whatever the image store holds at the path.
+     *
+     * @param packageDir local application package directory.
+     * @param storePath  the image store path to upload to.
+     * @param excluded   the relative paths to leave out.
+     * @return number of files uploaded.
+     */
+    public int upload(File packageDir, String storePath, Set<String> excluded)
+            throws IOException, InterruptedException {
+        checkPackageDir(packageDir);
+        List<String> files = new ArrayList<>();
+        List<String> directories = new ArrayList<>();
+        collect(packageDir, "", excluded, files, directories);
+
+        clear(storePath);
+        if (compressionLevel > 0) {
+            for (String servicePackage : findServicePackages(packageDir, excluded)) {
+                uploadCompressed(packageDir, storePath, servicePackage, files, directories);
+            }
+        }
+        uploadFiles(packageDir, storePath, files);
+        for (String relativeDir : directories) {
+            client.uploadFile(storePath + "/" + markerOf(relativeDir), null);
+        }
+        return files.size();
+    }
+
+    /**
+     * Uploads only the files that changed since the previous upload to the same image store path.
+     * <p>
+     * A file is uploaded if its content digest differs from the previous upload, or if the image store does not
+     * hold a file of the same size at its path any more. Files in the image store that are no longer in the
+     * package are deleted. Without a previous digest, the image store path is cleared first.
+     *
+     * @param packageDir local application package directory.
+     * @param storePath  the image store path to upload to.
+     * @param excluded   the relative paths to leave out.
+     * @param previous   digest of the package previously uploaded to {@code storePath}, or {@code null} if unknown.
+     * @return digest of the package now in the image store.
+     */
+    public PackageDigest uploadChanges(File packageDir, String storePath, Set<String> excluded,
+                                       PackageDigest previous) throws IOException, InterruptedException {
+        checkPackageDir(packageDir);
+        return uploadChanges(packageDir, storePath, PackageDigest.compute(packageDir, excluded), previous);
+    }
+
+    /**
+     * Uploads only the files that changed since the previous upload, given the digest of the package computed
+     * beforehand, see {@link #uploadChanges(File, String, Set, PackageDigest)}.
+     *
+     * @param local digest of the files to upload, the excluded paths left out.
+     */
+    public PackageDigest uploadChanges(File packageDir, String storePath, PackageDigest local,
+                                       PackageDigest previous) throws IOException, InterruptedException {
+        checkPackageDir(packageDir);
+        Map<String, Long> remote;
+        if (previous == null) {
+            clear(storePath);
+            remote = Collections.emptyMap();
+        } else {
+            remote = client.listImageStoreFiles(storePath);
+        }
+
+        List<String> changed = new ArrayList<>();
+        Set<String> markers = new LinkedHashSet<>();
+        for (Map.Entry<String, PackageDigest.FileDigest> entry : local.getFiles().entrySet()) {
+            String path = entry.getKey();
+            PackageDigest.FileDigest digest = entry.getValue();
+            PackageDigest.FileDigest uploaded = previous == null ? null : previous.get(path);
+            Long remoteSize = remote.get(path);
+            if (!digest.equals(uploaded) || remoteSize == null || remoteSize != digest.getSize()) {
+                changed.add(path);
+            }
+            for (String dir = parentOf(path); dir != null; dir = parentOf(dir)) {
+                String marker = markerOf(dir);
+                if (!remote.containsKey(marker)) {
+                    markers.add(marker);
+                }
+            }
+        }
+
+        for (String path : remote.keySet()) {
+            if (local.get(path) == null && !isMarker(path)) {
+                client.deleteImageStoreContent(storePath + "/" + path);
+            }
+        }
+        uploadFiles(packageDir, storePath, changed);
+        for (String marker : markers) {
+            client.uploadFile(storePath + "/" + marker, null);
+        }
+
+        logger.println(String.format("Uploaded %d changed files, skipped %d unchanged files",
+                changed.size(), local.getFiles().size() - changed.size()));
+        return local;
+    }
+
+    /**
+     * Deletes what a previous upload left at the image store path, e.g., the directory of a package now uploaded as a
+     * zip file, or the files of a diff package now taken from the provisioned version.
+     */
+    private void clear(String storePath) throws IOException {
+        try {
+            client.deleteImageStoreContent(storePath);
+        } catch (ServiceFabricException e) {
+            if (e.getStatusCode() != HttpURLConnection.HTTP_NOT_FOUND) {
+                throw e;
+            }
+        }
+    }
+
+    private void uploadFiles(File packageDir, String storePath, List<String> files)
+            throws IOException, InterruptedException {
+        int total = files.size();
+        int count = 0;
+        for (String relativePath : files) {
+            File file = new File(packageDir, relativePath);
+            if (file.length() > chunkedUploader.getChunkSize()) {
+                chunkedUploader.upload(file, storePath + "/" + relativePath);
+            } else {
+                client.uploadFile(storePath + "/" + relativePath, file);
+            }
+            count++;
+            uploadedFiles++;
+            uploadedBytes += file.length();
+            logger.println(String.format("[%d/%d] %s", count, total, relativePath));
+        }
+    }
+
+    /**
+     * Uploads a code, config or data package as a zip file, unless it is too large for the zip format, and removes
+     * its files and directories from the ones left to upload.
+     *
+     * @param servicePackage the relative path of the package directory.
+     */
+    private void uploadCompressed(final File packageDir,
+                                  String storePath,
+                                  String servicePackage,
+                                  List<String> files,
+                                  List<String> directories) throws IOException {
+        String prefix = servicePackage + "/";
+        final List<String> packageFiles = new ArrayList<>();
+        long size = 0;
+        for (String file : files) {
+            if (file.startsWith(prefix)) {
+                packageFiles.add(file);
+                size += new File(packageDir, file).length();
+            }
+        }
+        final List<String> packageDirectories = new ArrayList<>();
+        for (String directory : directories) {
+            if (directory.startsWith(prefix)) {
+                packageDirectories.add(directory);
+            }
+        }
+        if (size > MAX_ZIPPED_SIZE
+                || packageFiles.size() + packageDirectories.size() > StreamingZipWriter.MAX_ENTRIES) {
+            logger.println(String.format("%s is too large to be zipped, uploading it uncompressed", servicePackage));
+            return;
+        }
+
+        final int prefixLength = prefix.length();
+        final long[] zipSize = new long[1];
+        client.uploadStream(storePath + "/" + servicePackage + ZIP_EXTENSION, new ServiceFabricClient.ContentWriter() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                StreamingZipWriter zip = new StreamingZipWriter(out, compressionLevel);
+                for (String directory : packageDirectories) {
+                    zip.addDirectory(directory.substring(prefixLength),
+                            new File(packageDir, directory).lastModified());
+                }
+                for (String file : packageFiles) {
+                    zip.addFile(file.substring(prefixLength), new File(packageDir, file));
+                }
+                zipSize[0] = zip.finish();
+            }
+        });
+        files.removeAll(new HashSet<>(packageFiles));
+        directories.removeAll(new HashSet<>(packageDirectories));
+        directories.remove(servicePackage);
+        uploadedFiles++;
+        uploadedBytes += zipSize[0];
+        logger.println(String.format("%s%s: %d files, %d bytes compressed to %d bytes", servicePackage,
+                ZIP_EXTENSION, packageFiles.size(), size, zipSize[0]));
+    }
+
+    /**
+     * @return the relative paths of the code, config and data package directories: the directories next to a
+     * service manifest.
+     */
+    private static List<String> findServicePackages(File packageDir, Set<String> excluded) {
+        List<String> packages = new ArrayList<>();
+        File[] services = packageDir.listFiles();
+        if (services == null) {
+            return packages;
+        }
+        for (File service : services) {
+            if (excluded.contains(service.getName()) || !new File(service, SERVICE_MANIFEST_FILE).isFile()) {
+                continue;
+            }
+            File[] children = service.listFiles();
+            if (children == null) {
+                continue;
+            }
+            for (File child : children) {
+                String relativePath = service.getName() + "/" + child.getName();
+                if (child.isDirectory() && !excluded.contains(relativePath)) {
+                    packages.add(relativePath);
+                }
+            }
+        }
+        return packages;
+    }
+
+    /**
+     * @return what was uploaded by this uploader so far.
+     */
+    public UploadStats getStats(PackageDigest digest) {
+        return new UploadStats(uploadedFiles, uploadedBytes, digest);
+    }
+
+    private static void checkPackageDir(File packageDir) throws IOException {
+        if (!packageDir.isDirectory()) {
+            throw new IOException("Application package directory " + packageDir + " does not exist");
+        }
+    }
+
+    /**
+     * @return the parent directory, {@code ""} for the package root, or {@code null} for the package root itself.
+     */
+    private static String parentOf(String relativePath) {
+        if (relativePath.isEmpty()) {
+            return null;
+        }
+        int index = relativePath.lastIndexOf('/');
+        return index < 0 ? "" : relativePath.substring(0, index);
+    }
+
+    private static String markerOf(String relativeDir) {
+        return relativeDir.isEmpty() ? DIRECTORY_MARKER : relativeDir + "/" + DIRECTORY_MARKER;
+    }
+
+    private static boolean isMarker(String relativePath) {
+        return relativePath.equals(DIRECTORY_MARKER) || relativePath.endsWith("/" + DIRECTORY_MARKER);
+    }
+
+    private static void collect(File dir,
+                                String relativeDir,
+                                Set<String> excluded,
+                                List<String> files,
+                                List<String> directories) throws IOException {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            throw new IOException("Cannot list directory " + dir);
+        }
+        directories.add(relativeDir);
+        for (File child : children) {
+            String relativePath = relativeDir.isEmpty() ? child.getName() : relativeDir + "/" + child.getName();
+            if (excluded.contains(relativePath)) {
+                continue;
+            }
+            if (child.isDirectory()) {
+                collect(child, relativePath, excluded, files, directories);
+            } else {
+                files.add(relativePath);
+            }
+        }
+    }
+}
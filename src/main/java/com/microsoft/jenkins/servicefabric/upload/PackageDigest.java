@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.upload;
+
+import com.google.common.io.BaseEncoding;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Serializable;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Content digest of every file in an application package, keyed by the path relative to the package directory,
+ * using {@code /} as separator.
+ */
+public final class PackageDigest implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final String ALGORITHM = "SHA-256";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int LINE_FIELDS = 3;
+
+    private final SortedMap<String, FileDigest> files;
+
+    public PackageDigest(SortedMap<String, FileDigest> files) {
+        this.files = files;
+    }
+
+    /**
+     * Computes the digest of all the files under the package directory.
+     */
+    public static PackageDigest compute(File packageDir) throws IOException {
+        return compute(packageDir, Collections.<String>emptySet());
+    }
+
+    /**
+     * Computes the digest of the files under the package directory, except the given relative paths of files or
+     * directories.
+     */
+    public static PackageDigest compute(File packageDir, Set<String> excluded) throws IOException {
+        SortedMap<String, FileDigest> files = new TreeMap<>();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        collect(packageDir, "", excluded, files, newMessageDigest(), buffer);
+        return new PackageDigest(files);
+    }
+
+    private static void collect(File dir,
+                                String relativeDir,
+                                Set<String> excluded,
+                                SortedMap<String, FileDigest> files,
+                                MessageDigest digest,
+                                byte[] buffer) throws IOException {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            throw new IOException("Cannot list directory " + dir);
+        }
+        for (File child : children) {
+            String relativePath = relativeDir.isEmpty() ? child.getName() : relativeDir + "/" + child.getName();
+            if (excluded.contains(relativePath)) {
+                continue;
+            }
+            if (child.isDirectory()) {
+                collect(child, relativePath, excluded, files, digest, buffer);
+            } else {
+                files.put(relativePath, digestFile(child, digest, buffer));
+            }
+        }
+    }
+
+    private static FileDigest digestFile(File file, MessageDigest digest, byte[] buffer) throws IOException {
+        digest.reset();
+        long size = 0;
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                size += read;
+            }
+        }
+        return new FileDigest(BaseEncoding.base16().lowerCase().encode(digest.digest()), size);
+    }
+
+    static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " is not supported", e);
+        }
+    }
+
+    /**
+     * @return the digest of the files not under the given relative paths of files or directories, the same as
+     * {@link #compute(File, Set)} would return with them excluded.
+     */
+    public PackageDigest without(Set<String> excluded) {
+        if (excluded.isEmpty()) {
+            return this;
+        }
+        SortedMap<String, FileDigest> remaining = new TreeMap<>();
+        for (Map.Entry<String, FileDigest> entry : files.entrySet()) {
+            if (!isExcluded(entry.getKey(), excluded)) {
+                remaining.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return new PackageDigest(remaining);
+    }
+
+    private static boolean isExcluded(String relativePath, Set<String> excluded) {
+        for (String path = relativePath; path != null; path = parentOf(path)) {
+            if (excluded.contains(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String parentOf(String relativePath) {
+        int index = relativePath.lastIndexOf('/');
+        return index < 0 ? null : relativePath.substring(0, index);
+    }
+
+    public Map<String, FileDigest> getFiles() {
+        return Collections.unmodifiableMap(files);
+    }
+
+    public FileDigest get(String relativePath) {
+        return files.get(relativePath);
+    }
+
+    public long getTotalSize() {
+        long total = 0;
+        for (FileDigest file : files.values()) {
+            total += file.getSize();
+        }
+        return total;
+    }
+
+    /**
+     * @return a digest of the whole package, which changes when any file is added, removed or changed.
+     */
+    public String getFingerprint() {
+        MessageDigest digest = newMessageDigest();
+        for (Map.Entry<String, FileDigest> entry : files.entrySet()) {
+            FileDigest file = entry.getValue();
+            digest.update((file.getSha256() + " " + file.getSize() + " " + entry.getKey() + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        return BaseEncoding.base16().lowerCase().encode(digest.digest());
+    }
+
+    /**
+     * Writes the digest in a {@code sha256sum} like format: one {@code <sha256> <size> <path>} line per file.
+     */
+    public void writeTo(Writer writer) throws IOException {
+        for (Map.Entry<String, FileDigest> entry : files.entrySet()) {
+            FileDigest file = entry.getValue();
+            writer.write(file.getSha256() + " " + file.getSize() + " " + entry.getKey() + "\n");
+        }
+        writer.flush();
+    }
+
+    public static PackageDigest readFrom(InputStream in) throws IOException {
+        SortedMap<String, FileDigest> files = new TreeMap<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] parts = line.split(" ", LINE_FIELDS);
+            if (parts.length != LINE_FIELDS) {
+                throw new IOException("Malformed package digest line: " + line);
+            }
+            try {
+                files.put(parts[2], new FileDigest(parts[0], Long.parseLong(parts[1])));
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed package digest line: " + line, e);
+            }
+        }
+        return new PackageDigest(files);
+    }
+
+    /**
+     * Content digest of a single file.
+     */
+    public static final class FileDigest implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String sha256;
+        private final long size;
+
+        public FileDigest(String sha256, long size) {
+            this.sha256 = sha256;
+            this.size = size;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            FileDigest that = (FileDigest) o;
+            return size == that.size && sha256.equals(that.sha256);
+        }
+
+        @Override
+        public int hashCode() {
+            return sha256.hashCode();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.upload;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses a stream to raw deflate data on several threads, the way {@code pigz} does.
+ * <p>
+ * The input is split into blocks that are compressed concurrently, each primed with the end of the previous block
+ * as dictionary so that the ratio stays close to a single threaded deflate. Every block but the last ends with a
+ * sync flush, so the compressed blocks concatenate into one valid deflate stream, written in order as they complete.
+ * Only a bounded number of blocks is in flight, so the memory used does not depend on the size of the input.
+ */
+final class ParallelDeflater {
+    static final int BLOCK_SIZE = 128 * 1024;
+    static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int BLOCKS_IN_FLIGHT = THREADS * 2;
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS,
+            new NamingThreadFactory(new DaemonThreadFactory(), ParallelDeflater.class.getSimpleName()));
+
+    private final int level;
+
+    ParallelDeflater(int level) {
+        this.level = level;
+    }
+
+    /**
+     * What was compressed, as needed by the zip entry.
+     */
+    static final class Result {
+        private final long crc;
+        private final long size;
+        private final long compressedSize;
+
+        Result(long crc, long size, long compressedSize) {
+            this.crc = crc;
+            this.size = size;
+            this.compressedSize = compressedSize;
+        }
+
+        long getCrc() {
+            return crc;
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        long getCompressedSize() {
+            return compressedSize;
+        }
+    }
+
+    /**
+     * Compresses the input to the output, without closing either.
+     */
+    Result deflate(InputStream in, OutputStream out) throws IOException {
+        CRC32 crc = new CRC32();
+        long size = 0;
+        long compressedSize = 0;
+        Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+        byte[] dictionary = null;
+        byte[] block = readBlock(in);
+        try {
+            while (true) {
+                byte[] next = block.length < BLOCK_SIZE ? null : readBlock(in);
+                boolean last = next == null || next.length == 0;
+                crc.update(block, 0, block.length);
+                size += block.length;
+
+                BlockTask task = new BlockTask(level, dictionary, block, last);
+                if (last && inFlight.isEmpty()) {
+                    // a small input, not worth a hand-off
+                    byte[] compressed = task.call();
+                    out.write(compressed);
+                    compressedSize += compressed.length;
+                    break;
+                }
+                inFlight.add(EXECUTOR.submit(task));
+                while (inFlight.size() >= BLOCKS_IN_FLIGHT || (last && !inFlight.isEmpty())) {
+                    byte[] compressed = take(inFlight);
+                    out.write(compressed);
+                    compressedSize += compressed.length;
+                }
+                if (last) {
+                    break;
+                }
+                dictionary = tail(block);
+                block = next;
+            }
+        } finally {
+            for (Future<byte[]> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+        return new Result(crc.getValue(), size, compressedSize);
+    }
+
+    private static byte[] take(Deque<Future<byte[]>> inFlight) throws IOException {
+        try {
+            return inFlight.removeFirst().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress", e.getCause());
+        }
+    }
+
+    /**
+     * @return the next block, shorter than {@link #BLOCK_SIZE} only at the end of the input.
+     */
+    private static byte[] readBlock(InputStream in) throws IOException {
+        byte[] block = new byte[BLOCK_SIZE];
+        int length = 0;
+        while (length < BLOCK_SIZE) {
+            int read = in.read(block, length, BLOCK_SIZE - length);
+            if (read < 0) {
+                break;
+            }
+            length += read;
+        }
+        return length == BLOCK_SIZE ? block : Arrays.copyOf(block, length);
+    }
+
+    private static byte[] tail(byte[] block) {
+        return block.length <= DICTIONARY_SIZE
+                ? block
+                : Arrays.copyOfRange(block, block.length - DICTIONARY_SIZE, block.length);
+    }
+
+    private static final class BlockTask implements Callable<byte[]> {
+        private final int level;
+        private final byte[] dictionary;
+        private final byte[] block;
+        private final boolean last;
+
+        BlockTask(int level, byte[] dictionary, byte[] block, boolean last) {
+            this.level = level;
+            this.dictionary = dictionary;
+            this.block = block;
+            this.last = last;
+        }
+
+        @Override
+        public byte[] call() {
+            Deflater deflater = new Deflater(level, true);
+            try {
+                if (dictionary != null) {
+                    deflater.setDictionary(dictionary);
+                }
+                deflater.setInput(block);
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(block.length / 2);
+                byte[] buffer = new byte[BLOCK_SIZE];
+                if (last) {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        int length = deflater.deflate(buffer);
+                        compressed.write(buffer, 0, length);
+                    }
+                } else {
+                    // a sync flush ends on a byte boundary, so the next block can follow
+                    int length;
+                    do {
+                        length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                        compressed.write(buffer, 0, length);
+                    } while (length == buffer.length);
+                }
+                return compressed.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.upload;
+
+import com.google.common.io.CountingOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Writes a zip archive to a stream that cannot seek, e.g., an HTTP request body, compressing the files with a
+ * {@link ParallelDeflater} as they are read.
+ * <p>
+ * The sizes and checksum of each file are written after its data, in a data descriptor, so nothing is buffered or
+ * spooled to disk. The archive is limited to the classic zip format: fewer than 65535 entries and 4 GB.
+ */
+final class StreamingZipWriter {
+    static final int MAX_ENTRIES = 0xFFFF - 1;
+    static final long MAX_SIZE = 0xFFFFFFFFL;
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int VERSION = 20;
+    private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+
+    private static final int DOS_YEAR_BASE = 1980;
+    private static final int DOS_YEAR_SHIFT = 25;
+    private static final int DOS_MONTH_SHIFT = 21;
+    private static final int DOS_DAY_SHIFT = 16;
+    private static final int DOS_HOUR_SHIFT = 11;
+    private static final int DOS_MINUTE_SHIFT = 5;
+    private static final int BYTE_MASK = 0xFF;
+    private static final int BITS_PER_BYTE = 8;
+    private static final int INT_BYTES = 4;
+
+    private final CountingOutputStream out;
+    private final ParallelDeflater deflater;
+    private final List<Entry> entries = new ArrayList<>();
+
+    StreamingZipWriter(OutputStream out, int level) {
+        this.out = new CountingOutputStream(out);
+        this.deflater = new ParallelDeflater(level);
+    }
+
+    /**
+     * Adds a directory, so that it exists once extracted even if it is empty.
+     *
+     * @param name the path of the directory in the archive, using {@code /} as separator.
+     */
+    void addDirectory(String name, long lastModified) throws IOException {
+        Entry entry = new Entry(name + "/", METHOD_STORED, FLAG_UTF8, dosTime(lastModified), out.getCount());
+        writeLocalHeader(entry);
+        entries.add(entry);
+    }
+
+    /**
+     * Adds a file, compressed.
+     *
+     * @param name the path of the file in the archive, using {@code /} as separator.
+     */
+    void addFile(String name, File file) throws IOException {
+        Entry entry = new Entry(name, METHOD_DEFLATED, FLAG_UTF8 | FLAG_DATA_DESCRIPTOR, dosTime(file.lastModified()),
+                out.getCount());
+        writeLocalHeader(entry);
+        ParallelDeflater.Result result;
+        try (InputStream in = new FileInputStream(file)) {
+            result = deflater.deflate(in, out);
+        }
+        entry.crc = result.getCrc();
+        entry.size = result.getSize();
+        entry.compressedSize = result.getCompressedSize();
+        checkSize(entry.size, "The size of " + file);
+        checkSize(entry.compressedSize, "The compressed size of " + file);
+
+        ByteArrayOutputStream descriptor = new ByteArrayOutputStream();
+        writeInt(descriptor, DATA_DESCRIPTOR_SIGNATURE);
+        writeInt(descriptor, entry.crc);
+        writeInt(descriptor, entry.compressedSize);
+        writeInt(descriptor, entry.size);
+        descriptor.writeTo(out);
+        entries.add(entry);
+    }
+
+    /**
+     * Writes the central directory, which completes the archive. The underlying stream is not closed.
+     *
+     * @return the size of the archive.
+     */
+    long finish() throws IOException {
+        if (entries.size() > MAX_ENTRIES) {
+            throw new IOException("Too many files to zip: " + entries.size());
+        }
+        long centralDirectoryOffset = out.getCount();
+        checkSize(centralDirectoryOffset, "The zip archive");
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        for (Entry entry : entries) {
+            header.reset();
+            byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+            writeInt(header, CENTRAL_HEADER_SIGNATURE);
+            writeShort(header, VERSION);
+            writeShort(header, VERSION);
+            writeShort(header, entry.flags);
+            writeShort(header, entry.method);
+            writeInt(header, entry.dosTime);
+            writeInt(header, entry.crc);
+            writeInt(header, entry.compressedSize);
+            writeInt(header, entry.size);
+            writeShort(header, name.length);
+            // extra field, comment, disk number, internal and external attributes
+            writeShort(header, 0);
+            writeShort(header, 0);
+            writeShort(header, 0);
+            writeShort(header, 0);
+            writeInt(header, 0);
+            writeInt(header, entry.offset);
+            header.write(name);
+            header.writeTo(out);
+        }
+        long centralDirectorySize = out.getCount() - centralDirectoryOffset;
+
+        header.reset();
+        writeInt(header, END_SIGNATURE);
+        // disk numbers
+        writeShort(header, 0);
+        writeShort(header, 0);
+        writeShort(header, entries.size());
+        writeShort(header, entries.size());
+        writeInt(header, centralDirectorySize);
+        writeInt(header, centralDirectoryOffset);
+        // comment
+        writeShort(header, 0);
+        header.writeTo(out);
+        out.flush();
+        return out.getCount();
+    }
+
+    private void writeLocalHeader(Entry entry) throws IOException {
+        checkSize(entry.offset, "The zip archive");
+        byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        writeInt(header, LOCAL_HEADER_SIGNATURE);
+        writeShort(header, VERSION);
+        writeShort(header, entry.flags);
+        writeShort(header, entry.method);
+        writeInt(header, entry.dosTime);
+        // checksum and sizes, in the data descriptor for the files, 0 for the directories
+        writeInt(header, 0);
+        writeInt(header, 0);
+        writeInt(header, 0);
+        writeShort(header, name.length);
+        writeShort(header, 0);
+        header.write(name);
+        header.writeTo(out);
+    }
+
+    private static void checkSize(long size, String what) throws IOException {
+        if (size > MAX_SIZE) {
+            throw new IOException(what + " exceeds the 4 GB limit of the zip format");
+        }
+    }
+
+    private static long dosTime(long millis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(millis);
+        int year = calendar.get(Calendar.YEAR);
+        if (year < DOS_YEAR_BASE) {
+            calendar.set(DOS_YEAR_BASE, Calendar.JANUARY, 1, 0, 0, 0);
+            year = DOS_YEAR_BASE;
+        }
+        return ((long) (year - DOS_YEAR_BASE) << DOS_YEAR_SHIFT)
+                | ((long) (calendar.get(Calendar.MONTH) + 1) << DOS_MONTH_SHIFT)
+                | ((long) calendar.get(Calendar.DAY_OF_MONTH) << DOS_DAY_SHIFT)
+                | ((long) calendar.get(Calendar.HOUR_OF_DAY) << DOS_HOUR_SHIFT)
+                | ((long) calendar.get(Calendar.MINUTE) << DOS_MINUTE_SHIFT)
+                | (calendar.get(Calendar.SECOND) / 2);
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write(value & BYTE_MASK);
+        out.write((value >>> BITS_PER_BYTE) & BYTE_MASK);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, long value) {
+        for (int i = 0; i < INT_BYTES; i++) {
+            out.write((int) (value >>> (i * BITS_PER_BYTE)) & BYTE_MASK);
+        }
+    }
+
+    private static final class Entry {
+        private final String name;
+        private final int method;
+        private final int flags;
+        private final long dosTime;
+        private final long offset;
+        private long crc;
+        private long size;
+        private long compressedSize;
+
+        Entry(String name, int method, int flags, long dosTime, long offset) {
+            this.name = name;
+            this.method = method;
+            this.flags = flags;
+            this.dosTime = dosTime;
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.upload;
+
+import java.io.Serializable;
+
+/**
+ * What an upload sent to the image store, returned from the node that holds the package.
+ */
+public final class UploadStats implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int fileCount;
+    private final long bytes;
+    private final PackageDigest digest;
+
+    public UploadStats(int fileCount, long bytes, PackageDigest digest) {
+        this.fileCount = fileCount;
+        this.bytes = bytes;
+        this.digest = digest;
+    }
+
+    /**
+     * @return the number of files uploaded, without the unchanged files skipped.
+     */
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the digest of the package now in the image store, or {@code null} if it was not computed.
+     */
+    public PackageDigest getDigest() {
+        return digest;
+    }
+}
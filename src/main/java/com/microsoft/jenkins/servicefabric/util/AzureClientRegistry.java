@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.util;
+
+import com.google.common.io.BaseEncoding;
+import com.microsoft.azure.management.Azure;
+import com.microsoft.jenkins.azurecommons.core.credentials.TokenCredentialData;
+import jenkins.util.Timer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Master wide registry of the authenticated Azure clients, one per credentials.
+ * <p>
+ * Reusing the client reuses its HTTP connection pool and its access token. The clients are keyed by the content of
+ * the credentials, so a client built from credentials that were changed since is not used any more, and is evicted
+ * together with the clients that were not used for a while. A client that gets close to the expiry of its access
+ * token is replaced in the background by a new one with a fresh token, so that the deployments do not wait for it.
+ */
+public final class AzureClientRegistry {
+    private static final Logger LOGGER = Logger.getLogger(AzureClientRegistry.class.getName());
+
+    static final long IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    /**
+     * Azure AD access tokens are valid for one hour.
+     */
+    static final long REFRESH_AFTER_MILLIS = TimeUnit.MINUTES.toMillis(45);
+
+    private static final AzureClientRegistry INSTANCE = new AzureClientRegistry();
+
+    private final ConcurrentMap<String, Entry> clients = new ConcurrentHashMap<>();
+
+    public static AzureClientRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets the client for the given credentials, building it on first use.
+     *
+     * @param credentialsId the id of the Azure credentials.
+     * @param tokenData     the serialized token data of the credentials.
+     */
+    public Azure get(String credentialsId, String tokenData) {
+        long now = System.currentTimeMillis();
+        evict(credentialsId, tokenData, now);
+
+        final String key = keyOf(credentialsId, tokenData);
+        Entry entry = clients.get(key);
+        if (entry == null) {
+            synchronized (this) {
+                entry = clients.get(key);
+                if (entry == null) {
+                    entry = new Entry(AzureHelper.buildClient(TokenCredentialData.deserialize(tokenData)), now);
+                    clients.put(key, entry);
+                }
+            }
+        }
+        entry.lastUsed = now;
+
+        if (now - entry.created > REFRESH_AFTER_MILLIS && entry.refreshing.compareAndSet(false, true)) {
+            refreshInBackground(key, entry, tokenData);
+        }
+        return entry.azure;
+    }
+
+    private void refreshInBackground(final String key, final Entry entry, final String tokenData) {
+        Timer.get().submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Azure azure = AzureHelper.buildClient(TokenCredentialData.deserialize(tokenData));
+                    // acquires the access token
+                    azure.getCurrentSubscription();
+                    Entry refreshed = new Entry(azure, System.currentTimeMillis());
+                    refreshed.lastUsed = entry.lastUsed;
+                    clients.replace(key, entry, refreshed);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Failed to refresh the Azure client", e);
+                    entry.refreshing.set(false);
+                }
+            }
+        });
+    }
+
+    /**
+     * Evicts the idle clients, and the clients built from a previous version of the given credentials.
+     */
+    private void evict(String credentialsId, String tokenData, long now) {
+        String prefix = credentialsId + "/";
+        String current = keyOf(credentialsId, tokenData);
+        Iterator<Map.Entry<String, Entry>> it = clients.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Entry> entry = it.next();
+            String key = entry.getKey();
+            if (now - entry.getValue().lastUsed > IDLE_TIMEOUT_MILLIS
+                    || (key.startsWith(prefix) && !key.equals(current))) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * The token data holds the secret, only its digest is kept.
+     */
+    static String keyOf(String credentialsId, String tokenData) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(String.valueOf(tokenData).getBytes(StandardCharsets.UTF_8));
+            return credentialsId + "/" + BaseEncoding.base16().lowerCase().encode(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+        private final Azure azure;
+        private final long created;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile long lastUsed;
+
+        Entry(Azure azure, long created) {
+            this.azure = azure;
+            this.created = created;
+            this.lastUsed = created;
+        }
+    }
+
+    private AzureClientRegistry() {
+        // hide constructor
+    }
+}
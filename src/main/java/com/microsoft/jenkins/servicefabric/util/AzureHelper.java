@@ -16,19 +16,29 @@ import hudson.model.Item;
 
 public final class AzureHelper {
     public static TokenCredentialData getToken(Item owner, String credentialsId) {
+        return TokenCredentialData.deserialize(getCredentials(owner, credentialsId).serializeToTokenData());
+    }
+
+    /**
+     * Gets the shared Azure client for the credentials, see {@link AzureClientRegistry}.
+     */
+    public static Azure buildClient(Item owner, String credentialsId) {
+        AzureBaseCredentials credentials = getCredentials(owner, credentialsId);
+        return AzureClientRegistry.getInstance().get(credentialsId, credentials.serializeToTokenData());
+    }
+
+    static AzureBaseCredentials getCredentials(Item owner, String credentialsId) {
         AzureBaseCredentials credentials = AzureCredentialUtil.getCredential(owner, credentialsId);
         if (credentials == null) {
             throw new IllegalStateException(
                     String.format("Can't find credential in scope %s with id: %s", owner, credentialsId));
         }
-        return TokenCredentialData.deserialize(credentials.serializeToTokenData());
-    }
-
-    public static Azure buildClient(Item owner, String credentialsId) {
-        TokenCredentialData token = getToken(owner, credentialsId);
-        return buildClient(token);
+        return credentials;
     }
 
+    /**
+     * Builds a new Azure client, with its own connection pool and access token.
+     */
     public static Azure buildClient(TokenCredentialData token) {
         return AzureClientFactory.getClient(token, new AzureClientFactory.Configurer() {
             @Override
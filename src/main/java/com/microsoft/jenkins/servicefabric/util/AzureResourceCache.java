@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.util;
+
+import com.microsoft.azure.management.Azure;
+import com.microsoft.azure.management.resources.ResourceGroup;
+import com.microsoft.azure.management.resources.implementation.GenericResourceInner;
+import hudson.model.Item;
+import jenkins.util.Timer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Master wide cache of the resource groups and the Service Fabric clusters visible with each Azure credentials, to
+ * fill the dropdowns of the job configuration page without listing the subscription on every render.
+ * <p>
+ * The clusters of the whole subscription are listed at once, filtered by resource type by ARM, and grouped by
+ * resource group, so a single call serves the cluster dropdown of every resource group. They are fetched in the
+ * background as soon as the resource groups are listed, as the cluster dropdown is usually filled next.
+ * <p>
+ * A listing older than {@link #REFRESH_AFTER_MILLIS} is still served, and refreshed in the background. Only a
+ * listing older than {@link #TTL_MILLIS}, or not loaded yet, is waited for; concurrent loads are collapsed into one.
+ */
+public final class AzureResourceCache {
+    private static final Logger LOGGER = Logger.getLogger(AzureResourceCache.class.getName());
+
+    static final long REFRESH_AFTER_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    static final long TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    static final long IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    private static final String CLUSTER_FILTER =
+            "resourceType eq '" + Constants.SF_PROVIDER + "/" + Constants.SF_CLUSTER_TYPE + "'";
+    private static final String RESOURCE_GROUP_SEGMENT = "/resourcegroups/";
+
+    private static final AzureResourceCache INSTANCE = new AzureResourceCache();
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public static AzureResourceCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets the names of the resource groups visible with the credentials.
+     */
+    public List<String> getResourceGroups(Item owner, String credentialsId) throws IOException {
+        final Azure azure = AzureHelper.buildClient(owner, credentialsId);
+        Entry entry = entryOf(owner, credentialsId);
+        List<String> resourceGroups = entry.resourceGroups.get(new Loader<List<String>>() {
+            @Override
+            public List<String> load() {
+                return loadResourceGroups(azure);
+            }
+        });
+        entry.clusters.prefetch(clusterLoader(azure));
+        return resourceGroups;
+    }
+
+    /**
+     * Gets the names of the Service Fabric clusters in the resource group.
+     */
+    public List<String> getClusters(Item owner, String credentialsId, String resourceGroup) throws IOException {
+        Azure azure = AzureHelper.buildClient(owner, credentialsId);
+        Map<String, List<String>> clusters = entryOf(owner, credentialsId).clusters.get(clusterLoader(azure));
+        List<String> names = clusters.get(resourceGroup.toLowerCase(Locale.ENGLISH));
+        return names == null ? Collections.<String>emptyList() : names;
+    }
+
+    private Entry entryOf(Item owner, String credentialsId) {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().lastUsed > IDLE_TIMEOUT_MILLIS) {
+                it.remove();
+            }
+        }
+
+        // keyed by the content of the credentials, so that changed credentials are listed again
+        String key = AzureClientRegistry.keyOf(credentialsId,
+                AzureHelper.getCredentials(owner, credentialsId).serializeToTokenData());
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry();
+            Entry existing = entries.putIfAbsent(key, entry);
+            if (existing != null) {
+                entry = existing;
+            }
+        }
+        entry.lastUsed = now;
+        return entry;
+    }
+
+    private static List<String> loadResourceGroups(Azure azure) {
+        List<String> names = new ArrayList<>();
+        for (ResourceGroup resourceGroup : azure.resourceGroups().list()) {
+            names.add(resourceGroup.name());
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    private static Loader<Map<String, List<String>>> clusterLoader(final Azure azure) {
+        return new Loader<Map<String, List<String>>>() {
+            @Override
+            public Map<String, List<String>> load() throws IOException {
+                Map<String, List<String>> clusters = new HashMap<>();
+                for (GenericResourceInner resource
+                        : azure.genericResources().manager().inner().resources().list(CLUSTER_FILTER, null, null)) {
+                    String resourceGroup = resourceGroupOf(resource.id());
+                    List<String> names = clusters.get(resourceGroup);
+                    if (names == null) {
+                        names = new ArrayList<>();
+                        clusters.put(resourceGroup, names);
+                    }
+                    names.add(resource.name());
+                }
+                return Collections.unmodifiableMap(clusters);
+            }
+        };
+    }
+
+    /**
+     * Extracts the resource group, in lower case, from a resource id such as
+     * {@code /subscriptions/<id>/resourceGroups/<group>/providers/Microsoft.ServiceFabric/clusters/<name>}.
+     */
+    static String resourceGroupOf(String resourceId) throws IOException {
+        String id = resourceId.toLowerCase(Locale.ENGLISH);
+        int start = id.indexOf(RESOURCE_GROUP_SEGMENT);
+        if (start < 0) {
+            throw new IOException("Unexpected resource id " + resourceId);
+        }
+        start += RESOURCE_GROUP_SEGMENT.length();
+        int end = id.indexOf('/', start);
+        return end < 0 ? id.substring(start) : id.substring(start, end);
+    }
+
+    /**
+     * Lists resources from ARM.
+     */
+    private interface Loader<T> {
+        T load() throws IOException;
+    }
+
+    /**
+     * The listings of one credentials.
+     */
+    private static final class Entry {
+        private final Slot<List<String>> resourceGroups = new Slot<>();
+        private final Slot<Map<String, List<String>>> clusters = new Slot<>();
+        private volatile long lastUsed;
+    }
+
+    /**
+     * Holds one listing, and serves as the lock that collapses the concurrent loads.
+     */
+    private static final class Slot<T> {
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile Value<T> value;
+
+        T get(Loader<T> loader) throws IOException {
+            Value<T> current = value;
+            long now = System.currentTimeMillis();
+            if (current != null && now - current.loadedAt < TTL_MILLIS) {
+                if (now - current.loadedAt > REFRESH_AFTER_MILLIS) {
+                    refreshInBackground(loader);
+                }
+                return current.data;
+            }
+            synchronized (this) {
+                // another request may have loaded it while this one was waiting
+                current = value;
+                if (current != null && System.currentTimeMillis() - current.loadedAt < TTL_MILLIS) {
+                    return current.data;
+                }
+                return load(loader);
+            }
+        }
+
+        /**
+         * Loads the listing in the background if it is not loaded yet or getting stale.
+         */
+        void prefetch(Loader<T> loader) {
+            Value<T> current = value;
+            if (current == null || System.currentTimeMillis() - current.loadedAt > REFRESH_AFTER_MILLIS) {
+                refreshInBackground(loader);
+            }
+        }
+
+        private void refreshInBackground(final Loader<T> loader) {
+            if (!refreshing.compareAndSet(false, true)) {
+                return;
+            }
+            Timer.get().submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        synchronized (Slot.this) {
+                            load(loader);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        LOGGER.log(Level.WARNING, "Failed to refresh the Azure resources", e);
+                    } finally {
+                        refreshing.set(false);
+                    }
+                }
+            });
+        }
+
+        private T load(Loader<T> loader) throws IOException {
+            T data = loader.load();
+            value = new Value<>(data, System.currentTimeMillis());
+            return data;
+        }
+    }
+
+    private static final class Value<T> {
+        private final T data;
+        private final long loadedAt;
+
+        Value(T data, long loadedAt) {
+            this.data = data;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private AzureResourceCache() {
+        // hide constructor
+    }
+}
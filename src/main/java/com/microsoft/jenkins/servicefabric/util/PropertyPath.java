@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A dotted path to a property of the untyped ARM resource properties, such as {@code certificate.thumbprint},
+ * split once so that reading the property only walks the nested maps.
+ */
+public final class PropertyPath {
+    private final String path;
+    private final String[] segments;
+
+    private PropertyPath(String path, String[] segments) {
+        this.path = path;
+        this.segments = segments;
+    }
+
+    public static PropertyPath compile(String path) {
+        List<String> segments = new ArrayList<>();
+        if (path != null && !path.trim().isEmpty()) {
+            int start = 0;
+            int end = path.indexOf('.');
+            while (end >= 0) {
+                segments.add(path.substring(start, end));
+                start = end + 1;
+                end = path.indexOf('.', start);
+            }
+            segments.add(path.substring(start));
+        }
+        return new PropertyPath(path, segments.toArray(new String[segments.size()]));
+    }
+
+    /**
+     * Reads the property. A missing property is {@code null}, but a missing parent is an error.
+     *
+     * @throws IllegalArgumentException if a parent of the property is not a map.
+     * @throws ClassCastException       if the property is not of the given type.
+     */
+    public <T> T get(Object properties, Class<T> type) {
+        Object current = properties;
+        for (int i = 0; i < segments.length; i++) {
+            if (!(current instanceof Map<?, ?>)) {
+                throw new IllegalArgumentException(visited(i) + " is not a map: " + current);
+            }
+            current = ((Map<?, ?>) current).get(segments[i]);
+        }
+        return type.cast(current);
+    }
+
+    /**
+     * Reads an optional property.
+     *
+     * @return the property, or {@code null} if it or one of its parents is missing or not of the expected type.
+     */
+    public <T> T find(Object properties, Class<T> type) {
+        Object current = properties;
+        for (int i = 0; i < segments.length; i++) {
+            if (!(current instanceof Map<?, ?>)) {
+                return null;
+            }
+            current = ((Map<?, ?>) current).get(segments[i]);
+        }
+        return type.isInstance(current) ? type.cast(current) : null;
+    }
+
+    /**
+     * @return the part of the path walked before the given segment, for the error messages.
+     */
+    private String visited(int segment) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < segment; i++) {
+            if (i > 0) {
+                builder.append('.');
+            }
+            builder.append(segments[i]);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.util;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded queue of telemetry to send, drained in batches by a single background thread.
+ * <p>
+ * Enqueueing never blocks: when the queue is full, the telemetry is dropped and counted, so a slow or unreachable
+ * telemetry endpoint never delays a deployment or an Azure call.
+ */
+public final class TelemetryQueue {
+    private static final Logger LOGGER = Logger.getLogger(TelemetryQueue.class.getName());
+
+    static final int CAPACITY = 1024;
+    static final int BATCH_SIZE = 64;
+
+    private static final TelemetryQueue INSTANCE = new TelemetryQueue(CAPACITY);
+
+    private final BlockingQueue<Runnable> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    TelemetryQueue(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public static TelemetryQueue getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Queues the sending of telemetry, or drops it if the queue is full.
+     *
+     * @return whether the telemetry was queued.
+     */
+    public boolean offer(Runnable send) {
+        if (started.compareAndSet(false, true)) {
+            startSender();
+        }
+        if (queue.offer(send)) {
+            return true;
+        }
+        if (dropped.incrementAndGet() == 1) {
+            LOGGER.warning("The telemetry queue is full, dropping telemetry");
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of telemetry items dropped since Jenkins started.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private void startSender() {
+        Thread sender = new NamingThreadFactory(new DaemonThreadFactory(), TelemetryQueue.class.getSimpleName())
+                .newThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        drain();
+                    }
+                });
+        sender.start();
+    }
+
+    private void drain() {
+        List<Runnable> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, BATCH_SIZE - 1);
+            for (Runnable send : batch) {
+                try {
+                    send.run();
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.FINE, "Failed to send telemetry", e);
+                }
+            }
+            batch.clear();
+        }
+    }
+}
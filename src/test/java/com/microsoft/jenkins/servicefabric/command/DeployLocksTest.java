@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricEndpoint;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DeployLocksTest {
+    private static final ServiceFabricEndpoint CLUSTER = new ServiceFabricEndpoint("cluster", null, null);
+    private static final ServiceFabricEndpoint OTHER_CLUSTER = new ServiceFabricEndpoint("other", null, null);
+
+    /**
+     * The locks are global, each test uses its own application.
+     */
+    private final String app = "fabric:/App" + UUID.randomUUID();
+    private final String job = "job" + UUID.randomUUID();
+
+    @Test
+    public void grantFreeLock() {
+        Recorder first = new Recorder();
+        DeployLocks.Ticket ticket = acquire(CLUSTER, app, build(1), false, first);
+
+        assertEquals(Collections.singletonList("acquired"), first.events);
+        assertFalse(ticket.cancel());
+        ticket.release();
+    }
+
+    @Test
+    public void queueInOrder() {
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        Recorder third = new Recorder();
+        DeployLocks.Ticket ticket1 = acquire(CLUSTER, app, owner("a", 1), false, first);
+        DeployLocks.Ticket ticket2 = acquire(CLUSTER, app, owner("b", 1), false, second);
+        DeployLocks.Ticket ticket3 = acquire(CLUSTER, app, owner("c", 1), false, third);
+
+        assertEquals(Collections.singletonList("queued 1 behind a#1"), second.events);
+        assertEquals(Collections.singletonList("queued 2 behind a#1"), third.events);
+
+        ticket1.release();
+        assertEquals(Arrays.asList("queued 1 behind a#1", "acquired"), second.events);
+        assertEquals(Arrays.asList("queued 2 behind a#1", "queued 1 behind b#1"), third.events);
+
+        ticket2.release();
+        assertEquals(Arrays.asList("queued 2 behind a#1", "queued 1 behind b#1", "acquired"), third.events);
+
+        ticket3.release();
+        Recorder next = new Recorder();
+        acquire(CLUSTER, app, owner("d", 1), false, next).release();
+        assertEquals(Collections.singletonList("acquired"), next.events);
+    }
+
+    @Test
+    public void otherApplicationsAndClustersDoNotWait() {
+        DeployLocks.Ticket ticket = acquire(CLUSTER, app, owner("a", 1), false, new Recorder());
+        Recorder otherApp = new Recorder();
+        Recorder otherCluster = new Recorder();
+        acquire(CLUSTER, app + "Other", owner("b", 1), false, otherApp).release();
+        acquire(OTHER_CLUSTER, app, owner("c", 1), false, otherCluster).release();
+
+        assertEquals(Collections.singletonList("acquired"), otherApp.events);
+        assertEquals(Collections.singletonList("acquired"), otherCluster.events);
+        ticket.release();
+    }
+
+    @Test
+    public void cancelWhileQueued() {
+        Recorder second = new Recorder();
+        Recorder third = new Recorder();
+        DeployLocks.Ticket ticket1 = acquire(CLUSTER, app, owner("a", 1), false, new Recorder());
+        DeployLocks.Ticket ticket2 = acquire(CLUSTER, app, owner("b", 1), false, second);
+        DeployLocks.Ticket ticket3 = acquire(CLUSTER, app, owner("c", 1), false, third);
+
+        assertTrue(ticket2.cancel());
+        assertFalse(ticket2.cancel());
+        assertEquals(Arrays.asList("queued 2 behind a#1", "queued 1 behind a#1"), third.events);
+
+        ticket1.release();
+        assertEquals(Collections.singletonList("queued 1 behind a#1"), second.events);
+        assertEquals(Arrays.asList("queued 2 behind a#1", "queued 1 behind a#1", "acquired"), third.events);
+        ticket2.release();
+        ticket3.release();
+    }
+
+    @Test
+    public void releaseTwice() {
+        Recorder second = new Recorder();
+        Recorder third = new Recorder();
+        DeployLocks.Ticket ticket1 = acquire(CLUSTER, app, owner("a", 1), false, new Recorder());
+        DeployLocks.Ticket ticket2 = acquire(CLUSTER, app, owner("b", 1), false, second);
+        acquire(CLUSTER, app, owner("c", 1), false, third);
+
+        ticket1.release();
+        ticket1.release();
+        assertEquals(Arrays.asList("queued 1 behind a#1", "acquired"), second.events);
+        assertFalse(third.events.contains("acquired"));
+        ticket2.release();
+        assertTrue(third.events.contains("acquired"));
+    }
+
+    @Test
+    public void supersedeOlderBuildWaiting() {
+        Recorder older = new Recorder();
+        Recorder newer = new Recorder();
+        DeployLocks.Ticket holder = acquire(CLUSTER, app, owner("other", 1), false, new Recorder());
+        acquire(CLUSTER, app, build(1), true, older);
+        DeployLocks.Ticket newerTicket = acquire(CLUSTER, app, build(2), true, newer);
+
+        assertEquals(Arrays.asList("queued 1 behind other#1", "superseded by " + job + "#2"), older.events);
+        assertEquals(Collections.singletonList("queued 1 behind other#1"), newer.events);
+
+        holder.release();
+        assertEquals(Arrays.asList("queued 1 behind other#1", "acquired"), newer.events);
+        newerTicket.release();
+    }
+
+    @Test
+    public void olderBuildAskingLaterIsSuperseded() {
+        Recorder older = new Recorder();
+        DeployLocks.Ticket holder = acquire(CLUSTER, app, owner("other", 1), false, new Recorder());
+        DeployLocks.Ticket newer = acquire(CLUSTER, app, build(2), true, new Recorder());
+        acquire(CLUSTER, app, build(1), true, older);
+
+        assertEquals(Collections.singletonList("superseded by " + job + "#2"), older.events);
+        holder.release();
+        newer.release();
+    }
+
+    @Test
+    public void olderBuildIsSupersededAfterNewerBuildReleased() {
+        acquire(CLUSTER, app, build(2), true, new Recorder()).release();
+        Recorder older = new Recorder();
+        acquire(CLUSTER, app, build(1), true, older);
+
+        assertEquals(Collections.singletonList("superseded by " + job + "#2"), older.events);
+        Recorder next = new Recorder();
+        acquire(CLUSTER, app, build(3), true, next).release();
+        assertEquals(Collections.singletonList("acquired"), next.events);
+    }
+
+    @Test
+    public void holderIsNeverSuperseded() {
+        Recorder older = new Recorder();
+        DeployLocks.Ticket olderTicket = acquire(CLUSTER, app, build(1), true, older);
+        Recorder newer = new Recorder();
+        DeployLocks.Ticket newerTicket = acquire(CLUSTER, app, build(2), true, newer);
+
+        assertEquals(Collections.singletonList("acquired"), older.events);
+        assertEquals(Collections.singletonList("queued 1 behind " + job + "#1"), newer.events);
+        olderTicket.release();
+        assertEquals(Arrays.asList("queued 1 behind " + job + "#1", "acquired"), newer.events);
+        newerTicket.release();
+    }
+
+    @Test
+    public void notSupersedable() {
+        acquire(CLUSTER, app, build(2), true, new Recorder()).release();
+        Recorder older = new Recorder();
+        acquire(CLUSTER, app, build(1), false, older).release();
+
+        assertEquals(Collections.singletonList("acquired"), older.events);
+    }
+
+    @Test
+    public void otherJobsDoNotSupersede() {
+        acquire(CLUSTER, app, build(2), true, new Recorder()).release();
+        Recorder otherJob = new Recorder();
+        acquire(CLUSTER, app, owner("other", 1), true, otherJob).release();
+
+        assertEquals(Collections.singletonList("acquired"), otherJob.events);
+    }
+
+    private static DeployLocks.Ticket acquire(ServiceFabricEndpoint endpoint, String applicationName,
+                                              DeployLocks.Owner owner, boolean supersedable, Recorder recorder) {
+        return DeployLocks.acquire(endpoint, applicationName, owner, supersedable, recorder);
+    }
+
+    private DeployLocks.Owner build(int number) {
+        return owner(job, number);
+    }
+
+    private static DeployLocks.Owner owner(String jobName, int number) {
+        return new DeployLocks.Owner(jobName + "#" + number, jobName, number);
+    }
+
+    private static final class Recorder implements DeployLocks.Listener {
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void queued(int position, String holder, long waited) {
+            events.add("queued " + position + " behind " + holder);
+        }
+
+        @Override
+        public void acquired(long waited) {
+            events.add("acquired");
+        }
+
+        @Override
+        public void superseded(String by) {
+            events.add("superseded by " + by);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import com.microsoft.jenkins.servicefabric.rest.ApplicationInfo;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DeployPlanTest {
+    private static final ApplicationInfo CURRENT =
+            new ApplicationInfo("App", "fabric:/App", "AppType", "1.0.0", "Ready", "Ok");
+
+    @Test
+    public void createMissingApplication() {
+        DeployPlan plan = DeployPlan.create(null, "1.0.0");
+
+        assertEquals(DeployPlan.Action.CREATE, plan.getAction());
+        assertEquals("1.0.0", plan.getTargetVersion());
+        assertFalse(plan.isApplicationExists());
+        assertNull(plan.getCurrentType());
+        assertNull(plan.getCurrentVersion());
+        assertNull(plan.getCurrentHealthState());
+    }
+
+    @Test
+    public void upgradeOtherVersion() {
+        DeployPlan plan = DeployPlan.create(CURRENT, "2.0.0");
+
+        assertEquals(DeployPlan.Action.UPGRADE, plan.getAction());
+        assertTrue(plan.isApplicationExists());
+        assertEquals("AppType", plan.getCurrentType());
+        assertEquals("1.0.0", plan.getCurrentVersion());
+        assertEquals("Ok", plan.getCurrentHealthState());
+    }
+
+    @Test
+    public void replaceSameVersion() {
+        DeployPlan plan = DeployPlan.create(CURRENT, "1.0.0");
+
+        assertEquals(DeployPlan.Action.REPLACE, plan.getAction());
+        assertEquals(DeployPlan.Action.UNCHANGED, plan.unchanged().getAction());
+        assertEquals("1.0.0", plan.unchanged().getTargetVersion());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void onlySameVersionUnchanged() {
+        DeployPlan.create(CURRENT, "2.0.0").unchanged();
+    }
+}
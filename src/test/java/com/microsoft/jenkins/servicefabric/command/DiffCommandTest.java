@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.Resources;
+import com.microsoft.jenkins.servicefabric.manifest.ApplicationManifest;
+import com.microsoft.jenkins.servicefabric.manifest.ManifestReader;
+import com.microsoft.jenkins.servicefabric.rest.ApplicationInfo;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricEndpoint;
+import hudson.util.StreamTaskListener;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DiffCommandTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ApplicationInfo CURRENT =
+            new ApplicationInfo("Shop", "fabric:/Shop", "ShopType", "1.0.0", "Ready", "Ok");
+
+    private MockWebServer server;
+    private ByteArrayOutputStream log;
+    private SFCommandContext context;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        log = new ByteArrayOutputStream();
+        context = new SFCommandContext(new ServiceFabricEndpoint(server.getHostName(), server.getPort(), null, null),
+                null, new StreamTaskListener(log, StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void leavesOutTheUnchangedPackages() throws Exception {
+        server.setDispatcher(new ManifestDispatcher());
+        context.setPlan(DeployPlan.create(CURRENT, "2.0.0"));
+
+        new DiffCommand("ShopType", readPackage()).execute(context);
+
+        // Stable is imported with the same version, Web has a new code package, Worker a new config package and
+        // NewSvc is not in the current version
+        assertEquals(new TreeSet<>(Arrays.asList("Stable", "Web/Config", "Web/Data", "Worker/Code")),
+                context.getExcludedPaths());
+        assertEquals("/ApplicationTypes/ShopType/$/GetApplicationManifest?api-version=6.0&ApplicationTypeVersion=1.0.0",
+                server.takeRequest().getPath());
+        assertEquals("/ApplicationTypes/ShopType/$/GetServiceManifest?api-version=6.0&ApplicationTypeVersion=1.0.0"
+                + "&ServiceManifestName=Web", server.takeRequest().getPath());
+        assertEquals("/ApplicationTypes/ShopType/$/GetServiceManifest?api-version=6.0&ApplicationTypeVersion=1.0.0"
+                + "&ServiceManifestName=Worker", server.takeRequest().getPath());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void keepsEverythingChanged() throws Exception {
+        server.setDispatcher(new ManifestDispatcher());
+        context.setPlan(DeployPlan.create(CURRENT, "2.0.0"));
+        ApplicationManifest manifest = readPackage();
+        // only the new service, which is not in the current version
+        ApplicationManifest newServiceOnly = new ApplicationManifest(manifest.getApplicationTypeName(),
+                manifest.getApplicationTypeVersion(), manifest.getParameters(),
+                Collections.singletonList(manifest.getServiceManifestImports().get(3)),
+                Collections.singletonList(manifest.getServiceManifest("NewSvc")));
+
+        new DiffCommand("ShopType", newServiceOnly).execute(context);
+
+        assertTrue(context.getExcludedPaths().isEmpty());
+        String output = log.toString(StandardCharsets.UTF_8.name());
+        assertTrue(output, output.contains("All the packages changed since version 1.0.0"));
+    }
+
+    @Test
+    public void uploadsTheWholePackageWhenTheCurrentVersionIsUnknown() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404).setBody("{\"Error\":{"
+                + "\"Code\":\"FABRIC_E_APPLICATION_TYPE_NOT_FOUND\",\"Message\":\"Application type not found\"}}"));
+        context.setPlan(DeployPlan.create(CURRENT, "2.0.0"));
+
+        new DiffCommand("ShopType", readPackage()).execute(context);
+
+        assertTrue(context.getExcludedPaths().isEmpty());
+        String output = log.toString(StandardCharsets.UTF_8.name());
+        assertTrue(output, output.contains("Cannot compare with the provisioned version 1.0.0"));
+    }
+
+    @Test
+    public void onlyDiffsUpgrades() throws Exception {
+        context.setPlan(DeployPlan.create(null, "2.0.0"));
+
+        new DiffCommand("ShopType", readPackage()).execute(context);
+
+        assertTrue(context.getExcludedPaths().isEmpty());
+        assertEquals(0, server.getRequestCount());
+    }
+
+    private ApplicationManifest readPackage() throws Exception {
+        return ManifestReader.read(new File(getClass().getResource("diff/ApplicationManifest.xml").toURI()));
+    }
+
+    /**
+     * Serves the manifests of the provisioned version 1.0.0.
+     */
+    private static final class ManifestDispatcher extends Dispatcher {
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            String path = request.getPath();
+            String fixture;
+            if (path.contains("GetApplicationManifest")) {
+                fixture = "ApplicationManifest.xml";
+            } else if (path.contains("ServiceManifestName=Web")) {
+                fixture = "Web.xml";
+            } else if (path.contains("ServiceManifestName=Worker")) {
+                fixture = "Worker.xml";
+            } else {
+                return new MockResponse().setResponseCode(404);
+            }
+            try {
+                String xml = Resources.toString(DiffCommandTest.class.getResource("diff-current/" + fixture),
+                        StandardCharsets.UTF_8);
+                return new MockResponse().setBody(MAPPER.writeValueAsString(
+                        Collections.singletonMap("Manifest", xml)));
+            } catch (IOException e) {
+                return new MockResponse().setResponseCode(500).setBody(e.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricClient;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricEndpoint;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class UpgradeMonitorTest {
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private MockWebServer server;
+    private ServiceFabricClient client;
+    private RecordingScheduler scheduler;
+    private ByteArrayOutputStream log;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = ServiceFabricClient.forEndpoint(
+                new ServiceFabricEndpoint(server.getHostName(), server.getPort(), null, null));
+        scheduler = new RecordingScheduler();
+        log = new ByteArrayOutputStream();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        scheduler.shutdownNow();
+        server.shutdown();
+    }
+
+    @Test
+    public void timeoutCoversTheRollback() {
+        assertEquals(TimeUnit.MINUTES.toMillis(30) + UpgradeMonitor.ROLLBACK_GRACE_MILLIS,
+                UpgradeMonitor.timeoutMillisOf(30));
+        assertEquals(UpgradeMonitor.DEFAULT_TIMEOUT_MILLIS, UpgradeMonitor.timeoutMillisOf(0));
+    }
+
+    @Test
+    public void pollIntervalGrowsUntilADomainProgresses() throws Exception {
+        String inProgress = progress("RollingForwardInProgress", "2.0.0", "InProgress", "Pending");
+        server.enqueue(new MockResponse().setBody(inProgress));
+        for (int i = 0; i < 5; i++) {
+            server.enqueue(new MockResponse().setBody(inProgress));
+        }
+        server.enqueue(new MockResponse().setBody(
+                progress("RollingForwardInProgress", "2.0.0", "Completed", "InProgress")));
+        server.enqueue(new MockResponse().setBody(
+                progress("RollingForwardCompleted", "2.0.0", "Completed", "Completed")));
+
+        Result result = follow(monitor(false, UpgradeMonitor.DEFAULT_TIMEOUT_MILLIS));
+
+        assertNull(result.failure);
+        assertEquals(Arrays.asList(0L, 1000L, 2000L, 4000L, 8000L, 15000L, 15000L, 1000L), scheduler.delays);
+        String output = log.toString(StandardCharsets.UTF_8.name());
+        assertTrue(output, output.contains("Upgrade domains: 0 (InProgress), 1 (Pending)"));
+        assertTrue(output, output.contains("Upgrade domain 0: Completed"));
+        assertTrue(output, output.contains("Upgrade of App completed"));
+    }
+
+    @Test
+    public void failsWhenTheUpgradeDoesNotStart() throws Exception {
+        server.enqueue(new MockResponse().setBody(progress("RollingForwardCompleted", "1.0.0", "Completed"))
+                .setBodyDelay(50, TimeUnit.MILLISECONDS));
+
+        Result result = follow(new UpgradeMonitor(scheduler, client, "App", "2.0.0", new PrintStream(log), false,
+                UpgradeMonitor.DEFAULT_TIMEOUT_MILLIS, 1));
+
+        assertEquals("Upgrade of App to version 2.0.0 did not start, the cluster reports version 1.0.0",
+                result.failure);
+    }
+
+    @Test
+    public void waitsForTheUpgradeToStart() throws Exception {
+        server.enqueue(new MockResponse().setBody(progress("RollingForwardCompleted", "1.0.0", "Completed")));
+        server.enqueue(new MockResponse().setBody(progress("RollingForwardCompleted", "2.0.0", "Completed")));
+
+        Result result = follow(monitor(false, UpgradeMonitor.DEFAULT_TIMEOUT_MILLIS));
+
+        assertNull(result.failure);
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void failsOnRollback() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"UpgradeState\":\"RollingBackCompleted\","
+                + "\"TargetApplicationTypeVersion\":\"2.0.0\",\"UpgradeDomains\":[],"
+                + "\"FailureReason\":\"HealthCheck\"}"));
+
+        Result result = follow(monitor(true, UpgradeMonitor.DEFAULT_TIMEOUT_MILLIS));
+
+        assertEquals("Upgrade of App to version 2.0.0 ended in RollingBackCompleted (HealthCheck)", result.failure);
+    }
+
+    @Test
+    public void failsAfterTheClusterTimeout() throws Exception {
+        server.enqueue(new MockResponse().setBody(progress("RollingForwardInProgress", "2.0.0", "InProgress"))
+                .setBodyDelay(50, TimeUnit.MILLISECONDS));
+
+        Result result = follow(monitor(true, 1));
+
+        assertEquals("Upgrade of App did not complete in time, it is still RollingForwardInProgress",
+                result.failure);
+    }
+
+    @Test
+    public void stopsFollowingAfterTheDefaultTimeout() throws Exception {
+        server.enqueue(new MockResponse().setBody(progress("RollingForwardInProgress", "2.0.0", "InProgress"))
+                .setBodyDelay(50, TimeUnit.MILLISECONDS));
+
+        Result result = follow(monitor(false, 1));
+
+        assertEquals("Upgrade of App did not complete in 12 hours, it is still RollingForwardInProgress and goes "
+                + "on in the cluster", result.failure);
+    }
+
+    @Test
+    public void failsAfterConsecutiveErrors() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503).setBody("Service Unavailable"));
+        }
+
+        Result result = follow(monitor(false, UpgradeMonitor.DEFAULT_TIMEOUT_MILLIS));
+
+        assertTrue(result.failure, result.failure.startsWith("Failed to get the upgrade progress of App: HTTP 503"));
+        assertEquals(5, server.getRequestCount());
+    }
+
+    @Test
+    public void errorCountIsResetBySuccess() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503).setBody("Service Unavailable"));
+        }
+        server.enqueue(new MockResponse().setBody(progress("RollingForwardInProgress", "2.0.0", "InProgress")));
+        for (int i = 0; i < 4; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503).setBody("Service Unavailable"));
+        }
+        server.enqueue(new MockResponse().setBody(progress("RollingForwardCompleted", "2.0.0", "Completed")));
+
+        Result result = follow(monitor(false, UpgradeMonitor.DEFAULT_TIMEOUT_MILLIS));
+
+        assertNull(result.failure);
+        assertEquals(10, server.getRequestCount());
+    }
+
+    private UpgradeMonitor monitor(boolean limitedByCluster, long timeoutMillis) {
+        return new UpgradeMonitor(scheduler, client, "App", "2.0.0", new PrintStream(log), limitedByCluster,
+                timeoutMillis, UpgradeMonitor.START_TIMEOUT_MILLIS);
+    }
+
+    private static Result follow(UpgradeMonitor monitor) throws InterruptedException {
+        final Result result = new Result();
+        monitor.start(DIRECT, new UpgradeMonitor.Callback() {
+            @Override
+            public void onCompleted() {
+                result.done.countDown();
+            }
+
+            @Override
+            public void onFailed(String message) {
+                result.failure = message;
+                result.done.countDown();
+            }
+        });
+        assertTrue("the upgrade should be followed to its end", result.done.await(10, TimeUnit.SECONDS));
+        return result;
+    }
+
+    private static String progress(String state, String version, String... domainStates) {
+        StringBuilder domains = new StringBuilder();
+        for (int i = 0; i < domainStates.length; i++) {
+            if (i > 0) {
+                domains.append(',');
+            }
+            domains.append("{\"Name\":\"").append(i).append("\",\"State\":\"").append(domainStates[i]).append("\"}");
+        }
+        return "{\"UpgradeState\":\"" + state + "\",\"TargetApplicationTypeVersion\":\"" + version + "\","
+                + "\"UpgradeDomains\":[" + domains + "]}";
+    }
+
+    private static final class Result {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile String failure;
+    }
+
+    /**
+     * Records the delays of the polls, and runs them at once.
+     */
+    private static final class RecordingScheduler extends ScheduledThreadPoolExecutor {
+        private final List<Long> delays = new CopyOnWriteArrayList<>();
+
+        RecordingScheduler() {
+            super(1);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            delays.add(unit.toMillis(delay));
+            return super.schedule(command, 0, unit);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+package com.microsoft.jenkins.servicefabric.command;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VersionRetentionTest {
+    @Test
+    public void numericParts() {
+        assertOrdered("1.9.0", "1.10.0");
+        assertOrdered("1.0.9", "1.0.10");
+        assertOrdered("2", "10");
+        assertOrdered("1.0", "1.0.0");
+    }
+
+    @Test
+    public void leadingZeros() {
+        assertOrdered("1.01", "1.2");
+        assertOrdered("1.0", "1.00");
+        assertEquals(0, VersionRetention.VERSION_ORDER.compare("1.0", "1.0"));
+    }
+
+    @Test
+    public void longNumbers() {
+        assertOrdered("1.99999999999999999999", "1.100000000000000000000");
+    }
+
+    @Test
+    public void textParts() {
+        assertOrdered("1.0.0", "1.0.beta");
+        assertOrdered("1.0.alpha", "1.0.beta");
+        assertOrdered("1.0-rc1", "1.0-rc2");
+    }
+
+    @Test
+    public void sort() {
+        List<String> versions = new ArrayList<>(Arrays.asList("1.10.0", "1.2.0", "1.0.beta", "1.9.1", "1.0.0"));
+        Collections.sort(versions, VersionRetention.VERSION_ORDER);
+        assertEquals(Arrays.asList("1.0.0", "1.0.beta", "1.2.0", "1.9.1", "1.10.0"), versions);
+    }
+
+    private static void assertOrdered(String older, String newer) {
+        assertTrue(older + " < " + newer, VersionRetention.VERSION_ORDER.compare(older, newer) < 0);
+        assertTrue(newer + " > " + older, VersionRetention.VERSION_ORDER.compare(newer, older) > 0);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.manifest;
+
+import com.google.common.io.Resources;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ManifestParserTest {
+    @Test
+    public void parseApplicationManifest() throws IOException {
+        ApplicationManifest manifest;
+        try (InputStream in = getClass().getResourceAsStream("ApplicationManifest.xml")) {
+            manifest = ManifestParser.parseApplicationManifest(in);
+        }
+
+        assertEquals("VotingType", manifest.getApplicationTypeName());
+        assertEquals("1.2.0", manifest.getApplicationTypeVersion());
+        // the parameters of the config overrides are not application parameters
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("VotingData_MinReplicaSetSize", "3");
+        parameters.put("VotingData_PartitionCount", "1");
+        parameters.put("VotingWeb_InstanceCount", "-1");
+        assertEquals(parameters, manifest.getParameters());
+        assertEquals(Arrays.asList("VotingDataPkg 1.0.0", "VotingWebPkg 1.1.0"),
+                describe(manifest.getServiceManifestImports()));
+        assertTrue(manifest.getServiceManifests().isEmpty());
+    }
+
+    @Test
+    public void parseApplicationManifestFromCluster() throws IOException {
+        String xml = Resources.toString(getClass().getResource("ApplicationManifest.xml"), StandardCharsets.UTF_8);
+
+        ApplicationManifest manifest = ManifestParser.parseApplicationManifest(xml);
+
+        assertEquals("VotingType", manifest.getApplicationTypeName());
+        assertEquals(2, manifest.getServiceManifestImports().size());
+    }
+
+    @Test
+    public void parseServiceManifest() throws IOException {
+        ServiceManifest manifest;
+        try (InputStream in = getClass().getResourceAsStream("ServiceManifest.xml")) {
+            manifest = ManifestParser.parseServiceManifest(in);
+        }
+
+        assertEquals("VotingWebPkg", manifest.getName());
+        assertEquals("1.1.0", manifest.getVersion());
+        assertEquals(Arrays.asList("VotingWebType", "VotingCacheType"), manifest.getServiceTypes());
+        assertEquals(Collections.singletonList("Code 1.1.0"), describe(manifest.getCodePackages()));
+        assertEquals(Collections.singletonList("Config 1.0.0"), describe(manifest.getConfigPackages()));
+        assertEquals(Collections.singletonList("Data 1.0.1"), describe(manifest.getDataPackages()));
+        assertEquals(Arrays.asList("Code 1.1.0", "Config 1.0.0", "Data 1.0.1"), describe(manifest.getPackages()));
+    }
+
+    @Test
+    public void parseManifestWithByteOrderMark() throws IOException {
+        byte[] xml = ("\uFEFF<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+                + "<ServiceManifest Name=\"Pkg\" Version=\"1.0.0\" "
+                + "xmlns=\"http://schemas.microsoft.com/2011/01/fabric\">"
+                + "<CodePackage Name=\"Code\" Version=\"1.0.0\" /></ServiceManifest>").getBytes(StandardCharsets.UTF_8);
+
+        ServiceManifest manifest = ManifestParser.parseServiceManifest(new ByteArrayInputStream(xml));
+
+        assertEquals("Pkg", manifest.getName());
+        assertEquals(Collections.singletonList("Code 1.0.0"), describe(manifest.getCodePackages()));
+    }
+
+    @Test
+    public void rejectOtherManifest() throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("ServiceManifest.xml")) {
+            ManifestParser.parseApplicationManifest(in);
+            fail("a service manifest is not an application manifest");
+        } catch (IOException e) {
+            assertEquals("Not an application manifest, the root element is ServiceManifest", e.getMessage());
+        }
+    }
+
+    @Test
+    public void rejectMalformedManifest() {
+        try {
+            ManifestParser.parseServiceManifest("<ServiceManifest Name=\"Pkg\"><CodePackage></ServiceManifest>");
+            fail("a malformed manifest should not parse");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Malformed service manifest"));
+        }
+    }
+
+    @Test
+    public void rejectExternalEntities() {
+        try {
+            ManifestParser.parseServiceManifest("<?xml version=\"1.0\"?>"
+                    + "<!DOCTYPE ServiceManifest [<!ENTITY version SYSTEM \"file:///etc/hostname\">]>"
+                    + "<ServiceManifest Name=\"Pkg\" Version=\"&version;\" />");
+            fail("the external entity should not be resolved");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Malformed service manifest"));
+        }
+    }
+
+    private static List<String> describe(List<ManifestPackage> packages) {
+        List<String> descriptions = new ArrayList<>();
+        for (ManifestPackage manifestPackage : packages) {
+            descriptions.add(manifestPackage.getName() + " " + manifestPackage.getVersion());
+        }
+        return descriptions;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.manifest;
+
+import com.google.common.io.Files;
+import com.google.common.io.Resources;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ManifestReaderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File packageDir;
+
+    @Before
+    public void setUp() throws IOException {
+        packageDir = folder.newFolder("pkg");
+        copy("ApplicationManifest.xml", new File(packageDir, "ApplicationManifest.xml"));
+        // VotingDataPkg is left out, as in a diff package
+        File serviceDir = new File(packageDir, "VotingWebPkg");
+        assertTrue(serviceDir.mkdir());
+        copy("ServiceManifest.xml", new File(serviceDir, "ServiceManifest.xml"));
+    }
+
+    @Test
+    public void readPackage() throws IOException {
+        ApplicationManifest manifest = ManifestReader.read(new File(packageDir, "ApplicationManifest.xml"));
+
+        assertEquals("VotingType", manifest.getApplicationTypeName());
+        assertEquals(2, manifest.getServiceManifestImports().size());
+        assertEquals(1, manifest.getServiceManifests().size());
+        assertEquals("1.1.0", manifest.getServiceManifest("VotingWebPkg").getVersion());
+        assertNull(manifest.getServiceManifest("VotingDataPkg"));
+    }
+
+    @Test
+    public void reuseParsedManifestOfSameContent() throws IOException {
+        ServiceManifest first = ManifestReader.read(new File(packageDir, "ApplicationManifest.xml"))
+                .getServiceManifest("VotingWebPkg");
+
+        // another package with the same content
+        File otherDir = folder.newFolder("other");
+        copy("ApplicationManifest.xml", new File(otherDir, "ApplicationManifest.xml"));
+        File serviceDir = new File(otherDir, "VotingWebPkg");
+        assertTrue(serviceDir.mkdir());
+        copy("ServiceManifest.xml", new File(serviceDir, "ServiceManifest.xml"));
+        ServiceManifest second = ManifestReader.read(new File(otherDir, "ApplicationManifest.xml"))
+                .getServiceManifest("VotingWebPkg");
+
+        assertSame(first, second);
+    }
+
+    @Test
+    public void parseChangedManifestAgain() throws IOException {
+        File serviceManifest = new File(new File(packageDir, "VotingWebPkg"), "ServiceManifest.xml");
+        ServiceManifest first = ManifestReader.read(new File(packageDir, "ApplicationManifest.xml"))
+                .getServiceManifest("VotingWebPkg");
+
+        String xml = Files.toString(serviceManifest, StandardCharsets.UTF_8);
+        Files.write(xml.replace("Version=\"1.1.0\"", "Version=\"1.2.0\""), serviceManifest, StandardCharsets.UTF_8);
+        ServiceManifest second = ManifestReader.read(new File(packageDir, "ApplicationManifest.xml"))
+                .getServiceManifest("VotingWebPkg");
+
+        assertNotSame(first, second);
+        assertEquals("1.2.0", second.getVersion());
+        assertEquals("1.2.0", second.getCodePackages().get(0).getVersion());
+    }
+
+    @Test
+    public void failOnMissingManifest() {
+        try {
+            ManifestReader.read(new File(packageDir, "Missing.xml"));
+            fail("a missing manifest should not be read");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().endsWith("does not exist"));
+        }
+    }
+
+    private void copy(String resource, File target) throws IOException {
+        Files.write(Resources.toByteArray(getClass().getResource(resource)), target);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.rest;
+
+import hudson.AbortException;
+import hudson.remoting.ChannelClosedException;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+    @Test
+    public void transientServiceFabricErrors() {
+        assertTrue(RetryPolicy.isTransient(new ServiceFabricException(400, "FABRIC_E_SERVICE_TOO_BUSY", "busy")));
+        assertTrue(RetryPolicy.isTransient(
+                new ServiceFabricException(400, "FABRIC_E_APPLICATION_UPGRADE_IN_PROGRESS", "upgrading")));
+        assertTrue(RetryPolicy.isTransient(new ServiceFabricException(503, null, "unavailable")));
+        assertTrue(RetryPolicy.isTransient(new ServiceFabricException(408, null, "timeout")));
+        assertTrue(RetryPolicy.isTransient(new ServiceFabricException(429, null, "throttled")));
+    }
+
+    @Test
+    public void permanentServiceFabricErrors() {
+        assertFalse(RetryPolicy.isTransient(
+                new ServiceFabricException(500, "FABRIC_E_IMAGEBUILDER_VALIDATION_ERROR", "invalid")));
+        assertFalse(RetryPolicy.isTransient(
+                new ServiceFabricException(409, "FABRIC_E_APPLICATION_ALREADY_EXISTS", "exists")));
+        assertFalse(RetryPolicy.isTransient(new ServiceFabricException(400, null, "bad request")));
+        assertFalse(RetryPolicy.isTransient(new ServiceFabricException(403, null, "forbidden")));
+        assertFalse(RetryPolicy.isTransient(new ServiceFabricException(501, null, "not implemented")));
+    }
+
+    @Test
+    public void lostConnections() {
+        assertTrue(RetryPolicy.isTransient(new SocketTimeoutException("timeout")));
+        assertTrue(RetryPolicy.isTransient(new ConnectException("Connection refused")));
+        assertTrue(RetryPolicy.isTransient(new SocketException("Connection reset")));
+        assertTrue(RetryPolicy.isTransient(new SocketException("Connection reset by peer")));
+        assertTrue(RetryPolicy.isTransient(new ChannelClosedException("closed", null)));
+        assertTrue(RetryPolicy.isTransient(new IOException("remote call failed", new SocketTimeoutException())));
+    }
+
+    @Test
+    public void otherFailuresArePermanent() {
+        assertFalse(RetryPolicy.isTransient(new IOException("unknown")));
+        assertFalse(RetryPolicy.isTransient(new AbortException("invalid manifest")));
+        assertFalse(RetryPolicy.isTransient(new FileNotFoundException("ApplicationManifest.xml")));
+        assertFalse(RetryPolicy.isTransient(new SocketException("Broken pipe")));
+        assertFalse(RetryPolicy.isTransient(new IOException(new IllegalStateException())));
+    }
+
+    @Test
+    public void backoffGrowsWithJitter() {
+        for (int i = 0; i < 100; i++) {
+            assertBetween(1000, 2000, RetryPolicy.backoffOf(1));
+            assertBetween(2000, 4000, RetryPolicy.backoffOf(2));
+            assertBetween(4000, 8000, RetryPolicy.backoffOf(3));
+        }
+    }
+
+    @Test
+    public void backoffIsCapped() {
+        for (int i = 0; i < 100; i++) {
+            assertBetween(RetryPolicy.MAX_BACKOFF_MILLIS / 2, RetryPolicy.MAX_BACKOFF_MILLIS,
+                    RetryPolicy.backoffOf(10));
+            assertBetween(RetryPolicy.MAX_BACKOFF_MILLIS / 2, RetryPolicy.MAX_BACKOFF_MILLIS,
+                    RetryPolicy.backoffOf(Integer.MAX_VALUE));
+        }
+    }
+
+    private static void assertBetween(long min, long max, long actual) {
+        assertTrue(actual + " should be between " + min + " and " + max, actual >= min && actual <= max);
+    }
+}
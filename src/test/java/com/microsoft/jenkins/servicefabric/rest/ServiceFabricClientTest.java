@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.rest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ServiceFabricClientTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private MockWebServer server;
+    private ServiceFabricClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = ServiceFabricClient.forEndpoint(
+                new ServiceFabricEndpoint(server.getHostName(), server.getPort(), null, null));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void uploadFile() throws Exception {
+        File file = File.createTempFile("upload", ".txt");
+        try {
+            try (OutputStream out = new FileOutputStream(file)) {
+                out.write("content".getBytes(StandardCharsets.UTF_8));
+            }
+            server.enqueue(new MockResponse());
+            client.uploadFile("App/Svc/Code/file.txt", file);
+
+            RecordedRequest request = server.takeRequest();
+            assertEquals("PUT", request.getMethod());
+            assertEquals("/ImageStore/App/Svc/Code/file.txt?api-version=6.0", request.getPath());
+            assertEquals("content", request.getBody().readUtf8());
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void uploadEmptyFile() throws Exception {
+        server.enqueue(new MockResponse());
+        client.uploadFile("App/Svc/_.dir", null);
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("PUT", request.getMethod());
+        assertEquals("/ImageStore/App/Svc/_.dir?api-version=6.0", request.getPath());
+        assertEquals(0, request.getBodySize());
+    }
+
+    @Test
+    public void uploadStream() throws Exception {
+        server.enqueue(new MockResponse());
+        client.uploadStream("App/Svc/Code.zip", new ServiceFabricClient.ContentWriter() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write("zipped".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("PUT", request.getMethod());
+        assertEquals("/ImageStore/App/Svc/Code.zip?api-version=6.0", request.getPath());
+        assertEquals("zipped", request.getBody().readUtf8());
+    }
+
+    @Test
+    public void listImageStoreFiles() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"StoreFiles\":[{\"StoreRelativePath\":\"App\\\\Manifest.xml\","
+                + "\"FileSize\":\"12\"}],\"StoreFolders\":[{\"StoreRelativePath\":\"App\\\\Svc\"}]}"));
+        server.enqueue(new MockResponse().setBody("{\"StoreFiles\":[{\"StoreRelativePath\":\"App\\\\Svc\\\\a.dll\","
+                + "\"FileSize\":\"34\"}],\"StoreFolders\":[]}"));
+
+        Map<String, Long> files = client.listImageStoreFiles("App");
+
+        assertEquals(2, files.size());
+        assertEquals(Long.valueOf(12), files.get("Manifest.xml"));
+        assertEquals(Long.valueOf(34), files.get("Svc/a.dll"));
+        assertEquals("/ImageStore/App?api-version=6.0", server.takeRequest().getPath());
+        assertEquals("/ImageStore/App/Svc?api-version=6.0", server.takeRequest().getPath());
+    }
+
+    @Test
+    public void listMissingImageStorePath() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404));
+        assertTrue(client.listImageStoreFiles("App").isEmpty());
+    }
+
+    @Test
+    public void provisionApplicationType() throws Exception {
+        server.enqueue(new MockResponse());
+        client.provisionApplicationType("App");
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("POST", request.getMethod());
+        assertEquals("/ApplicationTypes/$/Provision?api-version=6.2&timeout=600", request.getPath());
+        JsonNode body = MAPPER.readTree(request.getBody().readUtf8());
+        assertEquals("ImageStorePath", body.path("Kind").asText());
+        assertEquals("App", body.path("ApplicationTypeBuildPath").asText());
+        assertFalse(body.path("Async").asBoolean(true));
+    }
+
+    @Test
+    public void createApplication() throws Exception {
+        server.enqueue(new MockResponse());
+        client.createApplication("fabric:/App", "AppType", "1.0.0");
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("POST", request.getMethod());
+        assertEquals("/Applications/$/Create?api-version=6.0", request.getPath());
+        JsonNode body = MAPPER.readTree(request.getBody().readUtf8());
+        assertEquals("fabric:/App", body.path("Name").asText());
+        assertEquals("AppType", body.path("TypeName").asText());
+        assertEquals("1.0.0", body.path("TypeVersion").asText());
+    }
+
+    @Test
+    public void upgradeApplication() throws Exception {
+        server.enqueue(new MockResponse());
+        client.upgradeApplication("Parent/App", "fabric:/Parent/App", "2.0.0", 60000, 0);
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("POST", request.getMethod());
+        assertEquals("/Applications/Parent~App/$/Upgrade?api-version=6.0", request.getPath());
+        JsonNode body = MAPPER.readTree(request.getBody().readUtf8());
+        assertEquals("fabric:/Parent/App", body.path("Name").asText());
+        assertEquals("2.0.0", body.path("TargetApplicationTypeVersion").asText());
+        assertEquals("Rolling", body.path("UpgradeKind").asText());
+        assertEquals("Monitored", body.path("RollingUpgradeMode").asText());
+        JsonNode policy = body.path("MonitoringPolicy");
+        assertEquals("Rollback", policy.path("FailureAction").asText());
+        assertEquals("60000", policy.path("UpgradeTimeoutInMilliseconds").asText());
+        assertTrue(policy.path("UpgradeDomainTimeoutInMilliseconds").isMissingNode());
+    }
+
+    @Test
+    public void getApplicationUpgradeProgress() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"UpgradeState\":\"RollingForwardInProgress\","
+                + "\"TargetApplicationTypeVersion\":\"2.0.0\",\"NextUpgradeDomain\":\"1\","
+                + "\"UpgradeDomains\":[{\"Name\":\"0\",\"State\":\"Completed\"},{\"Name\":\"1\",\"State\":\"Pending\"}],"
+                + "\"FailureReason\":\"None\"}"));
+
+        ApplicationUpgradeProgress progress = client.getApplicationUpgradeProgress("App");
+
+        assertEquals("/Applications/App/$/GetUpgradeProgress?api-version=6.0", server.takeRequest().getPath());
+        assertEquals("RollingForwardInProgress", progress.getUpgradeState());
+        assertEquals("2.0.0", progress.getTargetVersion());
+        assertEquals("1", progress.getNextUpgradeDomain());
+        assertEquals("Completed", progress.getUpgradeDomains().get("0"));
+        assertEquals("Pending", progress.getUpgradeDomains().get("1"));
+        assertFalse(progress.isCompleted());
+        assertFalse(progress.isAborted());
+    }
+
+    @Test
+    public void listApplicationsOfType() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"ContinuationToken\":\"1\",\"Items\":["
+                + "{\"Id\":\"App\",\"Name\":\"fabric:/App\",\"TypeName\":\"AppType\",\"TypeVersion\":\"1.0.0\","
+                + "\"Status\":\"Ready\"}]}"));
+        server.enqueue(new MockResponse().setBody("{\"ContinuationToken\":\"\",\"Items\":["
+                + "{\"Id\":\"Other\",\"Name\":\"fabric:/Other\",\"TypeName\":\"OtherType\","
+                + "\"TypeVersion\":\"3.0.0\",\"Status\":\"Ready\"}]}"));
+
+        List<ApplicationInfo> applications = client.listApplications("AppType");
+
+        assertEquals(1, applications.size());
+        assertEquals("fabric:/App", applications.get(0).getName());
+        assertEquals("1.0.0", applications.get(0).getTypeVersion());
+        assertEquals("/Applications?api-version=6.1&ApplicationTypeName=AppType", server.takeRequest().getPath());
+        assertEquals("/Applications?api-version=6.1&ApplicationTypeName=AppType&ContinuationToken=1",
+                server.takeRequest().getPath());
+    }
+
+    @Test
+    public void getMissingApplicationInfo() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404).setBody("{\"Error\":{"
+                + "\"Code\":\"FABRIC_E_APPLICATION_NOT_FOUND\",\"Message\":\"Application not found\"}}"));
+        assertNull(client.getApplicationInfo("App"));
+    }
+
+    @Test
+    public void parseErrorBody() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(409).setBody("{\"Error\":{"
+                + "\"Code\":\"FABRIC_E_APPLICATION_ALREADY_EXISTS\",\"Message\":\"Application already exists\"}}"));
+        try {
+            client.createApplication("fabric:/App", "AppType", "1.0.0");
+            fail("the error response should be thrown");
+        } catch (ServiceFabricException e) {
+            assertEquals(409, e.getStatusCode());
+            assertEquals("FABRIC_E_APPLICATION_ALREADY_EXISTS", e.getErrorCode());
+            assertTrue(e.getMessage(), e.getMessage().endsWith("Application already exists"));
+        }
+    }
+
+    @Test
+    public void parseRawErrorBody() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503).setBody("Service Unavailable"));
+        try {
+            client.provisionApplicationType("App");
+            fail("the error response should be thrown");
+        } catch (ServiceFabricException e) {
+            assertEquals(503, e.getStatusCode());
+            assertNull(e.getErrorCode());
+            assertTrue(e.getMessage(), e.getMessage().endsWith("Service Unavailable"));
+        }
+    }
+}
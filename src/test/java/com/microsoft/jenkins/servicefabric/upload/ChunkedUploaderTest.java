@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.upload;
+
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricClient;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricEndpoint;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChunkedUploaderTest {
+    private static final String CONTENT = "0123456789";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private SessionDispatcher dispatcher;
+    private ChunkedUploader uploader;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        dispatcher = new SessionDispatcher();
+        server.setDispatcher(dispatcher);
+        server.start();
+        ServiceFabricClient client = ServiceFabricClient.forEndpoint(
+                new ServiceFabricEndpoint(server.getHostName(), server.getPort(), null, null));
+        uploader = new ChunkedUploader(client, new PrintStream(new ByteArrayOutputStream()), 4, 2);
+        file = folder.newFile("Code.zip");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(CONTENT.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void uploadsNewSessionInChunks() throws Exception {
+        dispatcher.session = "{\"UploadSessions\":[]}";
+
+        uploader.upload(file, "App/Svc/Code.zip");
+
+        Map<String, String> chunks = dispatcher.chunks();
+        assertEquals(3, chunks.size());
+        assertEquals("0123", chunks.get("bytes 0-3/10"));
+        assertEquals("4567", chunks.get("bytes 4-7/10"));
+        assertEquals("89", chunks.get("bytes 8-9/10"));
+        assertFalse(dispatcher.called("DeleteUploadSession"));
+        assertTrue(dispatcher.lastCall().contains("CommitUploadSession"));
+        for (RecordedRequest request : dispatcher.uploads()) {
+            assertTrue(request.getPath(), request.getPath().startsWith("/ImageStore/App/Svc/Code.zip/$/UploadChunk?"));
+        }
+    }
+
+    @Test
+    public void resumesTheExpectedRanges() throws Exception {
+        dispatcher.session = "{\"UploadSessions\":[{\"StoreRelativePath\":\"App\\\\Svc\\\\Code.zip\","
+                + "\"FileSize\":\"10\",\"ExpectedRanges\":["
+                + "{\"StartPosition\":\"1\",\"EndPosition\":\"6\"},{\"StartPosition\":\"9\",\"EndPosition\":\"9\"}]}]}";
+
+        uploader.upload(file, "App/Svc/Code.zip");
+
+        Map<String, String> chunks = dispatcher.chunks();
+        // the missing ranges split in chunks of at most 4 bytes
+        assertEquals(Arrays.asList("bytes 1-4/10", "bytes 5-6/10", "bytes 9-9/10"),
+                new ArrayList<>(chunks.keySet()));
+        assertEquals("1234", chunks.get("bytes 1-4/10"));
+        assertEquals("56", chunks.get("bytes 5-6/10"));
+        assertEquals("9", chunks.get("bytes 9-9/10"));
+        assertFalse(dispatcher.called("DeleteUploadSession"));
+        assertTrue(dispatcher.lastCall().contains("CommitUploadSession"));
+    }
+
+    @Test
+    public void commitsCompleteSession() throws Exception {
+        dispatcher.session = "{\"UploadSessions\":[{\"StoreRelativePath\":\"App\\\\Svc\\\\Code.zip\","
+                + "\"FileSize\":\"10\",\"ExpectedRanges\":[]}]}";
+
+        uploader.upload(file, "App/Svc/Code.zip");
+
+        assertTrue(dispatcher.chunks().isEmpty());
+        assertTrue(dispatcher.lastCall().contains("CommitUploadSession"));
+    }
+
+    @Test
+    public void deletesSessionOfAnotherSize() throws Exception {
+        dispatcher.session = "{\"UploadSessions\":[{\"StoreRelativePath\":\"App\\\\Svc\\\\Code.zip\","
+                + "\"FileSize\":\"20\",\"ExpectedRanges\":[{\"StartPosition\":\"12\",\"EndPosition\":\"19\"}]}]}";
+
+        uploader.upload(file, "App/Svc/Code.zip");
+
+        assertTrue(dispatcher.called("DeleteUploadSession"));
+        Map<String, String> chunks = dispatcher.chunks();
+        assertEquals(Arrays.asList("bytes 0-3/10", "bytes 4-7/10", "bytes 8-9/10"),
+                new ArrayList<>(chunks.keySet()));
+        assertTrue(dispatcher.lastCall().contains("CommitUploadSession"));
+    }
+
+    @Test
+    public void sameFileMapsToSameSession() throws Exception {
+        dispatcher.session = "{\"UploadSessions\":[]}";
+
+        uploader.upload(file, "App/Svc/Code.zip");
+        uploader.upload(file, "App/Svc/Code.zip");
+
+        List<String> sessionIds = new ArrayList<>();
+        for (String call : dispatcher.calls()) {
+            if (call.contains("GetUploadSession")) {
+                sessionIds.add(call.substring(call.indexOf("session-id=")));
+            }
+        }
+        assertEquals(2, sessionIds.size());
+        assertEquals(sessionIds.get(0), sessionIds.get(1));
+    }
+
+    /**
+     * Serves the given upload session, and accepts the chunks and the commit.
+     */
+    private static final class SessionDispatcher extends Dispatcher {
+        private final List<RecordedRequest> requests = Collections.synchronizedList(new ArrayList<RecordedRequest>());
+        private volatile String session;
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            requests.add(request);
+            if (request.getPath().contains("GetUploadSession")) {
+                return new MockResponse().setBody(session);
+            }
+            return new MockResponse();
+        }
+
+        List<String> calls() {
+            List<String> calls = new ArrayList<>();
+            synchronized (requests) {
+                for (RecordedRequest request : requests) {
+                    calls.add(request.getMethod() + " " + request.getPath());
+                }
+            }
+            return calls;
+        }
+
+        boolean called(String operation) {
+            for (String call : calls()) {
+                if (call.contains(operation)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        String lastCall() {
+            List<String> calls = calls();
+            return calls.get(calls.size() - 1);
+        }
+
+        List<RecordedRequest> uploads() {
+            List<RecordedRequest> uploads = new ArrayList<>();
+            synchronized (requests) {
+                for (RecordedRequest request : requests) {
+                    if (request.getPath().contains("UploadChunk")) {
+                        uploads.add(request);
+                    }
+                }
+            }
+            return uploads;
+        }
+
+        /**
+         * @return the content of each uploaded chunk, by its {@code Content-Range}.
+         */
+        Map<String, String> chunks() {
+            Map<String, String> chunks = new TreeMap<>();
+            for (RecordedRequest request : uploads()) {
+                chunks.put(request.getHeader("Content-Range"), request.getBody().readUtf8());
+            }
+            return chunks;
+        }
+    }
+}
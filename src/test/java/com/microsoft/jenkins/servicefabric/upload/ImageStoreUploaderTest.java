@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.upload;
+
+import com.google.common.io.Files;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricClient;
+import com.microsoft.jenkins.servicefabric.rest.ServiceFabricEndpoint;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ImageStoreUploaderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private ImageStore store;
+    private ImageStoreUploader uploader;
+    private File packageDir;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        store = new ImageStore();
+        server.setDispatcher(store);
+        server.start();
+        ServiceFabricClient client = ServiceFabricClient.forEndpoint(
+                new ServiceFabricEndpoint(server.getHostName(), server.getPort(), null, null));
+        uploader = new ImageStoreUploader(client, new PrintStream(new ByteArrayOutputStream()));
+
+        packageDir = folder.newFolder("pkg");
+        write("ApplicationManifest.xml", "<ApplicationManifest />");
+        write("Svc/ServiceManifest.xml", "<ServiceManifest />");
+        write("Svc/Code/a.dll", "aaaa");
+        write("Svc/Code/b.dll", "bbbbbb");
+        write("Svc/Config/Settings.xml", "<Settings />");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void uploadsEverythingWithoutPreviousDigest() throws Exception {
+        store.put("App/Stale.xml", 3);
+
+        PackageDigest digest = uploader.uploadChanges(packageDir, "App", Collections.<String>emptySet(), null);
+
+        assertEquals(PackageDigest.compute(packageDir).getFiles(), digest.getFiles());
+        assertEquals("DELETE App", store.calls.get(0));
+        assertEquals(new TreeSet<>(Arrays.asList(
+                "PUT App/ApplicationManifest.xml",
+                "PUT App/Svc/ServiceManifest.xml",
+                "PUT App/Svc/Code/a.dll",
+                "PUT App/Svc/Code/b.dll",
+                "PUT App/Svc/Config/Settings.xml",
+                "PUT App/_.dir",
+                "PUT App/Svc/_.dir",
+                "PUT App/Svc/Code/_.dir",
+                "PUT App/Svc/Config/_.dir")), new TreeSet<>(store.calls.subList(1, store.calls.size())));
+    }
+
+    @Test
+    public void uploadsOnlyChangedFiles() throws Exception {
+        PackageDigest previous = uploadAll();
+        write("Svc/Code/b.dll", "BBBBBB");
+
+        uploader.uploadChanges(packageDir, "App", Collections.<String>emptySet(), previous);
+
+        assertEquals(Collections.singletonList("PUT App/Svc/Code/b.dll"), store.calls);
+    }
+
+    @Test
+    public void uploadsFilesMissingOrOfAnotherSizeInTheImageStore() throws Exception {
+        PackageDigest previous = uploadAll();
+        store.remove("App/Svc/Code/a.dll");
+        store.put("App/Svc/Config/Settings.xml", 1);
+
+        uploader.uploadChanges(packageDir, "App", Collections.<String>emptySet(), previous);
+
+        assertEquals(Arrays.asList("PUT App/Svc/Code/a.dll", "PUT App/Svc/Config/Settings.xml"), store.calls);
+    }
+
+    @Test
+    public void deletesFilesNoLongerInThePackage() throws Exception {
+        PackageDigest previous = uploadAll();
+        assertTrue(new File(packageDir, "Svc/Code/b.dll").delete());
+
+        uploader.uploadChanges(packageDir, "App", Collections.<String>emptySet(), previous);
+
+        // the directory markers stay
+        assertEquals(Collections.singletonList("DELETE App/Svc/Code/b.dll"), store.calls);
+    }
+
+    @Test
+    public void addsMarkersOfNewDirectories() throws Exception {
+        PackageDigest previous = uploadAll();
+        write("Svc/Data/Sub/x.bin", "x");
+
+        uploader.uploadChanges(packageDir, "App", Collections.<String>emptySet(), previous);
+
+        assertEquals(Arrays.asList("PUT App/Svc/Data/Sub/x.bin", "PUT App/Svc/Data/Sub/_.dir",
+                "PUT App/Svc/Data/_.dir"), store.calls);
+    }
+
+    @Test
+    public void leavesOutExcludedPaths() throws Exception {
+        PackageDigest previous = uploadAll();
+        write("Svc/Code/b.dll", "BBBBBB");
+        write("Svc/Config/Settings.xml", "<Settings Changed=\"true\" />");
+
+        PackageDigest digest = uploader.uploadChanges(packageDir, "App",
+                Collections.singleton("Svc/Code"), previous);
+
+        // the cluster takes the excluded packages from the provisioned version, the image store must not hold them
+        assertEquals(new TreeSet<>(Arrays.asList("DELETE App/Svc/Code/a.dll", "DELETE App/Svc/Code/b.dll",
+                "PUT App/Svc/Config/Settings.xml")), new TreeSet<>(store.calls));
+        assertNull(digest.get("Svc/Code/b.dll"));
+    }
+
+    /**
+     * Uploads the whole package, and forgets the requests.
+     */
+    private PackageDigest uploadAll() throws Exception {
+        PackageDigest digest = uploader.uploadChanges(packageDir, "App", Collections.<String>emptySet(), null);
+        store.calls.clear();
+        return digest;
+    }
+
+    private void write(String relativePath, String content) throws IOException {
+        File file = new File(packageDir, relativePath);
+        Files.createParentDirs(file);
+        Files.write(content, file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Holds the image store files in memory, and records the changes made to them.
+     */
+    private static final class ImageStore extends Dispatcher {
+        private static final String PREFIX = "/ImageStore/";
+
+        private final Map<String, Long> files = Collections.synchronizedMap(new TreeMap<String, Long>());
+        private final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+
+        void put(String path, long size) {
+            files.put(path, size);
+        }
+
+        void remove(String path) {
+            files.remove(path);
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            String path = request.getPath();
+            path = path.substring(PREFIX.length(), path.indexOf('?'));
+            if ("GET".equals(request.getMethod())) {
+                return list(path);
+            }
+            calls.add(request.getMethod() + " " + path);
+            if ("PUT".equals(request.getMethod())) {
+                files.put(path, request.getBodySize());
+            } else if ("DELETE".equals(request.getMethod())) {
+                synchronized (files) {
+                    files.keySet().removeAll(under(path));
+                    files.remove(path);
+                }
+            }
+            return new MockResponse();
+        }
+
+        private List<String> under(String folder) {
+            List<String> paths = new ArrayList<>();
+            synchronized (files) {
+                for (String path : files.keySet()) {
+                    if (path.startsWith(folder + "/")) {
+                        paths.add(path);
+                    }
+                }
+            }
+            return paths;
+        }
+
+        /**
+         * @return the files and the folders right under the folder, like the image store content API.
+         */
+        private MockResponse list(String folder) {
+            List<String> paths = under(folder);
+            if (paths.isEmpty()) {
+                return new MockResponse().setResponseCode(404);
+            }
+            StringBuilder storeFiles = new StringBuilder();
+            TreeSet<String> storeFolders = new TreeSet<>();
+            for (String path : paths) {
+                String name = path.substring(folder.length() + 1);
+                int separator = name.indexOf('/');
+                if (separator >= 0) {
+                    storeFolders.add(folder + "/" + name.substring(0, separator));
+                    continue;
+                }
+                if (storeFiles.length() > 0) {
+                    storeFiles.append(',');
+                }
+                storeFiles.append("{\"StoreRelativePath\":\"").append(path.replace("/", "\\\\"))
+                        .append("\",\"FileSize\":\"").append(files.get(path)).append("\"}");
+            }
+            StringBuilder body = new StringBuilder("{\"StoreFiles\":[").append(storeFiles)
+                    .append("],\"StoreFolders\":[");
+            boolean first = true;
+            for (String storeFolder : storeFolders) {
+                if (!first) {
+                    body.append(',');
+                }
+                first = false;
+                body.append("{\"StoreRelativePath\":\"").append(storeFolder.replace("/", "\\\\")).append("\"}");
+            }
+            return new MockResponse().setBody(body.append("]}").toString());
+        }
+    }
+}
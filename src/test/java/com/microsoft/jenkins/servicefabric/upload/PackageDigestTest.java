@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.upload;
+
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+public class PackageDigestTest {
+    /**
+     * SHA-256 of {@code "abc"}.
+     */
+    private static final String ABC_SHA256 = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File packageDir;
+
+    @Before
+    public void setUp() throws IOException {
+        packageDir = folder.newFolder("pkg");
+        write("ApplicationManifest.xml", "<ApplicationManifest />");
+        write("Svc/Code/a.dll", "abc");
+        write("Svc/Config/Settings.xml", "<Settings />");
+    }
+
+    @Test
+    public void computeDigestOfEveryFile() throws IOException {
+        PackageDigest digest = PackageDigest.compute(packageDir);
+
+        assertEquals(Arrays.asList("ApplicationManifest.xml", "Svc/Code/a.dll", "Svc/Config/Settings.xml"),
+                new ArrayList<>(digest.getFiles().keySet()));
+        assertEquals(new PackageDigest.FileDigest(ABC_SHA256, 3), digest.get("Svc/Code/a.dll"));
+        assertEquals(23 + 3 + 12, digest.getTotalSize());
+    }
+
+    @Test
+    public void withoutIsComputeWithExclusions() throws IOException {
+        PackageDigest digest = PackageDigest.compute(packageDir);
+
+        assertEquals(PackageDigest.compute(packageDir, Collections.singleton("Svc/Code")).getFiles(),
+                digest.without(Collections.singleton("Svc/Code")).getFiles());
+        assertEquals(Collections.singletonList("ApplicationManifest.xml"),
+                new ArrayList<>(digest.without(Collections.singleton("Svc")).getFiles().keySet()));
+    }
+
+    @Test
+    public void fingerprintChangesWithAnyFile() throws IOException {
+        String fingerprint = PackageDigest.compute(packageDir).getFingerprint();
+        assertEquals(fingerprint, PackageDigest.compute(packageDir).getFingerprint());
+
+        write("Svc/Code/a.dll", "abd");
+        String changed = PackageDigest.compute(packageDir).getFingerprint();
+        assertNotEquals(fingerprint, changed);
+
+        write("Svc/Code/b.dll", "");
+        assertNotEquals(changed, PackageDigest.compute(packageDir).getFingerprint());
+    }
+
+    @Test
+    public void writeAndReadBack() throws IOException {
+        write("Svc/Code/with space.dll", "x");
+        PackageDigest digest = PackageDigest.compute(packageDir);
+
+        StringWriter writer = new StringWriter();
+        digest.writeTo(writer);
+        PackageDigest read = PackageDigest.readFrom(
+                new ByteArrayInputStream(writer.toString().getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(digest.getFiles(), read.getFiles());
+        assertEquals(digest.getFingerprint(), read.getFingerprint());
+    }
+
+    @Test
+    public void rejectMalformedDigest() {
+        try {
+            PackageDigest.readFrom(new ByteArrayInputStream("abc 3\n".getBytes(StandardCharsets.UTF_8)));
+            fail("a line without a path should be rejected");
+        } catch (IOException e) {
+            assertEquals("Malformed package digest line: abc 3", e.getMessage());
+        }
+    }
+
+    private void write(String relativePath, String content) throws IOException {
+        File file = new File(packageDir, relativePath);
+        Files.createParentDirs(file);
+        Files.write(content, file, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See LICENSE in the project root for
+ * license information.
+ */
+
+package com.microsoft.jenkins.servicefabric.upload;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StreamingZipWriterTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void roundTrip() throws IOException {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put("empty.txt", new byte[0]);
+        files.put("small.txt", "hello, world".getBytes(StandardCharsets.UTF_8));
+        files.put("lib/one-block.dll", text(ParallelDeflater.BLOCK_SIZE));
+        files.put("lib/multi-block.dll", text(ParallelDeflater.BLOCK_SIZE * 3 + 17));
+        files.put("lib/random.bin", random(ParallelDeflater.BLOCK_SIZE * 2 + 5));
+        files.put("lib/\u00e9t\u00e9.txt", "unicode name".getBytes(StandardCharsets.UTF_8));
+
+        File zip = temp.newFile("Code.zip");
+        long size;
+        try (OutputStream out = new FileOutputStream(zip)) {
+            StreamingZipWriter writer = new StreamingZipWriter(out, 6);
+            writer.addDirectory("lib", System.currentTimeMillis());
+            writer.addDirectory("lib/empty", System.currentTimeMillis());
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                writer.addFile(file.getKey(), write(file.getValue()));
+            }
+            size = writer.finish();
+        }
+        assertEquals(zip.length(), size);
+
+        try (ZipFile zipFile = new ZipFile(zip)) {
+            List<String> names = new ArrayList<>();
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                names.add(entry.getName());
+            }
+            List<String> expected = new ArrayList<>();
+            expected.add("lib/");
+            expected.add("lib/empty/");
+            expected.addAll(files.keySet());
+            assertEquals(expected, names);
+
+            assertTrue(zipFile.getEntry("lib/empty/").isDirectory());
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                ZipEntry entry = zipFile.getEntry(file.getKey());
+                assertFalse(entry.isDirectory());
+                assertEquals(file.getKey(), ZipEntry.DEFLATED, entry.getMethod());
+                assertEquals(file.getKey(), file.getValue().length, entry.getSize());
+                assertEquals(file.getKey(), crcOf(file.getValue()), entry.getCrc());
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    assertArrayEquals(file.getKey(), file.getValue(), readAll(in));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void streamingRead() throws IOException {
+        byte[] content = text(ParallelDeflater.BLOCK_SIZE * 2 + 1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingZipWriter writer = new StreamingZipWriter(out, 1);
+        writer.addDirectory("dir", System.currentTimeMillis());
+        writer.addFile("dir/file.txt", write(content));
+        writer.addFile("dir/empty.txt", write(new byte[0]));
+        writer.finish();
+
+        // read through the local headers and data descriptors only, as an extraction streaming the upload would
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry = in.getNextEntry();
+            assertEquals("dir/", entry.getName());
+            assertTrue(entry.isDirectory());
+
+            entry = in.getNextEntry();
+            assertEquals("dir/file.txt", entry.getName());
+            assertArrayEquals(content, readAll(in));
+            assertEquals(crcOf(content), entry.getCrc());
+
+            entry = in.getNextEntry();
+            assertEquals("dir/empty.txt", entry.getName());
+            assertEquals(0, readAll(in).length);
+            assertEquals(crcOf(new byte[0]), entry.getCrc());
+
+            assertNull(in.getNextEntry());
+        }
+    }
+
+    @Test
+    public void deflateBlocks() throws IOException {
+        int[] sizes = {0, 1, ParallelDeflater.BLOCK_SIZE - 1, ParallelDeflater.BLOCK_SIZE,
+                ParallelDeflater.BLOCK_SIZE + 1, ParallelDeflater.BLOCK_SIZE * 20 + 3};
+        for (int size : sizes) {
+            for (byte[] content : new byte[][]{text(size), random(size)}) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                ParallelDeflater.Result result = new ParallelDeflater(9)
+                        .deflate(new ByteArrayInputStream(content), compressed);
+
+                assertEquals(size, result.getSize());
+                assertEquals(compressed.size(), result.getCompressedSize());
+                assertEquals(crcOf(content), result.getCrc());
+                byte[] inflated = readAll(new InflaterInputStream(
+                        new ByteArrayInputStream(compressed.toByteArray()), new Inflater(true)));
+                assertArrayEquals("size " + size, content, inflated);
+            }
+        }
+    }
+
+    private File write(byte[] content) throws IOException {
+        File file = temp.newFile();
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(content);
+        }
+        return file;
+    }
+
+    /**
+     * Compressible content, with repeats further apart than a block so that the dictionaries matter.
+     */
+    private static byte[] text(int size) {
+        StringBuilder builder = new StringBuilder(size + 64);
+        for (int line = 0; builder.length() < size; line++) {
+            builder.append("line ").append(line % 5000).append(": the quick brown fox\n");
+        }
+        return builder.substring(0, size).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] random(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    private static long crcOf(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}